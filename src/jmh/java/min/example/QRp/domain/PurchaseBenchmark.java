@@ -0,0 +1,55 @@
+package min.example.QRp.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 구매 생성 경로(PurchaseItem.createPurchaseItem, Purchase.createPurchase) 측정
+ * 항목 생성은 제품 재고를 차감하므로 반복(iteration)마다 재고가 넉넉한 제품을 새로 만듦
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PurchaseBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private Product[] products;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        products = new Product[items];
+        for (int i = 0; i < items; i++) {
+            products[i] = new Product("상품" + i, 1000 + i, Integer.MAX_VALUE);
+        }
+    }
+
+    @Benchmark
+    public PurchaseItem createPurchaseItem(SingleProduct single) {
+        return PurchaseItem.createPurchaseItem(single.product, single.product.getPrice(), 1);
+    }
+
+    @Benchmark
+    public Purchase createPurchase() {
+        PurchaseItem[] purchaseItems = new PurchaseItem[items];
+        for (int i = 0; i < items; i++) {
+            purchaseItems[i] = PurchaseItem.createPurchaseItem(products[i], products[i].getPrice(), 1);
+        }
+        return Purchase.createPurchase(purchaseItems);
+    }
+
+    /**
+     * 항목 하나만 만드는 측정은 items 파라미터와 상관없으므로 따로 둠
+     */
+    @State(Scope.Thread)
+    public static class SingleProduct {
+        private Product product;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            product = new Product("상품", 1000, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package min.example.QRp.dto;
+
+import min.example.QRp.domain.Product;
+import min.example.QRp.domain.Purchase;
+import min.example.QRp.domain.PurchaseItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 항목이 많은 구매 내역을 화면용 DTO 로 바꾸는 비용 측정 (구매 내역 화면, 페이지 조회에서 구매마다 한번씩 호출됨)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PurchaseResponseDtoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int items;
+
+    private Purchase purchase;
+
+    @Setup
+    public void setUp() {
+        PurchaseItem[] purchaseItems = new PurchaseItem[items];
+        for (int i = 0; i < items; i++) {
+            Product product = new Product("상품" + i, 1000 + i, 10);
+            purchaseItems[i] = PurchaseItem.createFromReservedStock(product, product.getPrice(), 1 + i % 3);
+        }
+        purchase = Purchase.createPurchase(purchaseItems);
+    }
+
+    @Benchmark
+    public PurchaseResponseDto construct() {
+        return new PurchaseResponseDto(purchase);
+    }
+}
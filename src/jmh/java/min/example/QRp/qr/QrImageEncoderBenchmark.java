@@ -0,0 +1,55 @@
+package min.example.QRp.qr;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 기존 MatrixToImageWriter(BufferedImage + ImageIO) 경로와 QrImageEncoder 직접 인코딩 비교
+ * QR 인코딩(BitMatrix 생성)은 두 경로가 같으므로 미리 만들어두고 이미지 변환만 측정함
+ * -prof gc 옵션을 주면 호출당 할당량(gc.alloc.rate.norm)도 같이 볼 수 있음
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class QrImageEncoderBenchmark {
+
+    @Param({"200", "600"})
+    private int size;
+
+    private BitMatrix matrix;
+    private BitMatrix modules;
+
+    @Setup
+    public void setUp() throws Exception {
+        matrix = new QRCodeWriter().encode("12345", BarcodeFormat.QR_CODE, size, size);
+        modules = new QRCodeWriter().encode("12345", BarcodeFormat.QR_CODE, 0, 0);
+    }
+
+    @Benchmark
+    public byte[] matrixToImageWriterPng() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] directPng() {
+        return QrImageEncoder.toPng(matrix);
+    }
+
+    @Benchmark
+    public byte[] directPbm() {
+        return QrImageEncoder.toPbm(matrix);
+    }
+
+    @Benchmark
+    public byte[] directSvg() {
+        return QrImageEncoder.toSvg(modules, size);
+    }
+}
@@ -0,0 +1,45 @@
+package min.example.QRp.service;
+
+import min.example.QRp.qr.QrCodeCache;
+import min.example.QRp.qr.QrImageFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR 코드 이미지 생성 측정
+ * cached 는 캐시 적중(관리자 화면에서 같은 QR 을 다시 볼때), rendered 는 캐시를 끄고 매번 인코딩하는 경우
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class AdminServiceBenchmark {
+
+    @Param({"200", "600"})
+    private int size;
+
+    @Param({"PNG", "SVG"})
+    private QrImageFormat format;
+
+    private AdminService cachedService;
+    private AdminService uncachedService;
+    private int productId;
+
+    @Setup
+    public void setUp() throws Exception {
+        cachedService = new AdminService(null, null, null, new QrCodeCache(4 * 1024 * 1024), null, null);
+        uncachedService = new AdminService(null, null, null, new QrCodeCache(0), null, null); // 항목을 하나도 보관하지 못하는 캐시
+        cachedService.generateQrCodeImage(1, size, format);
+    }
+
+    @Benchmark
+    public byte[] cached() throws Exception {
+        return cachedService.generateQrCodeImage(1, size, format);
+    }
+
+    @Benchmark
+    public byte[] rendered() throws Exception {
+        // 제품 ID 가 달라지면 QR 내용도 달라지므로 매번 다른 ID 로 인코딩
+        return uncachedService.generateQrCodeImage(++productId % 10_000, size, format);
+    }
+}
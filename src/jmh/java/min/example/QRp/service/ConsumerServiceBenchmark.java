@@ -0,0 +1,62 @@
+package min.example.QRp.service;
+
+import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.repository.ProductCache;
+import min.example.QRp.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 장바구니 화면과 결제 준비에서 매번 하는 장바구니 조회 + 총액 계산 측정
+ * DB 조회 시간은 빼고 서비스 코드만 보기 위해 제품을 메모리에서 돌려주는 저장소를 사용함
+ * 장바구니 조회는 제품 캐시를 거치므로 detailedCartTotal 은 캐시 적중 경로를 측정함
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ConsumerServiceBenchmark {
+
+    @Param({"5", "50"})
+    private int cartSize;
+
+    private ConsumerService consumerService;
+    private Map<Integer, Integer> cart;
+    private Map<ProductResponseDto, Integer> detailedCart;
+
+    @Setup
+    public void setUp() {
+        List<ProductResponseDto> products = new ArrayList<>();
+        cart = new LinkedHashMap<>();
+        for (int i = 1; i <= cartSize; i++) {
+            products.add(new ProductResponseDto(i, "상품" + i, 1000 * i, 100));
+            cart.put(i, 1 + i % 4);
+        }
+
+        ProductRepository inMemoryRepository = new ProductRepository(null, null) {
+            @Override
+            public List<ProductResponseDto> findAllDtosByIds(Collection<Integer> ids) {
+                return products;
+            }
+        };
+        consumerService = new ConsumerService(inMemoryRepository, null, null, null, null, null, null,
+                new ProductCache(10_000, Duration.ofMinutes(5)), null, null);
+        detailedCart = consumerService.getDetailedCart(cart);
+    }
+
+    @Benchmark
+    public int calculateTotalAmount() {
+        return consumerService.calculateTotalAmount(detailedCart);
+    }
+
+    @Benchmark
+    public int detailedCartTotal() {
+        return consumerService.calculateTotalAmount(consumerService.getDetailedCart(cart));
+    }
+}
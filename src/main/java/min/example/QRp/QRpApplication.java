@@ -2,18 +2,15 @@ package min.example.QRp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // IdleStateCleaner
+@PropertySource("classpath:qrp-defaults.properties") // 비밀값이 없는 기본 설정
 public class QRpApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(QRpApplication.class, args);
 	}
-
-	@Bean
-	public RestTemplate restTemplate(){
-		return new RestTemplate();
-	}
 }
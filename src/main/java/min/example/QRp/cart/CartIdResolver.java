@@ -0,0 +1,83 @@
+package min.example.QRp.cart;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 요청의 장바구니 ID 를 쿠키(QRP_CART)에서 꺼내고, 없으면 새로 만들어서 쿠키로 내려줌
+ * 세션 ID 는 세션을 만든 서버에만 의미가 있으므로, 어느 서버로 요청이 가도 같은 장바구니를 찾을 수 있도록 장바구니 ID 는 쿠키로 들고 다님
+ * 쿠키 값은 장바구니 저장소의 키로 바로 쓰이므로 UUID 형식이 아니면 버리고 새로 만듦
+ */
+@Component
+public class CartIdResolver {
+
+    public static final String COOKIE_NAME = "QRP_CART";
+
+    private final Duration maxAge;
+
+    public CartIdResolver(@Value("${cart.cookie.max-age:7d}") Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @param request 쿠키를 읽을 요청
+     * @param response 새 장바구니 ID 를 내려줄 응답
+     * @return 장바구니 ID
+     */
+    public String resolve(HttpServletRequest request, HttpServletResponse response) {
+        String cartId = find(request);
+        if (cartId == null) {
+            cartId = UUID.randomUUID().toString();
+            request.setAttribute(COOKIE_NAME, cartId); // 같은 요청에서 다시 찾을때 새로 만들지 않도록
+            ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, cartId)
+                    .path("/")
+                    .maxAge(maxAge)
+                    .httpOnly(true)
+                    .sameSite("Lax") // 카카오페이에서 돌아오는 GET 요청에는 쿠키가 실려야 함
+                    .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+        return cartId;
+    }
+
+    /**
+     * @param request 쿠키를 읽을 요청
+     * @return 장바구니 ID, 쿠키가 없거나 형식이 잘못되었으면 null
+     */
+    public String find(HttpServletRequest request) {
+        Object created = request.getAttribute(COOKIE_NAME);
+        if (created instanceof String cartId) {
+            return cartId;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName()) && isValid(cookie.getValue())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isValid(String value) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        try {
+            UUID.fromString(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
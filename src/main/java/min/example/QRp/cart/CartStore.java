@@ -0,0 +1,83 @@
+package min.example.QRp.cart;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 장바구니 저장소
+ * 장바구니를 세션 속성에 통째로 넣지 않고 장바구니 ID(쿠키, CartIdResolver)로 서버쪽에 보관하므로
+ * 수량을 바꿀때 세션에 맵 전체를 다시 넣지 않고, 한 상품의 수량만 원자적으로 바꿈
+ *
+ * cart.store=memory(기본) 이면 InMemoryCartStore, cart.store=jdbc 면 DB 테이블(cart_line)에 보관하는 JdbcCartStore 를 사용함
+ */
+public interface CartStore {
+
+    /**
+     * 장바구니 하나에 담을 수 있는 최대 상품 종류 수
+     */
+    int MAX_LINES = 100;
+
+    /**
+     * 장바구니 조회
+     * @param cartId 장바구니 ID
+     * @return <상품ID, 수량> 복사본 (담은 순서 유지), 없으면 빈 맵
+     */
+    Map<Integer, Integer> get(String cartId);
+
+    /**
+     * 상품 수량을 1 늘림, 늘린 수량이 maxQuantity 를 넘으면 늘리지 않음
+     * 검사와 증가를 한번에 하므로 같은 장바구니에 동시에 담아도 maxQuantity 를 넘지 않음
+     * @param cartId 장바구니 ID
+     * @param productId 상품 ID
+     * @param maxQuantity 담을 수 있는 최대 수량 (현재 재고)
+     * @return 늘렸으면 true, 재고를 넘어서 늘리지 않았으면 false
+     * @throws IllegalStateException 새 상품인데 장바구니에 이미 MAX_LINES 종류가 있을 경우
+     */
+    boolean increment(String cartId, int productId, int maxQuantity);
+
+    /**
+     * 상품 수량을 quantity 만큼 늘리되 maxQuantity 를 넘는 만큼은 늘리지 않음 (스캔 묶음을 한번에 반영)
+     * @param cartId 장바구니 ID
+     * @param productId 상품 ID
+     * @param quantity 늘릴 수량
+     * @param maxQuantity 담을 수 있는 최대 수량 (현재 재고)
+     * @return 실제로 늘린 수량 (0 ~ quantity)
+     * @throws IllegalStateException 새 상품인데 장바구니에 이미 MAX_LINES 종류가 있을 경우
+     */
+    int add(String cartId, int productId, int quantity, int maxQuantity);
+
+    /**
+     * 상품 수량을 1 줄임, 1개였으면 장바구니에서 뺌
+     * @param cartId 장바구니 ID
+     * @param productId 상품 ID
+     */
+    void decrement(String cartId, int productId);
+
+    /**
+     * 상품을 장바구니에서 뺌
+     * @param cartId 장바구니 ID
+     * @param productId 상품 ID
+     */
+    void remove(String cartId, int productId);
+
+    /**
+     * 장바구니 비우기 (결제 완료)
+     * @param cartId 장바구니 ID
+     */
+    void clear(String cartId);
+
+    /**
+     * idleSince 이후로 바뀌지 않은 장바구니를 지움 (쿠키가 만료되어 더 찾을 수 없는 장바구니 정리)
+     * @param idleSince 기준 시각
+     * @return 지운 줄(상품 종류) 수
+     */
+    int removeIdle(LocalDateTime idleSince);
+
+    /**
+     * @return 비어있지 않은 장바구니 수, 상품 종류 수 합계, 수량 합계
+     */
+    Summary summary();
+
+    record Summary(long carts, long lines, long items) {
+    }
+}
@@ -0,0 +1,120 @@
+package min.example.QRp.cart;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 서버 메모리에 보관하는 장바구니 저장소 (cart.store=memory, 기본)
+ * 장바구니마다 IntIntMap 하나만 두고, 바꿀때는 ConcurrentHashMap.compute 안에서 복사본을 고쳐서 바꿔 끼우므로
+ * 같은 장바구니의 변경은 차례대로 실행되고 조회는 잠금 없이 항상 완성된 맵을 봄
+ * 서버를 여러대 띄우거나 재시작해도 장바구니를 유지해야 하면 JdbcCartStore 를 사용함
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCartStore implements CartStore {
+
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>(); // 장바구니 ID -> <상품ID, 수량>, 마지막 변경시각
+
+    @Override
+    public Map<Integer, Integer> get(String cartId) {
+        Cart cart = carts.get(cartId);
+        return cart == null ? new LinkedHashMap<>() : cart.lines().toMap();
+    }
+
+    @Override
+    public boolean increment(String cartId, int productId, int maxQuantity) {
+        return add(cartId, productId, 1, maxQuantity) == 1;
+    }
+
+    @Override
+    public int add(String cartId, int productId, int quantity, int maxQuantity) {
+        int[] added = new int[1];
+        carts.compute(cartId, (id, cart) -> {
+            int current = cart == null ? 0 : cart.lines().get(productId);
+            int target = (int) Math.min((long) current + quantity, maxQuantity);
+            if (target <= current) {
+                return cart;
+            }
+            if (current == 0 && cart != null && cart.lines().size() >= MAX_LINES) {
+                throw new IllegalStateException("장바구니에는 최대 " + MAX_LINES + "종류까지 담을 수 있습니다.");
+            }
+            IntIntMap changed = cart == null ? new IntIntMap() : cart.lines().copy();
+            changed.put(productId, target);
+            added[0] = target - current;
+            return new Cart(changed, LocalDateTime.now());
+        });
+        return added[0];
+    }
+
+    @Override
+    public void decrement(String cartId, int productId) {
+        carts.computeIfPresent(cartId, (id, cart) -> {
+            int quantity = cart.lines().get(productId);
+            if (quantity == 0) {
+                return cart;
+            }
+            IntIntMap changed = cart.lines().copy();
+            if (quantity > 1) {
+                changed.put(productId, quantity - 1);
+            } else {
+                changed.remove(productId);
+            }
+            return changed.isEmpty() ? null : new Cart(changed, LocalDateTime.now());
+        });
+    }
+
+    @Override
+    public void remove(String cartId, int productId) {
+        carts.computeIfPresent(cartId, (id, cart) -> {
+            if (!cart.lines().containsKey(productId)) {
+                return cart;
+            }
+            IntIntMap changed = cart.lines().copy();
+            changed.remove(productId);
+            return changed.isEmpty() ? null : new Cart(changed, LocalDateTime.now());
+        });
+    }
+
+    @Override
+    public void clear(String cartId) {
+        carts.remove(cartId);
+    }
+
+    @Override
+    public int removeIdle(LocalDateTime idleSince) {
+        int removed = 0;
+        for (Map.Entry<String, Cart> entry : carts.entrySet()) {
+            // 확인하는 사이에 바뀐 장바구니는 지우지 않음
+            Cart cart = entry.getValue();
+            if (cart.touchedAt().isBefore(idleSince) && carts.remove(entry.getKey(), cart)) {
+                removed += cart.lines().size();
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Summary summary() {
+        long count = 0;
+        long lines = 0;
+        long items = 0;
+        for (Cart cart : carts.values()) {
+            count++;
+            lines += cart.lines().size();
+            items += cart.lines().sumValues();
+        }
+        return new Summary(count, lines, items);
+    }
+
+    /**
+     * @param lines <상품ID, 수량>, 넣은 뒤에는 바꾸지 않음
+     * @param touchedAt 마지막 변경시각
+     */
+    private record Cart(IntIntMap lines, LocalDateTime touchedAt) {
+    }
+}
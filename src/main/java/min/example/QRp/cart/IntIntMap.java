@@ -0,0 +1,161 @@
+package min.example.QRp.cart;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 장바구니용 int -> int 맵 (상품 ID -> 수량)
+ * Integer 박싱과 엔트리 객체 없이 배열 두개에 넣은 순서대로 보관함
+ * 장바구니는 종류가 많아야 수십개이므로 해시 대신 배열을 앞에서부터 찾고, 직렬화할때는 실제 크기만큼만 씀
+ * 스레드에 안전하지 않으므로 InMemoryCartStore 는 바꿀때마다 복사본을 고쳐서 바꿔 끼움 (한번 넣은 맵은 다시 바꾸지 않음)
+ */
+public class IntIntMap implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private transient int[] keys;
+    private transient int[] values;
+    private transient int size;
+
+    public IntIntMap() {
+        this(8);
+    }
+
+    public IntIntMap(int initialCapacity) {
+        this.keys = new int[Math.max(initialCapacity, 1)];
+        this.values = new int[keys.length];
+    }
+
+    /**
+     * @param key 키
+     * @return 값, 없으면 0
+     */
+    public int get(int key) {
+        int index = indexOf(key);
+        return index < 0 ? 0 : values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * 값 저장, 새 키는 맨 뒤에 추가됨
+     * @param key 키
+     * @param value 값
+     */
+    public void put(int key, int value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * 키 삭제, 뒤의 항목을 앞으로 당겨서 넣은 순서를 유지함
+     * @param key 키
+     * @return 삭제했으면 true
+     */
+    public boolean remove(int key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return false;
+        }
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return 모든 값의 합
+     */
+    public long sumValues() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return 같은 내용의 새 맵
+     */
+    public IntIntMap copy() {
+        IntIntMap copy = new IntIntMap(size + 1);
+        System.arraycopy(keys, 0, copy.keys, 0, size);
+        System.arraycopy(values, 0, copy.values, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return 넣은 순서를 유지하는 복사본
+     */
+    public Map<Integer, Integer> toMap() {
+        Map<Integer, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    private int indexOf(int key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(keys[i]);
+            out.writeInt(values[i]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("잘못된 크기: " + length);
+        }
+        keys = new int[Math.max(length, 1)];
+        values = new int[keys.length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = in.readInt();
+            values[i] = in.readInt();
+        }
+        size = length;
+    }
+}
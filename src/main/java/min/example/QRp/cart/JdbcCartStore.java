@@ -0,0 +1,143 @@
+package min.example.QRp.cart;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DB 테이블(cart_line)에 보관하는 장바구니 저장소 (cart.store=jdbc)
+ * 서버를 여러대 띄우거나 재시작해도 장바구니가 남고, 세션에는 아무것도 넣지 않으므로 어느 서버로 요청이 가도 같은 장바구니를 봄
+ * 수량 변경은 한 줄짜리 조건부 UPDATE 로 하므로 장바구니 전체를 읽고 다시 쓰지 않고, 동시에 담아도 재고를 넘지 않음
+ * 트랜잭션 밖에서 호출되면 문장마다 바로 커밋됨
+ */
+@Component
+@Timed("qrp.repository")
+@ConditionalOnProperty(name = "cart.store", havingValue = "jdbc")
+public class JdbcCartStore implements CartStore {
+
+    private static final String INCREMENT_SQL = "update cart_line set quantity = quantity + 1, updated_at = ? "
+            + "where cart_id = ? and product_id = ? and quantity < ?";
+    private static final String INSERT_SQL = "insert into cart_line (cart_id, product_id, quantity, updated_at) values (?, ?, 1, ?)";
+    private static final String SELECT_QUANTITY_SQL = "select quantity from cart_line where cart_id = ? and product_id = ?";
+    private static final int MAX_ADD_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcCartStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<Integer, Integer> get(String cartId) {
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        jdbcTemplate.query("select product_id, quantity from cart_line where cart_id = ? order by line_id",
+                rs -> {
+                    cart.put(rs.getInt(1), rs.getInt(2));
+                }, cartId);
+        return cart;
+    }
+
+    /**
+     * 이미 담긴 상품이면 재고 조건을 건 UPDATE 한번, 처음 담는 상품이면 INSERT
+     * 두 요청이 동시에 같은 상품을 처음 담으면 늦은 쪽은 중복 키 오류가 나므로 먼저 들어간 줄에 다시 더함
+     */
+    @Override
+    public boolean increment(String cartId, int productId, int maxQuantity) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jdbcTemplate.update(INCREMENT_SQL, now, cartId, productId, maxQuantity) == 1) {
+            return true;
+        }
+        List<Integer> current = jdbcTemplate.queryForList(SELECT_QUANTITY_SQL, Integer.class, cartId, productId);
+        if (!current.isEmpty() || maxQuantity < 1) {
+            return false; // 이미 재고만큼 담겨 있음
+        }
+        checkLineLimit(cartId);
+        try {
+            jdbcTemplate.update(INSERT_SQL, cartId, productId, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update(INCREMENT_SQL, now, cartId, productId, maxQuantity) == 1;
+        }
+    }
+
+    /**
+     * 현재 수량을 읽고, 읽은 수량이 그대로일때만 바꾸는 조건부 UPDATE (처음 담는 상품이면 INSERT)
+     * 그사이 다른 요청이 수량을 바꿨으면 다시 읽어서 재고를 넘지 않는 만큼만 더함
+     */
+    @Override
+    public int add(String cartId, int productId, int quantity, int maxQuantity) {
+        for (int attempt = 0; attempt < MAX_ADD_ATTEMPTS; attempt++) {
+            List<Integer> current = jdbcTemplate.queryForList(SELECT_QUANTITY_SQL, Integer.class, cartId, productId);
+            int before = current.isEmpty() ? 0 : current.get(0);
+            int target = (int) Math.min((long) before + quantity, maxQuantity);
+            if (target <= before) {
+                return 0;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (current.isEmpty()) {
+                checkLineLimit(cartId);
+                try {
+                    jdbcTemplate.update("insert into cart_line (cart_id, product_id, quantity, updated_at) values (?, ?, ?, ?)",
+                            cartId, productId, target, now);
+                    return target;
+                } catch (DuplicateKeyException e) {
+                    continue; // 동시에 처음 담은 요청이 먼저 넣음
+                }
+            }
+            if (jdbcTemplate.update("update cart_line set quantity = ?, updated_at = ? where cart_id = ? and product_id = ? and quantity = ?",
+                    target, now, cartId, productId, before) == 1) {
+                return target - before;
+            }
+        }
+        throw new IllegalStateException("장바구니가 동시에 바뀌고 있습니다. 다시 시도해주세요.");
+    }
+
+    @Override
+    public void decrement(String cartId, int productId) {
+        int updated = jdbcTemplate.update("update cart_line set quantity = quantity - 1, updated_at = ? "
+                + "where cart_id = ? and product_id = ? and quantity > 1", LocalDateTime.now(), cartId, productId);
+        if (updated == 0) {
+            jdbcTemplate.update("delete from cart_line where cart_id = ? and product_id = ? and quantity <= 1", cartId, productId);
+        }
+    }
+
+    @Override
+    public void remove(String cartId, int productId) {
+        jdbcTemplate.update("delete from cart_line where cart_id = ? and product_id = ?", cartId, productId);
+    }
+
+    @Override
+    public void clear(String cartId) {
+        jdbcTemplate.update("delete from cart_line where cart_id = ?", cartId);
+    }
+
+    /**
+     * 마지막으로 바뀐 줄의 시각이 idleSince 보다 이전인 장바구니를 지움
+     * MySQL 은 지우는 테이블을 바로 서브쿼리로 읽을 수 없으므로 한번 더 감싼 파생 테이블로 장바구니 ID 를 구함
+     */
+    @Override
+    public int removeIdle(LocalDateTime idleSince) {
+        return jdbcTemplate.update("delete from cart_line where cart_id in (select cart_id from ("
+                + "select cart_id from cart_line group by cart_id having max(updated_at) < ?) idle)", idleSince);
+    }
+
+    @Override
+    public Summary summary() {
+        return jdbcTemplate.queryForObject("select count(distinct cart_id), count(*), coalesce(sum(quantity), 0) from cart_line",
+                (rs, rowNum) -> new Summary(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    private void checkLineLimit(String cartId) {
+        Integer lines = jdbcTemplate.queryForObject("select count(*) from cart_line where cart_id = ?", Integer.class, cartId);
+        if (lines != null && lines >= MAX_LINES) {
+            throw new IllegalStateException("장바구니에는 최대 " + MAX_LINES + "종류까지 담을 수 있습니다.");
+        }
+    }
+}
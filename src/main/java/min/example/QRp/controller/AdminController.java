@@ -4,19 +4,37 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import min.example.QRp.domain.Product;
+import min.example.QRp.dto.BulkRefundRequestDto;
+import min.example.QRp.dto.BulkRefundStatusDto;
 import min.example.QRp.dto.CreateProductDto;
+import min.example.QRp.dto.ProductPageDto;
 import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.PurchasePageDto;
 import min.example.QRp.dto.PurchaseResponseDto;
+import min.example.QRp.dto.QrCodeCacheStatsDto;
+import min.example.QRp.dto.SalesReportRow;
 import min.example.QRp.dto.UpdateProductDto;
+import min.example.QRp.qr.QrImageFormat;
+import min.example.QRp.qr.QrLabelLayout;
+import min.example.QRp.repository.ProductSearchType;
+import min.example.QRp.repository.ProductSort;
+import min.example.QRp.repository.SalesGranularity;
 import min.example.QRp.service.AdminService;
+import min.example.QRp.service.BulkRefundService;
+import min.example.QRp.service.QrLabelService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Controller
@@ -24,16 +42,32 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AdminController {
     private final AdminService adminService;
+    private final QrLabelService qrLabelService;
+    private final BulkRefundService bulkRefundService;
 
     /**
-     * 모든 상품을 보여줌
+     * 상품 목록을 한 페이지씩 보여줌
      * @param model View에 데이터를 전달하기 위한 객체
+     * @param keyword 이름 검색어, 생략하면 모든 상품
+     * @param type 이름 검색 방식 (PREFIX: 검색어로 시작, CONTAINS: 검색어 포함)
+     * @param sort 정렬 기준
+     * @param page 페이지 번호 (1부터 시작)
+     * @param size 페이지 크기
      * @return 렌더링할 html 파일
      */
     @GetMapping("/products")
-    public String findAllProducts(Model model){
-        List<ProductResponseDto> products = adminService.findAllProducts();
-        model.addAttribute("products",products);
+    public String findAllProducts(Model model,
+                                  @RequestParam(required = false) String keyword,
+                                  @RequestParam(defaultValue = "PREFIX") ProductSearchType type,
+                                  @RequestParam(defaultValue = "ID") ProductSort sort,
+                                  @RequestParam(defaultValue = "1") int page,
+                                  @RequestParam(defaultValue = "20") int size){
+        ProductPageDto productPage = adminService.findProductPage(keyword, type, sort, page, size);
+        model.addAttribute("products", productPage.getProducts());
+        model.addAttribute("page", productPage);
+        model.addAttribute("keyword", keyword);
+        model.addAttribute("type", type);
+        model.addAttribute("sort", sort);
         return "admin/products";
     }
 
@@ -120,6 +154,56 @@ public class AdminController {
         return ResponseEntity.ok(purchaseId + "번 상품이 환불되었습니다.");
     }
 
+    /**
+     * 일괄 환불 작업 등록, 환불은 백그라운드에서 진행되고 진행 상황은 작업 ID 로 조회
+     * @param request 구매 ID 목록 또는 조건 (제품, 구매일 기간)
+     * @return 202, 등록된 작업 상태
+     */
+    @PostMapping("/purchases/refunds")
+    @ResponseBody
+    public ResponseEntity<BulkRefundStatusDto> bulkRefund(@RequestBody BulkRefundRequestDto request){
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkRefundService.start(request));
+    }
+
+    /**
+     * 일괄 환불 진행 상황
+     * @param jobId 작업 ID
+     * @return 대상, 처리, 환불, 건너뛴 구매 수와 상태
+     */
+    @GetMapping("/purchases/refunds/{jobId}")
+    @ResponseBody
+    public ResponseEntity<BulkRefundStatusDto> bulkRefundStatus(@PathVariable String jobId){
+        return ResponseEntity.ok(bulkRefundService.findJob(jobId));
+    }
+
+    /**
+     * 기간 매출 리포트 (판매 집계에서 조회하므로 구매 건수와 상관없이 구간 수만큼만 읽음)
+     * @param from 시작일 (yyyy-MM-dd, 포함)
+     * @param to 종료일 (yyyy-MM-dd, 포함)
+     * @param granularity HOUR(시간대별, 최대 31일) 또는 DAY(일별, 최대 366일)
+     * @param productId 특정 제품만 볼때 제품 ID
+     * @return 구간, 제품별 판매/환불 수량과 금액
+     */
+    @GetMapping("/sales-report")
+    @ResponseBody
+    public ResponseEntity<List<SalesReportRow>> salesReport(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(defaultValue = "DAY") SalesGranularity granularity,
+                                                            @RequestParam(required = false) Integer productId) {
+        return ResponseEntity.ok(adminService.findSalesReport(from, to, granularity, productId));
+    }
+
+    /**
+     * 원본 구매 내역으로 판매 집계를 다시 만듦
+     * @return 다시 만든 집계 행 수
+     */
+    @PostMapping("/sales-report/rebuild")
+    @ResponseBody
+    public ResponseEntity<String> rebuildSalesReport() {
+        int rows = adminService.rebuildSalesRollup();
+        return ResponseEntity.ok("판매 집계를 다시 만들었습니다. (" + rows + "행)");
+    }
+
     /**
      * 주문 ID를 입력해서 주문을 찾음
      * @param model View에 데이터를 전달하기 위한 객체
@@ -142,28 +226,121 @@ public class AdminController {
 
     /**
      * 제품을 만들때 DB에 QR.코드를 저장하지않고 (QR.코드 보기) 버튼등을 눌렀을떄 생성,볼수있는 메소드
+     * 한번 생성한 이미지는 서버 메모리에 캐시되어 같은 요청은 다시 인코딩하지 않음
      * @param productId QR.코드 생성,읽을 제품 ID
+     * @param size 이미지 가로,세로 크기(px)
+     * @param format 이미지 포맷 (PNG, GIF, BMP, SVG, PBM)
      * @return QR.코드 생성,읽기
      */
-    @GetMapping(value = "/products/{productId}/qr-code", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> getQrCode(@PathVariable int productId) {
+    @GetMapping("/products/{productId}/qr-code")
+    public ResponseEntity<byte[]> getQrCode(@PathVariable int productId,
+                                            @RequestParam(defaultValue = "200") int size,
+                                            @RequestParam(defaultValue = "PNG") QrImageFormat format) {
         try {
-            byte[] qrCodeImage = adminService.generateQrCodeImage(productId);
-            return ResponseEntity.ok().body(qrCodeImage);
+            byte[] qrCodeImage = adminService.generateQrCodeImage(productId, size, format);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(format.getMediaType()))
+                    .body(qrCodeImage);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     /**
-     * 모든 주문 내역을 보여줌
+     * 여러 제품의 QR 코드를 한번에 출력 (ZIP 또는 라벨 용지)
+     * 렌더링이 끝나는 대로 응답에 바로 써서 보내므로 제품이 수천개여도 서버에 전체 결과를 모으지 않음
+     * @param productIds 출력할 제품 ID 목록, 비어있으면 모든 제품
+     * @param layout ZIP(제품별 PNG 묶음), SHEET(라벨 용지 한 페이지), SHEETS(모든 라벨 용지 페이지 묶음)
+     * @param page SHEET 일때 출력할 페이지 (1부터 시작)
+     * @param size ZIP 일때 QR 코드 크기(px)
+     * @return QR 코드 묶음 파일
+     */
+    @GetMapping("/products/qr-codes")
+    public ResponseEntity<StreamingResponseBody> getQrCodes(@RequestParam(name = "ids", required = false) List<Integer> productIds,
+                                                            @RequestParam(defaultValue = "ZIP") QrLabelLayout layout,
+                                                            @RequestParam(defaultValue = "1") int page,
+                                                            @RequestParam(defaultValue = "200") int size) {
+        List<ProductResponseDto> products = adminService.findProductsByIds(productIds);
+
+        return switch (layout) {
+            case ZIP -> {
+                AdminService.validateQrSize(size);
+                yield attachment("qr-codes.zip", "application/zip",
+                        out -> qrLabelService.writeZip(products, size, out));
+            }
+            case SHEET -> {
+                if (page < 1 || page > qrLabelService.pageCount(products.size())) {
+                    throw new IllegalStateException("존재하지 않는 페이지입니다: " + page);
+                }
+                yield attachment("qr-labels-" + page + ".png", MediaType.IMAGE_PNG_VALUE,
+                        out -> qrLabelService.writeSheet(products, page, out));
+            }
+            case SHEETS -> attachment("qr-labels.zip", "application/zip",
+                    out -> qrLabelService.writeSheetsZip(products, out));
+        };
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String fileName, String contentType, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(contentType))
+                .body(body);
+    }
+
+    /**
+     * QR 코드 캐시 적중/실패 횟수 조회
+     * @return 캐시 통계
+     */
+    @GetMapping("/qr-code/cache-stats")
+    @ResponseBody
+    public ResponseEntity<QrCodeCacheStatsDto> getQrCodeCacheStats() {
+        return ResponseEntity.ok(adminService.getQrCodeCacheStats());
+    }
+
+    /**
+     * 주문 내역을 최신순으로 한 페이지씩 보여줌
      * @param model View에 데이터를 전달하기 위한 객체
+     * @param cursorDate 이전 페이지 마지막 주문의 구매시간, 첫 페이지면 생략
+     * @param cursorId 이전 페이지 마지막 주문 ID, 첫 페이지면 생략
+     * @param size 페이지 크기
      * @return 렌더링할 html 파일
      */
     @GetMapping("/purchases")
-    public String findAllPurchases(Model model) {
-        List<PurchaseResponseDto> purchases = adminService.findAllPurchases();
-        model.addAttribute("purchases", purchases);
+    public String findAllPurchases(Model model,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorDate,
+                                   @RequestParam(required = false) Integer cursorId,
+                                   @RequestParam(defaultValue = "20") int size) {
+        PurchasePageDto page = adminService.findPurchasePage(cursorDate, cursorId, size);
+        model.addAttribute("purchases", page.getPurchases());
+        model.addAttribute("page", page);
         return "admin/purchases";
     }
+
+    /**
+     * 구매 내역 한 페이지를 JSON 으로 조회 (최신순)
+     * 응답의 nextCursorDate, nextCursorId 를 다음 요청에 그대로 넘기면 다음 페이지를 받을 수 있음
+     * @param cursorDate 이전 페이지 마지막 주문의 구매시간, 첫 페이지면 생략
+     * @param cursorId 이전 페이지 마지막 주문 ID, 첫 페이지면 생략
+     * @param size 페이지 크기 (최대 100)
+     * @return 주문 내역과 다음 페이지 커서
+     */
+    @GetMapping("/purchases/page")
+    @ResponseBody
+    public ResponseEntity<PurchasePageDto> findPurchasePage(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorDate,
+                                                            @RequestParam(required = false) Integer cursorId,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(adminService.findPurchasePage(cursorDate, cursorId, size));
+    }
+
+    /**
+     * 모든 구매 내역을 CSV 파일로 내려받음
+     * DB 에서 읽는 대로 응답에 바로 쓰므로 구매 내역 전체를 서버 메모리에 올리지 않음
+     * @return 구매 항목 한 줄씩 담긴 CSV 파일
+     */
+    @GetMapping("/purchases/export")
+    public ResponseEntity<StreamingResponseBody> exportPurchases() {
+        return attachment("purchases.csv", "text/csv;charset=UTF-8", adminService::exportPurchasesCsv);
+    }
 }
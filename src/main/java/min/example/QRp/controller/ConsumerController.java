@@ -1,20 +1,33 @@
 package min.example.QRp.controller;
 
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import min.example.QRp.cart.CartIdResolver;
+import min.example.QRp.dto.CartLineUpdateDto;
 import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.ScanBatchRequestDto;
+import min.example.QRp.dto.ScanBatchResultDto;
 import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
 import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import min.example.QRp.qr.QrFrameDecoder;
 import min.example.QRp.service.ConsumerService;
+import min.example.QRp.service.ScanIngestionService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -23,34 +36,37 @@ import java.util.Map;
 public class ConsumerController {
 
     private final ConsumerService consumerService;
+    private final CartIdResolver cartIdResolver;
+    private final ScanIngestionService scanIngestionService;
+    private final QrFrameDecoder qrFrameDecoder;
 
     /**
-     * 세션에 저장된 장바구니 목록을 화면에 보여줌
-     * @param session 장바구니 데이터를 조회하고 관리하기 위한 세션
+     * 장바구니 목록을 화면에 보여줌
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
      * @param model HTML에 전달할 장바구니
      * @return 장바구니 화면 뷰
      */
     @GetMapping("/cart")
-    public String showCart(HttpSession session, Model model) {
+    public String showCart(HttpServletRequest request, HttpServletResponse response, Model model) {
 
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
+        String cartId = cartIdResolver.resolve(request, response);
+        Map<Integer, Integer> cart = consumerService.getCart(cartId);
 
-        if (cart == null || cart.isEmpty()) {
+        if (cart.isEmpty()) {
             model.addAttribute("cartItems", new ArrayList<>());
             model.addAttribute("totalAmount", 0);
         } else {
             try {
                 Map<ProductResponseDto, Integer> detailedCart = consumerService.getDetailedCart(cart);
 
-                int totalAmount = detailedCart.entrySet().stream()
-                        .mapToInt(entry -> entry.getKey().getPrice() * entry.getValue())
-                        .sum();
+                int totalAmount = consumerService.calculateTotalAmount(detailedCart);
 
                 model.addAttribute("cartItems", detailedCart.entrySet());
                 model.addAttribute("totalAmount", totalAmount);
 
             } catch (EntityNotFoundException ex) {
-                session.removeAttribute("cart");
+                consumerService.clearCart(cartId);
                 model.addAttribute("cartItems", new ArrayList<>());
                 model.addAttribute("totalAmount", 0);
                 model.addAttribute("errorMessage", "장바구니에 담긴 상품 중 일부가 삭제되었습니다.");
@@ -61,30 +77,19 @@ public class ConsumerController {
     }
 
     /**
-     * '+' 버튼 클릭시 그 제품 1개추가후 재고 유효성 검사
+     * '+' 버튼 클릭시 그 제품 1개추가, 재고를 넘으면 추가하지 않음
      * @param productId 제품 증가시킬 제품ID
-     * @param session 장바구니 데이터 세션
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
      * @param rttr 재고 부족시 에러 메세지를 보낼 객체
      * @return 장바구니 페이지 리다이렉트
      */
     @GetMapping("/cart/add/{productId}")
-    public String addToCart(@PathVariable int productId, HttpSession session, RedirectAttributes rttr) {
+    public String addToCart(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response, RedirectAttributes rttr) {
 
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
-        if (cart == null) {
-            cart = new HashMap<>();
-        }
-
-        // 수량을 1 증가시킴
-        cart.put(productId, cart.getOrDefault(productId, 0) + 1);
-        session.setAttribute("cart", cart);
-
-        // 재고 검증 재고가 초과되면 다시 재고 -1로 감소시킴
         try {
-            consumerService.validateStock(cart);
+            consumerService.addToCart(cartIdResolver.resolve(request, response), productId);
         } catch (IllegalStateException ex) {
-            cart.put(productId, cart.get(productId) - 1);
-            session.setAttribute("cart", cart);
             rttr.addFlashAttribute("errorMessage", ex.getMessage());
         }
 
@@ -94,72 +99,137 @@ public class ConsumerController {
     /**
      * '-' 버튼 클릭시 그 제품 1개 감소시키거나 0개가 될 경우 장바구니에서 삭제
      * @param productId 제품 감소시킬 제품ID
-     * @param session 장바구니 데이터 세션
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
      * @return 장바구니 페이지 리다이렉트
      */
     @GetMapping("/cart/subtract/{productId}")
-    public String subtractFromCart(@PathVariable int productId, HttpSession session) {
-
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
-        if (cart == null) {
-            return "redirect:/consumer/cart";
-        }
-
-        int currentQuantity = cart.getOrDefault(productId, 0);
-
-        if (currentQuantity > 1) {
-            // 수량이 2 이상이면 1만 뺌
-            cart.put(productId, currentQuantity - 1);
-        } else {
-            // 수량이 1 이하면 상품 자체를 장바구니에서 제거
-            cart.remove(productId);
-        }
-
-        session.setAttribute("cart", cart);
+    public String subtractFromCart(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response) {
+        consumerService.subtractFromCart(cartIdResolver.resolve(request, response), productId);
         return "redirect:/consumer/cart";
     }
 
     /**
      * 'X' 버튼 클릭시 그 상품을 장바구니에서 아예 삭제
      * @param productId 제거할 제품ID
-     * @param session 장바구니 데이터 세션
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
      * @return 장바구니 페이지 리다이렉트
      */
     @GetMapping("/cart/remove/{productId}")
-    public String removeFromCart(@PathVariable int productId, HttpSession session) {
+    public String removeFromCart(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response) {
+        consumerService.removeFromCart(cartIdResolver.resolve(request, response), productId);
+        return "redirect:/consumer/cart";
+    }
 
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
-        if (cart != null) {
-            cart.remove(productId);
-            session.setAttribute("cart", cart);
-        }
+    /**
+     * 장바구니 '+' API, 제품 1개 추가 후 바뀐 줄과 총 합계만 돌려줌 (화면은 다시 그리지 않고 그 줄만 고침)
+     * @param productId 증가시킬 제품ID
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
+     * @return 바뀐 줄과 총 합계, 재고가 부족하면 400
+     */
+    @PostMapping("/api/cart/{productId}/add")
+    @ResponseBody
+    public ResponseEntity<CartLineUpdateDto> addToCartApi(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response) {
+        return ResponseEntity.ok(consumerService.addToCart(cartIdResolver.resolve(request, response), productId));
+    }
 
-        return "redirect:/consumer/cart";
+    /**
+     * 장바구니 '-' API, 제품 1개 감소 (1개였으면 장바구니에서 제거) 후 바뀐 줄과 총 합계만 돌려줌
+     * @param productId 감소시킬 제품ID
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
+     * @return 바뀐 줄(제거됐으면 수량 0)과 총 합계
+     */
+    @PostMapping("/api/cart/{productId}/subtract")
+    @ResponseBody
+    public ResponseEntity<CartLineUpdateDto> subtractFromCartApi(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response) {
+        return ResponseEntity.ok(consumerService.subtractFromCart(cartIdResolver.resolve(request, response), productId));
+    }
+
+    /**
+     * 장바구니 'X' API, 제품을 장바구니에서 제거한 뒤 총 합계를 돌려줌
+     * @param productId 제거할 제품ID
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
+     * @return 제거된 줄(수량 0)과 총 합계
+     */
+    @DeleteMapping("/api/cart/{productId}")
+    @ResponseBody
+    public ResponseEntity<CartLineUpdateDto> removeFromCartApi(@PathVariable int productId, HttpServletRequest request, HttpServletResponse response) {
+        return ResponseEntity.ok(consumerService.removeFromCart(cartIdResolver.resolve(request, response), productId));
+    }
+
+    /**
+     * 스캐너 API, 읽은 QR 묶음을 한번에 장바구니에 담음 (연결이 끊긴 동안 쌓아둔 스캔도 받음)
+     * 같은 스캔 ID 와 같은 상품을 연달아 읽은 스캔은 한번만 세고, 재고를 넘는 만큼은 담지 않음
+     * @param scanBatch 스캔 ID, QR 내용, 읽은 시각 목록
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
+     * @return 상품별 읽은 수와 담은 수, 담지 못한 스캔, 장바구니 총 합계
+     */
+    @PostMapping("/api/cart/scans")
+    @ResponseBody
+    public ResponseEntity<ScanBatchResultDto> ingestScans(@Valid @RequestBody ScanBatchRequestDto scanBatch,
+                                                          HttpServletRequest request, HttpServletResponse response) {
+        return ResponseEntity.ok(scanIngestionService.ingest(cartIdResolver.resolve(request, response), scanBatch.getScans()));
+    }
+
+    /**
+     * 카메라 사진 API, 단말이 QR 을 직접 읽지 못할때 찍은 사진(JPEG, PNG)을 보내면 서버에서 QR 을 읽어 1개 담음
+     * 담는 방식은 스캐너 API 와 같아서 같은 스캔 ID 로 다시 보낸 사진은 다시 담지 않음
+     * @param frame 카메라 사진
+     * @param scanId 단말이 붙인 스캔 ID (선택)
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
+     * @return 담은 결과와 장바구니 총 합계, QR 을 찾지 못하면 400, 인식 요청이 밀려있으면 503
+     */
+    @PostMapping("/api/cart/scan-image")
+    @ResponseBody
+    public ResponseEntity<ScanBatchResultDto> ingestScanImage(@RequestParam("frame") MultipartFile frame,
+                                                              @RequestParam(required = false) String scanId,
+                                                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (scanId != null && scanId.length() > 64) {
+            throw new IllegalStateException("스캔 ID 는 64자 이하여야 합니다.");
+        }
+        String payload;
+        try (InputStream image = frame.getInputStream()) {
+            payload = qrFrameDecoder.decode(image)
+                    .orElseThrow(() -> new IllegalStateException("사진에서 QR 코드를 찾을 수 없습니다."));
+        }
+        ScanBatchRequestDto.ScanDto scan = new ScanBatchRequestDto.ScanDto();
+        scan.setScanId(scanId);
+        scan.setPayload(payload);
+        scan.setScannedAt(LocalDateTime.now());
+        return ResponseEntity.ok(scanIngestionService.ingest(cartIdResolver.resolve(request, response), List.of(scan)));
     }
 
     /**
      * 카카오 결제 준비 API
-     * @param session 결제할 장바구니 정보 조회 및 승인 단계에서 사용할 TID 저장 세션
+     * @param request 결제할 장바구니 ID(쿠키)를 읽을 요청
+     * @param response 장바구니 ID 가 없을때 새 쿠키를 내려줄 응답
      * @return 성공시 모바일 결제 URL을 포함한 ResponseEntity, 실패시 에러 메세지 반환
      */
     @PostMapping("/payment/ready")
     @ResponseBody
-    public ResponseEntity<?> paymentReady(HttpSession session) {
+    public ResponseEntity<?> paymentReady(HttpServletRequest request, HttpServletResponse response) {
 
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
+        String cartId = cartIdResolver.resolve(request, response);
+        Map<Integer, Integer> cart = consumerService.getCart(cartId);
 
-        if (cart == null || cart.isEmpty()) {
+        if (cart.isEmpty()) {
             Map<String, String> error = Map.of("error", "장바구니가 비어있습니다.");
             return ResponseEntity.badRequest().body(error);
         }
 
         try {
-            KakaoReadyResponseDto readyResponse = consumerService.kakaoPayReady(cart, session);
+            KakaoReadyResponseDto readyResponse = consumerService.kakaoPayReady(cart, cartId);
 
-            Map<String, String> response = new HashMap<>();
-            response.put("next_redirect_mobile_url", readyResponse.getNextRedirectMobileUrl());
+            Map<String, String> body = new HashMap<>();
+            body.put("next_redirect_mobile_url", readyResponse.getNextRedirectMobileUrl());
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(body);
 
         } catch (Exception ex) {
             throw new IllegalStateException("결제 준비 중 오류 발생: " + ex.getMessage());
@@ -168,16 +238,19 @@ public class ConsumerController {
 
     /**
      * 카카오 결제 승인 API
+     * 결제 준비때 돌아올 주소에 붙여둔 주문 ID 로 결제 정보를 찾으므로 결제 준비를 처리한 서버가 아니어도 됨
+     * @param partnerOrderId 결제 준비때 돌아올 주소에 붙인 주문 ID
      * @param pgToken 카카오페이 서버로부터 받은 결제 승인 토큰
-     * @param session 결제 정보(TID, 제품ID)가 저장된 세션
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
      * @param model 결제 승인 결과 및 실패시 에러 메세지를 보여줄 모델
      * @return 성공시 결제 성공창 실패시 결제 실패창
      */
     @GetMapping("/payment/success")
-    public String paymentSuccess(@RequestParam("pg_token") String pgToken, HttpSession session, Model model) {
+    public String paymentSuccess(@RequestParam(value = "partner_order_id", required = false) String partnerOrderId,
+                                 @RequestParam("pg_token") String pgToken, HttpServletRequest request, Model model) {
 
         try {
-            KakaoApproveResponseDto approveResponse = consumerService.kakaoPayApprove(pgToken, session);
+            KakaoApproveResponseDto approveResponse = consumerService.kakaoPayApprove(partnerOrderId, pgToken, cartIdResolver.find(request));
             model.addAttribute("approveResponse", approveResponse);
             return "consumer/payment-success";
 
@@ -188,20 +261,28 @@ public class ConsumerController {
     }
 
     /**
-     * 결제중 사용자가 취소 했을떄 보여지는 페이지
+     * 결제중 사용자가 취소 했을떄 보여지는 페이지, 결제 준비때 예약한 재고를 돌려줌
+     * @param partnerOrderId 결제 준비때 돌아올 주소에 붙인 주문 ID
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
      * @return 결제 취소 안내 화면
      */
     @GetMapping("/payment/cancel")
-    public String paymentCancel() {
+    public String paymentCancel(@RequestParam(value = "partner_order_id", required = false) String partnerOrderId,
+                                HttpServletRequest request) {
+        consumerService.cancelPayment(partnerOrderId, cartIdResolver.find(request));
         return "consumer/payment-cancel";
     }
 
     /**
-     * 결제 진행중 시간초과 및 시스템 오류등 실패했을떄 보여지는 페이지
+     * 결제 진행중 시간초과 및 시스템 오류등 실패했을떄 보여지는 페이지, 결제 준비때 예약한 재고를 돌려줌
+     * @param partnerOrderId 결제 준비때 돌아올 주소에 붙인 주문 ID
+     * @param request 장바구니 ID(쿠키)를 읽을 요청
      * @return 결제 실패 안내 화면
      */
     @GetMapping("/payment/fail")
-    public String paymentFail() {
+    public String paymentFail(@RequestParam(value = "partner_order_id", required = false) String partnerOrderId,
+                              HttpServletRequest request) {
+        consumerService.cancelPayment(partnerOrderId, cartIdResolver.find(request));
         return "consumer/payment-fail";
     }
 }
\ No newline at end of file
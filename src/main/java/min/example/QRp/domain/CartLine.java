@@ -0,0 +1,29 @@
+package min.example.QRp.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 장바구니 한 줄 (cart.store=jdbc 일때 사용하는 cart_line 테이블)
+ * 수량은 엔티티를 읽어서 고치지 않고 JdbcCartStore 가 조건부 UPDATE 로 바로 바꿈
+ * 제품이 삭제되어도 장바구니 화면에서 알려줄 수 있도록 Product 를 참조하지 않고 ID 만 가지고 있음
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_line_product", columnNames = {"cartId", "productId"}))
+public class CartLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long lineId; // pk, 담은 순서
+
+    @Column(nullable = false, length = 64)
+    private String cartId;     // 장바구니 ID (쿠키)
+    private int productId;
+    private int quantity;
+    private LocalDateTime updatedAt;
+}
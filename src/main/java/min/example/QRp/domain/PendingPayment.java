@@ -0,0 +1,56 @@
+package min.example.QRp.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 결제 진행중 상태 (payment.state-store=jdbc 일때 사용하는 pending_payment, pending_payment_line 테이블)
+ * 결제 준비때 JdbcPaymentStateStore 가 한 줄과 주문 줄들을 넣고, 승인되면 승인 기록을 남기고, 취소되거나 만료되면 지움
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@Entity
+@Table(indexes = @Index(name = "idx_pending_payment_expires", columnList = "expiresAt"))
+public class PendingPayment {
+    @Id
+    @Column(length = 36)
+    private String partnerOrderId; // pk, 주문 ID
+
+    @Column(nullable = false, length = 64)
+    private String tid;            // 카카오페이 결제 고유번호
+
+    @Column(nullable = false, length = 64)
+    private String cartId;         // 결제한 장바구니 ID
+
+    private int totalAmount;       // 카카오페이에 보낸 결제 금액
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(length = 64)
+    private String approvedAid;       // 카카오페이 결제 승인 번호, 승인 전에는 null
+
+    @Column(length = 16)
+    private String paymentMethodType; // 승인된 결제수단 (CARD 또는 MONEY)
+
+    @ElementCollection
+    @CollectionTable(name = "pending_payment_line", joinColumns = @JoinColumn(name = "partnerOrderId"))
+    @OrderColumn(name = "lineNo")
+    private List<Line> lines = new ArrayList<>(); // 결제 준비때 고정한 주문 줄 (장바구니 순서)
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    public static class Line {
+        private int productId;
+        private String name;       // 결제 준비때 상품 이름
+        private int unitPrice;     // 결제 준비때 가격, 구매 기록의 주문가격
+        private int quantity;
+    }
+}
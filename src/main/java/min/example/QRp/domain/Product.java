@@ -1,17 +1,25 @@
 package min.example.QRp.domain;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import min.example.QRp.repository.ProductCacheInvalidator;
+import org.hibernate.annotations.DynamicUpdate;
 
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Getter
 @Entity
+@DynamicUpdate // 바뀐 컬럼만 UPDATE, 이름,가격만 고쳐도 읽어둔 quantity 를 다시 써서 그사이 차감된 재고를 되돌리지 않도록 함
+@EntityListeners(ProductCacheInvalidator.class) // 수정,삭제되면 제품 캐시에서 제거
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_product_name", columnNames = "name")) // 이름 조회,중복 검사,접두어 검색용 인덱스
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
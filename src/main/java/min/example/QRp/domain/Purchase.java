@@ -10,9 +10,12 @@ import java.util.List;
 @NoArgsConstructor(access =  AccessLevel.PROTECTED)
 @Getter
 @Entity
+@Table(indexes = @Index(name = "idx_purchase_date_id", columnList = "purchaseDate, purchaseId")) // 구매 내역 키셋 페이지네이션용
 public class Purchase {
+    // 시퀀스를 50개씩 미리 받아두므로 저장할때마다 키를 받으러 DB 에 가지 않고, INSERT 를 JDBC 배치로 묶을 수 있음
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_seq")
+    @SequenceGenerator(name = "purchase_seq", sequenceName = "purchase_seq", allocationSize = 50)
     private int  purchaseId; // pk
 
     @Enumerated(EnumType.STRING)
@@ -10,7 +10,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class PurchaseItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_item_seq")
+    @SequenceGenerator(name = "purchase_item_seq", sequenceName = "purchase_item_seq", allocationSize = 50)
     private int purchaseItemId; // pk
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -42,6 +43,21 @@ public class PurchaseItem {
         return purchaseItem;
     }
 
+    /** 정적 팩토리 메소드
+     * 영수증의 한 줄, 재고는 StockEngine 이 DB 에서 이미 차감했으므로 product 는 건드리지 않음
+     * @param product 구매할 제품
+     * @param orderPrice 제품 가격
+     * @param orderQuantity 구매할 제품 수량
+     * @return 구매한 purchaseItem 객체
+     */
+    public static PurchaseItem createFromReservedStock(Product product, int orderPrice, int orderQuantity) {
+        PurchaseItem purchaseItem = new PurchaseItem();
+        purchaseItem.product = product;
+        purchaseItem.orderPrice = orderPrice;
+        purchaseItem.orderQuantity = orderQuantity;
+        return purchaseItem;
+    }
+
     /** 연관관계 편의 메소드
      * purchaseItem을 purchase와 연결
      * @param purchase 이 항목이 속할 purchase 객체
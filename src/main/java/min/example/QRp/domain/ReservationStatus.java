@@ -0,0 +1,8 @@
+package min.example.QRp.domain;
+
+public enum ReservationStatus {
+    HELD,      // 결제 준비 후 재고를 잡아둔 상태
+    APPROVING, // 카카오페이 승인 API 를 호출중, 만료되어도 돌려주지 않음 (승인되었을 수 있음)
+    CONVERTED, // 결제 승인되어 구매로 전환됨
+    RELEASED   // 결제 취소,실패,만료로 재고를 돌려줌
+}
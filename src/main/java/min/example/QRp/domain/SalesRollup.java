@@ -0,0 +1,32 @@
+package min.example.QRp.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 시간대별, 제품별 판매 집계 (매출 리포트용)
+ * 구매,환불이 커밋될때 같은 트랜잭션에서 해당 칸에 바로 더해두므로 리포트는 원본 구매 내역을 읽지 않고 이 테이블만 읽음
+ * 제품이 삭제되어도 지난 매출은 남아야 하므로 Product 를 참조하지 않고 ID 만 가지고 있음
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_bucket", columnNames = {"salesDate", "salesHour", "productId"}))
+public class SalesRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int rollupId; // pk
+
+    private LocalDate salesDate;  // 판매일
+    private int salesHour;        // 판매 시간대 (0 ~ 23)
+    private int productId;
+
+    private long unitsSold;       // 판매 수량
+    private long revenue;         // 판매 금액 (주문가격 x 수량)
+    private long refundedUnits;   // 환불 수량 (환불한 시간대에 집계)
+    private long refundedAmount;  // 환불 금액
+}
@@ -0,0 +1,53 @@
+package min.example.QRp.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 카카오페이 결제 준비부터 승인까지 잡아둔 재고
+ * 재고는 예약할때 이미 Product 에서 차감되어 있고, 승인되면 그대로 구매가 되며 취소/실패/만료되면 다시 돌려줌
+ */
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_reservation_order_id", columnNames = "partnerOrderId"),
+        indexes = @Index(name = "idx_reservation_status_expires", columnList = "status, expiresAt")) // 만료된 HELD 예약 정리용
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int reservationId; // pk
+
+    private String partnerOrderId; // 카카오페이 결제 준비때 만든 주문 ID
+
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    private LocalDateTime expiresAt; // 이 시간까지 승인되지 않으면 재고를 돌려줌
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_reservation_line", joinColumns = @JoinColumn(name = "reservationId"))
+    @MapKeyColumn(name = "productId")
+    @Column(name = "quantity")
+    private Map<Integer, Integer> lines = new HashMap<>(); // <상품ID, 잡아둔 수량>
+
+    /** 정적 팩토리 메소드
+     * @param partnerOrderId 결제 주문 ID
+     * @param lines <상품ID, 잡아둘 수량>
+     * @param expiresAt 만료 시간
+     * @return HELD 상태의 예약
+     */
+    public static StockReservation hold(String partnerOrderId, Map<Integer, Integer> lines, LocalDateTime expiresAt) {
+        StockReservation reservation = new StockReservation();
+        reservation.partnerOrderId = partnerOrderId;
+        reservation.status = ReservationStatus.HELD;
+        reservation.expiresAt = expiresAt;
+        reservation.lines.putAll(lines);
+        return reservation;
+    }
+}
@@ -0,0 +1,20 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 일괄 환불 요청
+ * 구매 ID 목록을 주거나, 목록 없이 조건(제품, 기간)을 주면 조건에 맞는 환불되지 않은 구매를 모두 환불함
+ */
+@Getter
+@Setter
+public class BulkRefundRequestDto {
+    private List<Integer> purchaseIds; // 환불할 구매 ID 목록, 주면 조건은 쓰지 않음
+    private Integer productId;         // 이 제품이 들어있는 구매 (리콜 등)
+    private LocalDate from;            // 구매일 시작 (포함)
+    private LocalDate to;              // 구매일 종료 (포함)
+}
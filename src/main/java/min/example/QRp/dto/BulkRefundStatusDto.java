@@ -0,0 +1,31 @@
+package min.example.QRp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 일괄 환불 작업 진행 상황
+ */
+@Getter
+@AllArgsConstructor
+public class BulkRefundStatusDto {
+    private final String jobId;
+    private final Status status;
+    private final int total;           // 대상 구매 수 (대상을 찾기 전에는 0)
+    private final int processed;       // 처리한 구매 수
+    private final int refunded;        // 실제로 환불한 구매 수
+    private final int skipped;         // 없거나 이미 환불되어 건너뛴 구매 수
+    private final long restoredUnits;  // 복구한 재고 수량 합계
+    private final String error;        // 실패 사유, 실패하기 전까지 처리한 묶음은 이미 반영되어 있음
+    private final LocalDateTime createdAt;
+    private final LocalDateTime finishedAt;
+
+    public enum Status {
+        QUEUED,    // 앞 작업이 끝나길 기다림
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
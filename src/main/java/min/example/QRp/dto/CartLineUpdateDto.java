@@ -0,0 +1,28 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+/**
+ * 장바구니 API 응답, 바뀐 한 줄과 장바구니 합계만 돌려줌
+ * 화면은 이 값으로 해당 줄의 수량과 총 합계만 고치므로 장바구니 페이지 전체를 다시 그리지 않음
+ */
+@Getter
+public class CartLineUpdateDto {
+    private final int productId;
+    private final String name;
+    private final int price;
+    private final int quantity;     // 바뀐 뒤 수량, 장바구니에서 빠졌으면 0
+    private final int lineAmount;   // price x quantity
+    private final int totalAmount;  // 장바구니 총 합계
+    private final int lineCount;    // 장바구니에 남은 상품 종류 수
+
+    public CartLineUpdateDto(ProductResponseDto product, int quantity, int totalAmount, int lineCount) {
+        this.productId = product.getProductId();
+        this.name = product.getName();
+        this.price = product.getPrice();
+        this.quantity = quantity;
+        this.lineAmount = product.getPrice() * quantity;
+        this.totalAmount = totalAmount;
+        this.lineCount = lineCount;
+    }
+}
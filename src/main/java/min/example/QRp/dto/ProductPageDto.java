@@ -0,0 +1,33 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 제품 목록 한 페이지와 전체 페이지 정보
+ */
+@Getter
+public class ProductPageDto {
+    private final List<ProductResponseDto> products;
+    private final int page;        // 현재 페이지 (1부터 시작)
+    private final int size;        // 페이지 크기
+    private final long totalCount; // 검색 조건에 맞는 전체 제품 수
+    private final int totalPages;
+
+    public ProductPageDto(List<ProductResponseDto> products, int page, int size, long totalCount) {
+        this.products = products;
+        this.page = page;
+        this.size = size;
+        this.totalCount = totalCount;
+        this.totalPages = (int) ((totalCount + size - 1) / size);
+    }
+
+    public boolean isHasPrevious() {
+        return page > 1;
+    }
+
+    public boolean isHasNext() {
+        return page < totalPages;
+    }
+}
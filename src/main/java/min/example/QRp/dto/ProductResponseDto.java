@@ -11,9 +11,16 @@ public class ProductResponseDto {
     private final int quantity;
 
     public ProductResponseDto(Product product) {
-        this.productId = product.getProductId();
-        this.name = product.getName();
-        this.price = product.getPrice();
-        this.quantity = product.getQuantity();
+        this(product.getProductId(), product.getName(), product.getPrice(), product.getQuantity());
+    }
+
+    /**
+     * 조회 화면용 JPQL 생성자 표현식에서 사용 (엔티티를 거치지 않고 값으로 바로 만듦)
+     */
+    public ProductResponseDto(int productId, String name, int price, int quantity) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
     }
 }
@@ -0,0 +1,33 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+import min.example.QRp.domain.PurchaseState;
+
+import java.time.LocalDateTime;
+
+/**
+ * 구매 내역 내보내기와 구매 내역 화면의 한 줄 (구매 항목 단위)
+ * JPQL 생성자 표현식으로 바로 만들어지므로 엔티티를 영속성 컨텍스트에 올리지 않음
+ * 화면에서는 PurchaseResponseDto.fromRows 로 구매 단위로 묶어서 사용함
+ */
+@Getter
+public class PurchaseExportRow {
+    private final int purchaseId;
+    private final LocalDateTime purchaseDate;
+    private final PurchaseState state;
+    private final Integer productId;    // 구매 항목이 없는 구매면 null
+    private final String productName;
+    private final Integer orderPrice;
+    private final Integer orderQuantity;
+
+    public PurchaseExportRow(int purchaseId, LocalDateTime purchaseDate, PurchaseState state,
+                             Integer productId, String productName, Integer orderPrice, Integer orderQuantity) {
+        this.purchaseId = purchaseId;
+        this.purchaseDate = purchaseDate;
+        this.state = state;
+        this.productId = productId;
+        this.productName = productName;
+        this.orderPrice = orderPrice;
+        this.orderQuantity = orderQuantity;
+    }
+}
@@ -0,0 +1,30 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 구매 내역 한 페이지와 다음 페이지를 요청할 커서
+ */
+@Getter
+public class PurchasePageDto {
+    private final List<PurchaseResponseDto> purchases;
+    private final boolean hasNext;
+    private final LocalDateTime nextCursorDate; // 다음 페이지 요청시 cursorDate 로 전달
+    private final Integer nextCursorId;         // 다음 페이지 요청시 cursorId 로 전달
+
+    public PurchasePageDto(List<PurchaseResponseDto> purchases, boolean hasNext) {
+        this.purchases = purchases;
+        this.hasNext = hasNext;
+        if (hasNext) {
+            PurchaseResponseDto last = purchases.get(purchases.size() - 1);
+            this.nextCursorDate = last.getPurchaseDate();
+            this.nextCursorId = last.getPurchaseId();
+        } else {
+            this.nextCursorDate = null;
+            this.nextCursorId = null;
+        }
+    }
+}
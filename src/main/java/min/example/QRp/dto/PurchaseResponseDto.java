@@ -7,6 +7,7 @@ import min.example.QRp.domain.PurchaseItem;
 import min.example.QRp.domain.PurchaseState;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,17 +22,50 @@ public class PurchaseResponseDto {
     private final int totalAmount;
 
     public PurchaseResponseDto(Purchase purchase) {
-        this.purchaseId = purchase.getPurchaseId();
-        this.purchaseDate = purchase.getPurchaseDate();
-        this.state = purchase.getState();
-        this.purchaseItems = purchase.getPurchaseItems().stream()
-                .map(PurchaseItemDto::new)
-                .collect(Collectors.toList());
+        this(purchase.getPurchaseId(), purchase.getPurchaseDate(), purchase.getState(),
+                purchase.getPurchaseItems().stream()
+                        .map(PurchaseItemDto::new)
+                        .collect(Collectors.toList()));
+    }
+
+    private PurchaseResponseDto(int purchaseId, LocalDateTime purchaseDate, PurchaseState state, List<PurchaseItemDto> purchaseItems) {
+        this.purchaseId = purchaseId;
+        this.purchaseDate = purchaseDate;
+        this.state = state;
+        this.purchaseItems = purchaseItems;
         this.totalAmount = this.purchaseItems.stream()
                 .mapToInt(item -> item.getOrderPrice() * item.getOrderQuantity())
                 .sum();
     }
 
+    /**
+     * 구매 항목 단위 프로젝션 결과를 구매 단위로 묶음
+     * 같은 구매의 항목이 연달아 오도록 구매 ID 로 정렬된 행이어야 하고, 행 순서대로 구매 순서가 유지됨
+     * @param rows 구매 항목 한 줄씩 (항목이 없는 구매는 제품 칸이 null 인 한 줄)
+     * @return 구매 내역 목록
+     */
+    public static List<PurchaseResponseDto> fromRows(List<PurchaseExportRow> rows) {
+        List<PurchaseResponseDto> purchases = new ArrayList<>();
+        PurchaseExportRow first = null;
+        List<PurchaseItemDto> items = new ArrayList<>();
+        for (PurchaseExportRow row : rows) {
+            if (first == null || first.getPurchaseId() != row.getPurchaseId()) {
+                if (first != null) {
+                    purchases.add(new PurchaseResponseDto(first.getPurchaseId(), first.getPurchaseDate(), first.getState(), items));
+                }
+                first = row;
+                items = new ArrayList<>();
+            }
+            if (row.getProductId() != null) {
+                items.add(new PurchaseItemDto(row.getProductName(), row.getOrderPrice(), row.getOrderQuantity()));
+            }
+        }
+        if (first != null) {
+            purchases.add(new PurchaseResponseDto(first.getPurchaseId(), first.getPurchaseDate(), first.getState(), items));
+        }
+        return purchases;
+    }
+
     /**
      * 영수증의 각 항목을 표현하는 내부 DTO
      */
@@ -43,9 +77,13 @@ public class PurchaseResponseDto {
         private final int itemTotalAmount;
 
         public PurchaseItemDto(PurchaseItem item) {
-            this.productName = item.getProduct().getName();
-            this.orderPrice = item.getOrderPrice();
-            this.orderQuantity = item.getOrderQuantity();
+            this(item.getProduct().getName(), item.getOrderPrice(), item.getOrderQuantity());
+        }
+
+        public PurchaseItemDto(String productName, int orderPrice, int orderQuantity) {
+            this.productName = productName;
+            this.orderPrice = orderPrice;
+            this.orderQuantity = orderQuantity;
             this.itemTotalAmount = this.orderPrice * this.orderQuantity;
         }
     }
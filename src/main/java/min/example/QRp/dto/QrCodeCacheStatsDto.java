@@ -0,0 +1,25 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+@Getter
+public class QrCodeCacheStatsDto {
+    private final long hits;        // 캐시 적중 횟수
+    private final long misses;      // 캐시 실패(새로 렌더링) 횟수
+    private final long evictions;   // 용량 초과로 제거된 항목 수
+    private final int entries;      // 현재 보관중인 이미지 수
+    private final long usedBytes;   // 현재 사용중인 바이트
+    private final long maxBytes;    // 최대 사용 가능 바이트
+    private final double hitRate;   // 적중률 (0 ~ 1)
+
+    public QrCodeCacheStatsDto(long hits, long misses, long evictions, int entries, long usedBytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.usedBytes = usedBytes;
+        this.maxBytes = maxBytes;
+        long requests = hits + misses;
+        this.hitRate = requests == 0 ? 0 : (double) hits / requests;
+    }
+}
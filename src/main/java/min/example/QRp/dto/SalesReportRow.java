@@ -0,0 +1,54 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * 매출 리포트의 한 줄 (집계 구간 x 제품)
+ * JPQL 생성자 표현식으로 판매 집계 테이블에서 바로 만들어짐
+ */
+@Getter
+public class SalesReportRow {
+    private final LocalDate date;
+    private final Integer hour;          // 일별 집계면 null
+    private final int productId;
+    private final String productName;    // 삭제된 제품이면 null
+    private final long unitsSold;
+    private final long revenue;
+    private final long refundedUnits;
+    private final long refundedAmount;
+    private final long netRevenue;       // 판매 금액 - 환불 금액
+
+    /**
+     * 시간대별 집계 (집계 테이블 한 행)
+     */
+    public SalesReportRow(LocalDate date, int hour, int productId, String productName,
+                          long unitsSold, long revenue, long refundedUnits, long refundedAmount) {
+        this.date = date;
+        this.hour = hour;
+        this.productId = productId;
+        this.productName = productName;
+        this.unitsSold = unitsSold;
+        this.revenue = revenue;
+        this.refundedUnits = refundedUnits;
+        this.refundedAmount = refundedAmount;
+        this.netRevenue = revenue - refundedAmount;
+    }
+
+    /**
+     * 일별 집계 (하루치 시간대 행의 합)
+     */
+    public SalesReportRow(LocalDate date, int productId, String productName,
+                          Long unitsSold, Long revenue, Long refundedUnits, Long refundedAmount) {
+        this.date = date;
+        this.hour = null;
+        this.productId = productId;
+        this.productName = productName;
+        this.unitsSold = unitsSold;
+        this.revenue = revenue;
+        this.refundedUnits = refundedUnits;
+        this.refundedAmount = refundedAmount;
+        this.netRevenue = revenue - refundedAmount;
+    }
+}
@@ -0,0 +1,36 @@
+package min.example.QRp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 스캐너가 읽은 QR 묶음 (연결이 끊긴 동안 쌓아둔 스캔을 한번에 보낼 수 있음)
+ */
+@Getter
+@Setter
+public class ScanBatchRequestDto {
+    @NotEmpty
+    @Size(max = 500)
+    @Valid
+    private List<ScanDto> scans;
+
+    @Getter
+    @Setter
+    public static class ScanDto {
+        @Size(max = 64)
+        private String scanId;            // 단말이 붙인 스캔 ID, 같은 묶음을 다시 보내도 한번만 반영됨 (생략 가능)
+
+        @NotBlank
+        @Size(max = 512)
+        private String payload;           // QR 내용, 상품 ID 또는 .../consumer/cart/add/{상품 ID} 주소
+
+        private LocalDateTime scannedAt;  // 단말에서 읽은 시각, 같은 상품을 연달아 읽은 것을 한번으로 셀때 사용 (생략 가능)
+    }
+}
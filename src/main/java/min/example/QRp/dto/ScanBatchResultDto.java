@@ -0,0 +1,37 @@
+package min.example.QRp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 스캔 묶음 반영 결과, 상품별로 몇개를 읽어서 몇개를 담았는지와 담지 못한 스캔
+ */
+@Getter
+@AllArgsConstructor
+public class ScanBatchResultDto {
+    private final List<Line> lines;        // 스캔한 상품별 결과 (처음 읽은 순서)
+    private final List<Rejected> rejected; // 상품을 찾지 못한 스캔
+    private final int duplicates;          // 이미 받았거나 연달아 읽혀서 한번으로 센 스캔 수
+    private final int totalAmount;         // 장바구니 총 합계
+    private final int lineCount;           // 장바구니 상품 종류 수
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private final int productId;
+        private final String name;
+        private final int scanned;   // 중복을 뺀 스캔 수
+        private final int added;     // 실제로 담은 수량, 재고를 넘으면 scanned 보다 적음
+        private final int quantity;  // 담은 뒤 장바구니 수량
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Rejected {
+        private final String scanId;
+        private final String payload;
+        private final String reason;
+    }
+}
@@ -0,0 +1,22 @@
+package min.example.QRp.dto;
+
+import lombok.Getter;
+
+/**
+ * 전체 제품의 재고 현황 집계 (재고 메트릭에서 사용)
+ * JPQL 생성자 표현식으로 한번의 집계 쿼리로 만들어짐
+ */
+@Getter
+public class StockSummaryDto {
+    private final long products;        // 전체 제품 수
+    private final long outOfStock;      // 재고가 0 인 제품 수
+    private final long lowStock;        // 재고가 1 이상 기준 이하인 제품 수
+    private final long totalQuantity;   // 전체 재고 수량 합
+
+    public StockSummaryDto(Long products, Long outOfStock, Long lowStock, Long totalQuantity) {
+        this.products = products == null ? 0 : products;
+        this.outOfStock = outOfStock == null ? 0 : outOfStock;
+        this.lowStock = lowStock == null ? 0 : lowStock;
+        this.totalQuantity = totalQuantity == null ? 0 : totalQuantity;
+    }
+}
@@ -1,19 +1,29 @@
 package min.example.QRp.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.HashMap;
 import java.util.Map;
 
+@Slf4j
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class ExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
     /**
      * DTO 유효성 검사 실패시 예외를 처리합니다.
      * @param ex 유효성 검사 실패 내용을 담고있는 예외 객체
@@ -27,6 +37,7 @@ public class ExceptionHandler {
             String errorMessage = error.getDefaultMessage();
             errors.put(fieldName, errorMessage);
         });
+        count(ex, HttpStatus.BAD_REQUEST);
         return ResponseEntity.badRequest().body(errors);
     }
 
@@ -39,6 +50,7 @@ public class ExceptionHandler {
     public ResponseEntity<Map<String, String>> handleIllegalStateException(IllegalStateException ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
+        count(ex, HttpStatus.BAD_REQUEST);
         return ResponseEntity.badRequest().body(error);
     }
 
@@ -51,6 +63,7 @@ public class ExceptionHandler {
     public ResponseEntity<Map<String, String>> handleEntityNotFoundException(EntityNotFoundException ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
+        count(ex, HttpStatus.NOT_FOUND);
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
@@ -61,12 +74,39 @@ public class ExceptionHandler {
      */
     @org.springframework.web.bind.annotation.ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<Map<String, String>> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
-        System.err.println("데이터 무결성 예외 발생: " + ex.getMessage());
+        log.warn("데이터 무결성 예외 발생: {}", ex.getMessage());
+        count(ex, HttpStatus.CONFLICT);
         Map<String, String> error = new HashMap<>();
         error.put("error", "데이터 무결성 오류: 이 상품을 참조하는 구매 내역이 있어 삭제할 수 없습니다.");
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
+    /**
+     * 동시 처리 상한에 걸려 요청을 받지 못했을때의 예외를 처리합니다
+     * @param ex 거절 사유를 담고있는 예외 객체
+     * @return 503 에러 메세지, 1초 뒤 다시 시도하도록 Retry-After 헤더를 붙임
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(ServerBusyException.class)
+    public ResponseEntity<Map<String, String>> handleServerBusyException(ServerBusyException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        count(ex, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    /**
+     * 업로드한 파일이 spring.servlet.multipart 상한보다 클때의 예외를 처리합니다
+     * @param ex 업로드 크기 초과 예외 객체
+     * @return 413 에러 메세지
+     */
+    @org.springframework.web.bind.annotation.ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Map<String, String>> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "업로드한 파일이 너무 큽니다.");
+        count(ex, HttpStatus.PAYLOAD_TOO_LARGE);
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
+    }
+
     /**
      * 위에서 찾지 못한 그 외 모든 예외를 처리를 합니다. 보통 서버 내부 오류이다.
      * @param ex 발생한 알 수 없는 예외 객체
@@ -76,7 +116,19 @@ public class ExceptionHandler {
     public ResponseEntity<Map<String, String>> handleGlobalException(Exception ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", "서버 내부 오류가 발생했습니다: " + ex.getMessage());
-        ex.printStackTrace(); // 서버 로그에 실제 오류 스택을 출력
+        log.error("처리되지 않은 예외 발생", ex); // 서버 로그에 실제 오류 스택을 출력
+        count(ex, HttpStatus.INTERNAL_SERVER_ERROR);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
+
+    /**
+     * 예외 종류, 응답 상태별 발생 횟수 기록 (qrp.errors)
+     */
+    private void count(Exception ex, HttpStatus status) {
+        Counter.builder("qrp.errors")
+                .tag("exception", ex.getClass().getSimpleName())
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+                .increment();
+    }
 }
\ No newline at end of file
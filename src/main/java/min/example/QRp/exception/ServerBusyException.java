@@ -0,0 +1,16 @@
+package min.example.QRp.exception;
+
+import java.io.Serial;
+
+/**
+ * 서버가 요청을 잠시 받을 수 없을때 (동시 처리 상한에 걸림) 발생하는 예외, 503 으로 응답하고 잠시 후 다시 시도하면 됨
+ */
+public class ServerBusyException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
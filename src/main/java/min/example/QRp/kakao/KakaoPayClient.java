@@ -0,0 +1,223 @@
+package min.example.QRp.kakao;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
+import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 카카오페이 결제 API 호출 클라이언트
+ * 커넥션 풀(Apache HttpClient)로 연결을 재사용(keep-alive)하므로 결제마다 새로 TCP/TLS 연결을 맺지 않고,
+ * 연결/응답 시간 제한이 있어서 카카오페이가 느려져도 요청 스레드가 끝없이 묶이지 않음
+ * 결제 준비(ready)는 결제가 일어나지 않으므로 네트워크 오류,5xx 에 재시도하고,
+ * 결제 승인(approve)은 돈이 나가므로 재시도하지 않는 대신 같은 tid 로는 한번만 호출되도록 함
+ * 결제 취소(cancel)는 같은 결제를 두번 취소해도 두번째는 거절될 뿐이므로 결제 준비처럼 재시도함
+ */
+@Component
+public class KakaoPayClient {
+
+    private static final String KAKAO_READY_URL = "/v1/payment/ready";
+    private static final String KAKAO_APPROVE_URL = "/v1/payment/approve";
+    private static final String KAKAO_CANCEL_URL = "/v1/payment/cancel";
+    private static final int MAX_APPROVED_ENTRIES = 1024; // 승인 결과를 기억해둘 최대 결제 수
+
+    private final CloseableHttpClient httpClient;
+    private final RestClient restClient;
+    private final int readyMaxAttempts;
+    private final Duration retryBackoff;
+
+    private final Map<String, CompletableFuture<KakaoApproveResponseDto>> approving = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, KakaoApproveResponseDto> approved = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KakaoApproveResponseDto> eldest) {
+            return size() > MAX_APPROVED_ENTRIES;
+        }
+    };
+
+    public KakaoPayClient(RestClient.Builder restClientBuilder,
+                          @Value("${kakao.api-url}") String kakaoApiUrl,
+                          @Value("${kakao.admin-key}") String kakaoAdminKey,
+                          @Value("${kakao.client.connect-timeout:2s}") Duration connectTimeout,
+                          @Value("${kakao.client.read-timeout:5s}") Duration readTimeout,
+                          @Value("${kakao.client.max-connections:50}") int maxConnections,
+                          @Value("${kakao.client.ready-max-attempts:3}") int readyMaxAttempts,
+                          @Value("${kakao.client.retry-backoff:200ms}") Duration retryBackoff) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections) // 카카오페이 한곳만 호출하므로 전체 = 호스트당
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries() // 재시도는 아래에서 API 별로 직접 결정함
+                .build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout(connectTimeout); // 풀이 가득 찼을때 연결을 기다리는 최대 시간
+        requestFactory.setReadTimeout(readTimeout);
+
+        this.restClient = restClientBuilder
+                .requestFactory(requestFactory)
+                .baseUrl(kakaoApiUrl)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, kakaoAdminKey)
+                .build();
+        this.readyMaxAttempts = Math.max(1, readyMaxAttempts);
+        this.retryBackoff = retryBackoff;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * 결제 준비 API 호출, 연결 실패,시간초과,5xx 응답이면 잠시 기다렸다가 다시 시도함 (기다리는 시간은 매번 2배)
+     * @param body 결제 준비 요청 파라미터
+     * @return 결제 고유번호(tid)와 결제 페이지 URL
+     */
+    @Timed("qrp.kakao.api")
+    public KakaoReadyResponseDto ready(MultiValueMap<String, String> body) {
+        return postWithRetry(KAKAO_READY_URL, body, KakaoReadyResponseDto.class);
+    }
+
+    /**
+     * 결제 승인 API 호출
+     * 같은 tid 로 동시에 여러번 호출되면 (승인 화면 새로고침, 중복 요청 등) 실제 호출은 한번만 하고 결과를 같이 받음
+     * 성공한 결과는 기억해뒀다가 다시 요청되면 API 를 부르지 않고 그대로 돌려줌, 실패하면 기억하지 않으므로 다시 시도할 수 있음
+     * 기억한 결과는 이 서버 메모리에만 있는 빠른 경로이고, 카카오페이가 승인했다는 뜻일 뿐 구매가 기록되었다는 뜻은 아님
+     * (같은 결제의 중복 승인 요청에는 서버와 상관없이 PaymentStateStore 에 남긴 승인 기록으로 응답함)
+     * @param tid 결제 고유번호
+     * @param body 결제 승인 요청 파라미터
+     * @return 결제 승인 결과
+     */
+    @Timed("qrp.kakao.api")
+    public KakaoApproveResponseDto approve(String tid, MultiValueMap<String, String> body) {
+        Optional<KakaoApproveResponseDto> done = findApproved(tid);
+        if (done.isPresent()) {
+            return done.get();
+        }
+
+        CompletableFuture<KakaoApproveResponseDto> mine = new CompletableFuture<>();
+        CompletableFuture<KakaoApproveResponseDto> inFlight = approving.putIfAbsent(tid, mine);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+
+        try {
+            KakaoApproveResponseDto response = post(KAKAO_APPROVE_URL, body, KakaoApproveResponseDto.class);
+            if (response != null) {
+                synchronized (approved) {
+                    approved.put(tid, response);
+                }
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            approving.remove(tid);
+        }
+    }
+
+    /**
+     * 결제 취소 API 호출 (승인은 되었지만 구매를 기록하지 못한 결제를 되돌릴때), 결제 준비처럼 재시도함
+     * @param tid 결제 고유번호
+     * @param body 결제 취소 요청 파라미터 (cid, tid, cancel_amount, cancel_tax_free_amount)
+     */
+    @Timed("qrp.kakao.api")
+    public void cancel(String tid, MultiValueMap<String, String> body) {
+        postWithRetry(KAKAO_CANCEL_URL, body, Void.class);
+        synchronized (approved) {
+            approved.remove(tid);
+        }
+    }
+
+    /**
+     * 이미 승인된 결제의 승인 결과 조회, 이 서버가 카카오페이 승인을 받은 결제만 있음
+     * @param tid 결제 고유번호
+     * @return 승인 결과, 승인된 적이 없으면 비어있음
+     */
+    public Optional<KakaoApproveResponseDto> findApproved(String tid) {
+        synchronized (approved) {
+            return Optional.ofNullable(approved.get(tid));
+        }
+    }
+
+    /**
+     * 연결 실패,시간초과,5xx 응답이면 잠시 기다렸다가 다시 시도함 (기다리는 시간은 매번 2배)
+     */
+    private <T> T postWithRetry(String uri, MultiValueMap<String, String> body, Class<T> responseType) {
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= readyMaxAttempts; attempt++) {
+            try {
+                return post(uri, body, responseType);
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                lastError = e;
+                if (attempt < readyMaxAttempts) {
+                    sleep(retryBackoff.multipliedBy(1L << (attempt - 1)));
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    private <T> T post(String uri, MultiValueMap<String, String> body, Class<T> responseType) {
+        return restClient.post()
+                .uri(uri)
+                .contentType(new MediaType(MediaType.APPLICATION_FORM_URLENCODED, StandardCharsets.UTF_8))
+                .body(body)
+                .retrieve()
+                .body(responseType);
+    }
+
+    private static KakaoApproveResponseDto join(CompletableFuture<KakaoApproveResponseDto> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("카카오페이 재시도 대기 중 중단되었습니다.");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package min.example.QRp.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import min.example.QRp.cart.CartStore;
+import org.springframework.stereotype.Component;
+
+/**
+ * 장바구니 크기 게이지 (qrp.cart.*)
+ * 장바구니는 세션이 아니라 CartStore 에 있으므로 수집할때 저장소의 합계를 읽음
+ * 세션이 만료되면 CartSessionListener 가 장바구니를 지우므로 만료된 세션은 세지 않음
+ */
+@Component
+public class CartSessionMetrics implements MeterBinder {
+
+    private final CartStore cartStore;
+
+    public CartSessionMetrics(CartStore cartStore) {
+        this.cartStore = cartStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("qrp.cart.sessions", cartStore, store -> store.summary().carts())
+                .description("장바구니가 비어있지 않은 세션 수")
+                .register(registry);
+        Gauge.builder("qrp.cart.lines", cartStore, store -> store.summary().lines())
+                .description("모든 장바구니에 담긴 상품 종류 수 합계")
+                .register(registry);
+        Gauge.builder("qrp.cart.items", cartStore, store -> store.summary().items())
+                .description("모든 장바구니에 담긴 상품 수량 합계")
+                .register(registry);
+    }
+}
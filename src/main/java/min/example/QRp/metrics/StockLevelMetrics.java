@@ -0,0 +1,59 @@
+package min.example.QRp.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import min.example.QRp.dto.StockSummaryDto;
+import min.example.QRp.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 재고 현황 게이지 (qrp.stock.*)
+ * 제품마다 게이지를 만들면 제품 수만큼 시계열이 늘어나므로 전체 합계와 품절/재고부족 제품 수만 내보냄
+ * 수집할때마다 게이지 4개가 각자 쿼리하지 않도록 집계 결과를 refresh 간격동안 재사용함
+ */
+@Component
+public class StockLevelMetrics implements MeterBinder {
+
+    private final ProductRepository productRepository;
+    private final int lowStockThreshold;
+    private final long refreshNanos;
+
+    private StockSummaryDto summary;
+    private long refreshedAt;
+
+    public StockLevelMetrics(ProductRepository productRepository,
+                             @Value("${stock.low-threshold:5}") int lowStockThreshold,
+                             @Value("${stock.metrics-refresh:10s}") Duration refresh) {
+        this.productRepository = productRepository;
+        this.lowStockThreshold = lowStockThreshold;
+        this.refreshNanos = refresh.toNanos();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "qrp.stock.products", "전체 제품 수", StockSummaryDto::getProducts);
+        gauge(registry, "qrp.stock.out_of_stock", "재고가 0 인 제품 수", StockSummaryDto::getOutOfStock);
+        gauge(registry, "qrp.stock.low", "재고가 " + lowStockThreshold + "개 이하인 제품 수", StockSummaryDto::getLowStock);
+        gauge(registry, "qrp.stock.quantity", "전체 재고 수량", StockSummaryDto::getTotalQuantity);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<StockSummaryDto> value) {
+        Gauge.builder(name, this, metrics -> value.applyAsDouble(metrics.summary()))
+                .description(description)
+                .register(registry);
+    }
+
+    private synchronized StockSummaryDto summary() {
+        long now = System.nanoTime();
+        if (summary == null || now - refreshedAt >= refreshNanos) {
+            summary = productRepository.summarizeStock(lowStockThreshold);
+            refreshedAt = now;
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,77 @@
+package min.example.QRp.payment;
+
+import min.example.QRp.dto.ProductResponseDto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 결제 준비때 고정한 결제 내용 (제품, 가격, 이름, 수량, 총액)
+ * 카카오페이에 보낸 금액과 상품명을 이 값으로 만들고, 승인때 구매 기록도 이 가격으로 만드므로
+ * 그사이 제품 가격이 바뀌어도 결제한 금액과 구매 기록의 주문가격이 어긋나지 않고, 승인때 제품을 다시 읽지 않음
+ * @param lines 장바구니 순서대로의 주문 줄
+ * @param totalAmount 가격 x 수량의 합 (카카오페이 total_amount)
+ */
+public record CheckoutSnapshot(List<Line> lines, int totalAmount) {
+
+    public CheckoutSnapshot {
+        if (lines.isEmpty()) {
+            throw new IllegalStateException("장바구니가 비어있습니다.");
+        }
+        lines = List.copyOf(lines);
+    }
+
+    /**
+     * 장바구니와 조회한 제품으로 스냅샷 생성
+     * @param cart <상품ID, 구매수량>, 순서 유지
+     * @param products cart 의 모든 제품 <상품ID, 제품 정보>
+     * @return 가격과 총액이 고정된 스냅샷
+     */
+    public static CheckoutSnapshot of(Map<Integer, Integer> cart, Map<Integer, ProductResponseDto> products) {
+        List<Line> lines = new ArrayList<>();
+        int totalAmount = 0;
+        for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
+            ProductResponseDto product = products.get(entry.getKey());
+            lines.add(new Line(entry.getKey(), product.getName(), product.getPrice(), entry.getValue()));
+            totalAmount = Math.addExact(totalAmount, Math.multiplyExact(product.getPrice(), entry.getValue()));
+        }
+        return new CheckoutSnapshot(lines, totalAmount);
+    }
+
+    /**
+     * @return 카카오페이 상품명, 첫 상품 이름 (여러 종류면 "외 N건")
+     */
+    public String itemName() {
+        String itemName = lines.get(0).name();
+        return lines.size() > 1 ? itemName + " 외 " + (lines.size() - 1) + "건" : itemName;
+    }
+
+    /**
+     * @return 전체 수량
+     */
+    public int totalQuantity() {
+        return lines.stream().mapToInt(Line::quantity).sum();
+    }
+
+    /**
+     * @return <상품ID, 수량> (재고 예약과 비교용)
+     */
+    public Map<Integer, Integer> quantities() {
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : lines) {
+            quantities.put(line.productId(), line.quantity());
+        }
+        return quantities;
+    }
+
+    /**
+     * @param productId 상품 ID
+     * @param name 결제 준비때 상품 이름
+     * @param unitPrice 결제 준비때 가격, 구매 기록의 주문가격이 됨
+     * @param quantity 수량
+     */
+    public record Line(int productId, String name, int unitPrice, int quantity) {
+    }
+}
@@ -0,0 +1,69 @@
+package min.example.QRp.payment;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 서버 메모리에 보관하는 결제 상태 저장소 (payment.state-store=memory, 기본)
+ * 서버 한대로 운영하거나 테스트할때 사용, 여러 서버가 같이 써야 하면 JdbcPaymentStateStore 를 사용함
+ */
+@Component
+@ConditionalOnProperty(name = "payment.state-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPaymentStateStore implements PaymentStateStore {
+
+    private final Map<String, PaymentState> states = new ConcurrentHashMap<>(); // 주문 ID -> 결제 상태
+
+    @Override
+    public void save(PaymentState state) {
+        states.put(state.partnerOrderId(), state);
+    }
+
+    @Override
+    public Optional<PaymentState> find(String partnerOrderId) {
+        PaymentState state = states.get(partnerOrderId);
+        if (state == null || state.isExpired(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(state);
+    }
+
+    @Override
+    public void markApproved(String partnerOrderId, Approval approval) {
+        afterCommit(() -> states.computeIfPresent(partnerOrderId, (id, state) -> state.withApproval(approval)));
+    }
+
+    @Override
+    public void remove(String partnerOrderId) {
+        afterCommit(() -> states.remove(partnerOrderId));
+    }
+
+    @Override
+    public int removeExpired(LocalDateTime now) {
+        int before = states.size();
+        states.values().removeIf(state -> state.isExpired(now));
+        return Math.max(before - states.size(), 0);
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋된 뒤에 바꿈 (JDBC 저장소처럼 롤백되면 바뀌지 않아서 다시 승인할 수 있음)
+     */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+            return;
+        }
+        change.run();
+    }
+}
@@ -0,0 +1,95 @@
+package min.example.QRp.payment;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DB 테이블(pending_payment, pending_payment_line)에 보관하는 결제 상태 저장소 (payment.state-store=jdbc)
+ * 여러 서버가 같은 DB 를 보므로 결제 준비와 승인을 서로 다른 서버가 처리해도 됨
+ * 주문 ID 가 키이므로 조회,삭제는 PK 로 한 줄과 그 주문 줄만 읽고 씀
+ * 승인 기록은 같은 줄의 approved_aid, payment_method_type 에 남기므로 승인 요청이 다른 서버로 다시 와도 보임
+ * 상태와 주문 줄은 함께 저장,삭제되도록 한 트랜잭션에서 씀
+ */
+@Component
+@Timed("qrp.repository")
+@ConditionalOnProperty(name = "payment.state-store", havingValue = "jdbc")
+public class JdbcPaymentStateStore implements PaymentStateStore {
+
+    private static final String DELETE_EXPIRED_LINES = "delete from pending_payment_line where partner_order_id in "
+            + "(select partner_order_id from pending_payment where expires_at <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcPaymentStateStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void save(PaymentState state) {
+        CheckoutSnapshot snapshot = state.snapshot();
+        jdbcTemplate.update("insert into pending_payment (partner_order_id, tid, cart_id, total_amount, expires_at) values (?, ?, ?, ?, ?)",
+                state.partnerOrderId(), state.tid(), state.cartId(), snapshot.totalAmount(), state.expiresAt());
+        List<Object[]> lines = new ArrayList<>();
+        for (int i = 0; i < snapshot.lines().size(); i++) {
+            CheckoutSnapshot.Line line = snapshot.lines().get(i);
+            lines.add(new Object[]{state.partnerOrderId(), i, line.productId(), line.name(), line.unitPrice(), line.quantity()});
+        }
+        jdbcTemplate.batchUpdate("insert into pending_payment_line (partner_order_id, line_no, product_id, name, unit_price, quantity) "
+                + "values (?, ?, ?, ?, ?, ?)", lines);
+    }
+
+    @Override
+    public Optional<PaymentState> find(String partnerOrderId) {
+        List<Header> headers = jdbcTemplate.query(
+                "select tid, cart_id, total_amount, expires_at, approved_aid, payment_method_type from pending_payment "
+                        + "where partner_order_id = ? and expires_at > ?",
+                (rs, rowNum) -> new Header(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getTimestamp(4).toLocalDateTime(),
+                        rs.getString(5) == null ? null : new Approval(rs.getString(5), rs.getString(6))),
+                partnerOrderId, LocalDateTime.now());
+        if (headers.isEmpty()) {
+            return Optional.empty();
+        }
+        Header header = headers.get(0);
+        List<CheckoutSnapshot.Line> lines = jdbcTemplate.query("select product_id, name, unit_price, quantity from pending_payment_line "
+                        + "where partner_order_id = ? order by line_no",
+                (rs, rowNum) -> new CheckoutSnapshot.Line(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4)),
+                partnerOrderId);
+        if (lines.isEmpty()) {
+            return Optional.empty(); // 만료 정리와 겹쳐서 주문 줄만 먼저 지워진 경우
+        }
+        return Optional.of(new PaymentState(partnerOrderId, header.tid(), header.cartId(),
+                new CheckoutSnapshot(lines, header.totalAmount()), header.expiresAt(), header.approval()));
+    }
+
+    @Override
+    public void markApproved(String partnerOrderId, Approval approval) {
+        jdbcTemplate.update("update pending_payment set approved_aid = ?, payment_method_type = ? where partner_order_id = ?",
+                approval.aid(), approval.paymentMethodType(), partnerOrderId);
+    }
+
+    @Override
+    @Transactional
+    public void remove(String partnerOrderId) {
+        jdbcTemplate.update("delete from pending_payment_line where partner_order_id = ?", partnerOrderId);
+        jdbcTemplate.update("delete from pending_payment where partner_order_id = ?", partnerOrderId);
+    }
+
+    @Override
+    @Transactional
+    public int removeExpired(LocalDateTime now) {
+        jdbcTemplate.update(DELETE_EXPIRED_LINES, now);
+        return jdbcTemplate.update("delete from pending_payment where expires_at <= ?", now);
+    }
+
+    private record Header(String tid, String cartId, int totalAmount, LocalDateTime expiresAt, Approval approval) {
+    }
+}
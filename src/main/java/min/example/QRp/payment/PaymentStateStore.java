@@ -0,0 +1,88 @@
+package min.example.QRp.payment;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 결제 진행중 상태 저장소 (결제 준비 ~ 승인,취소 사이)
+ * 결제 준비때 받은 TID, 장바구니 ID 와 결제 내용 스냅샷을 세션이 아니라 주문 ID(partner_order_id)로 보관하므로
+ * 카카오페이에서 돌아오는 승인,취소 요청이 결제 준비를 처리한 서버가 아닌 다른 서버로 가도 이어서 처리할 수 있음
+ * 승인된 결제는 바로 지우지 않고 승인 기록을 남겨두었다가 만료때 지우므로, 같은 결제의 승인 요청이 다시 와도 (다른 서버로 가도) 같은 성공 응답을 줄 수 있음
+ *
+ * payment.state-store=memory(기본) 이면 InMemoryPaymentStateStore, payment.state-store=jdbc 면 DB 테이블(pending_payment)에 보관하는 JdbcPaymentStateStore 를 사용함
+ * 서버를 여러대 띄울때는 jdbc 를 사용해야 함
+ */
+public interface PaymentStateStore {
+
+    /**
+     * 결제 준비 후 상태 저장
+     * @param state 주문 ID, TID, 장바구니 ID, 결제 내용, 만료시각
+     */
+    void save(PaymentState state);
+
+    /**
+     * 주문 ID 로 결제 상태 조회, 만료된 상태는 조회되지 않음
+     * @param partnerOrderId 주문 ID
+     * @return 결제 상태, 없거나 만료되었으면 빈 Optional
+     */
+    Optional<PaymentState> find(String partnerOrderId);
+
+    /**
+     * 결제 상태에 승인 기록을 남김, 구매 기록과 같은 트랜잭션에서 호출하면 함께 커밋되거나 함께 롤백됨
+     * @param partnerOrderId 주문 ID
+     * @param approval 카카오페이 승인 결과
+     */
+    void markApproved(String partnerOrderId, Approval approval);
+
+    /**
+     * 승인,취소가 끝난 결제 상태 삭제
+     * @param partnerOrderId 주문 ID
+     */
+    void remove(String partnerOrderId);
+
+    /**
+     * 만료시각이 지난 결제 상태 삭제 (승인,취소 요청이 돌아오지 않은 결제)
+     * @param now 기준 시각
+     * @return 삭제한 수
+     */
+    int removeExpired(LocalDateTime now);
+
+    /**
+     * @param partnerOrderId 주문 ID (카카오페이 partner_order_id)
+     * @param tid 카카오페이 결제 고유번호
+     * @param cartId 결제한 장바구니 ID (카카오페이 partner_user_id)
+     * @param snapshot 결제 준비때 고정한 제품, 가격, 수량, 총액 (승인때 이 값으로 구매 기록을 만듦)
+     * @param expiresAt 만료시각, 이후에는 승인할 수 없음
+     * @param approval 승인 기록, 아직 승인되지 않았으면 null
+     */
+    record PaymentState(String partnerOrderId, String tid, String cartId, CheckoutSnapshot snapshot, LocalDateTime expiresAt,
+                        Approval approval) {
+
+        /**
+         * 결제 준비 직후의 (승인되지 않은) 상태
+         */
+        public PaymentState(String partnerOrderId, String tid, String cartId, CheckoutSnapshot snapshot, LocalDateTime expiresAt) {
+            this(partnerOrderId, tid, cartId, snapshot, expiresAt, null);
+        }
+
+        public boolean isExpired(LocalDateTime now) {
+            return !expiresAt.isAfter(now);
+        }
+
+        public boolean isApproved() {
+            return approval != null;
+        }
+
+        public PaymentState withApproval(Approval approval) {
+            return new PaymentState(partnerOrderId, tid, cartId, snapshot, expiresAt, approval);
+        }
+    }
+
+    /**
+     * 카카오페이 승인 결과 중 같은 결제의 승인 요청에 다시 돌려줄 값 (tid, 상품명은 결제 상태에 있음)
+     * @param aid 결제 승인 번호
+     * @param paymentMethodType CARD 또는 MONEY
+     */
+    record Approval(String aid, String paymentMethodType) {
+    }
+}
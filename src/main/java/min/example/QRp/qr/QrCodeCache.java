@@ -0,0 +1,155 @@
+package min.example.QRp.qr;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import min.example.QRp.dto.QrCodeCacheStatsDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 렌더링이 끝난 QR 코드 이미지(byte[])를 메모리에 보관하는 캐시
+ * (제품 ID, 크기, 포맷) 을 키로 사용하고, 전체 바이트 수가 최대치를 넘으면 가장 오래 사용되지 않은 항목부터 제거함(LRU)
+ * 메트릭으로 적중/실패 횟수, 사용량과 캐시에 없어서 실제로 렌더링한 시간(qrp.qr.render)을 내보냄
+ */
+@Component
+public class QrCodeCache implements MeterBinder {
+
+    // byte[] 헤더, 키 객체, LinkedHashMap 엔트리 등 이미지 외에 항목 하나가 차지하는 대략적인 크기
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<CacheKey, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true); // 접근 순서 유지
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile MeterRegistry meterRegistry; // 메트릭에 등록되기 전(단위 테스트 등)에는 null
+
+    public QrCodeCache(@Value("${qr.cache.max-bytes:4194304}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 캐시에 있으면 그대로 반환하고, 없으면 renderer 로 렌더링한 뒤 저장
+     * 렌더링은 락 밖에서 수행하므로 다른 요청의 캐시 조회를 막지 않음
+     * @param productId 제품 ID
+     * @param size 이미지 가로,세로 크기(px)
+     * @param format 이미지 포맷
+     * @param renderer 캐시에 없을때 이미지를 만들어낼 함수
+     * @return QR 코드 이미지 (반환된 배열은 캐시와 공유되므로 수정하면 안됨)
+     * @throws Exception renderer 가 이미지를 만드는데 실패할 경우
+     */
+    public byte[] get(int productId, int size, QrImageFormat format, Callable<byte[]> renderer) throws Exception {
+        CacheKey key = new CacheKey(productId, size, format);
+
+        synchronized (entries) {
+            byte[] cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        byte[] rendered = renderer.call();
+        recordRender(format, System.nanoTime() - start);
+        put(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * 해당 제품의 모든 크기,포맷 이미지를 캐시에서 제거 (제품 삭제 시 사용)
+     * @param productId 제거할 제품 ID
+     */
+    public void evict(int productId) {
+        synchronized (entries) {
+            Iterator<Map.Entry<CacheKey, byte[]>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, byte[]> entry = iterator.next();
+                if (entry.getKey().productId() == productId) {
+                    currentBytes -= weigh(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 캐시 전체 비우기
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            currentBytes = 0;
+        }
+    }
+
+    /**
+     * 캐시 적중/실패 횟수와 현재 사용량
+     * @return 캐시 통계
+     */
+    public QrCodeCacheStatsDto stats() {
+        synchronized (entries) {
+            return new QrCodeCacheStatsDto(hits.get(), misses.get(), evictions.get(), entries.size(), currentBytes, maxBytes);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("qrp.qr.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("qrp.qr.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("qrp.qr.cache.evictions", evictions, AtomicLong::get).register(registry);
+        Gauge.builder("qrp.qr.cache.bytes", this, cache -> cache.stats().getUsedBytes()).baseUnit("bytes").register(registry);
+        Gauge.builder("qrp.qr.cache.entries", this, cache -> cache.stats().getEntries()).register(registry);
+        this.meterRegistry = registry;
+    }
+
+    private void recordRender(QrImageFormat format, long nanos) {
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder("qrp.qr.render").tag("format", format.name()).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void put(CacheKey key, byte[] image) {
+        long weight = weigh(image);
+        if (weight > maxBytes) {
+            return; // 한 장이 캐시 전체보다 크면 보관하지 않음
+        }
+
+        synchronized (entries) {
+            byte[] previous = entries.put(key, image);
+            if (previous != null) {
+                currentBytes -= weigh(previous); // 동시에 같은 키를 렌더링한 경우
+            }
+            currentBytes += weight;
+
+            Iterator<Map.Entry<CacheKey, byte[]>> iterator = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<CacheKey, byte[]> eldest = iterator.next();
+                currentBytes -= weigh(eldest.getValue());
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long weigh(byte[] image) {
+        return (long) image.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private record CacheKey(int productId, int size, QrImageFormat format) {
+    }
+}
@@ -0,0 +1,150 @@
+package min.example.QRp.qr;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import min.example.QRp.exception.ServerBusyException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 카메라로 찍은 사진(JPEG, PNG)에서 QR 코드 내용을 읽음 (키오스크가 디코딩을 서버에 맡길때)
+ * MultiFormatReader 는 스레드에 안전하지 않으므로 maxConcurrent 개만 만들어 풀에 두고 빌려 씀
+ * 풀 크기가 동시에 디코딩하는 요청 수의 상한이고, maxWait 안에 빌리지 못하면 바로 ServerBusyException(503)으로 거절해서
+ * 큰 사진이 몰려도 디코딩이 CPU 와 요청 스레드를 다 차지해 결제 요청이 밀리지 않음
+ * 사진은 가로,세로 중 긴 쪽이 maxDimension 이하가 되도록 읽는 단계에서 건너뛰며 읽으므로(subsampling)
+ * 원본 해상도 전체를 메모리에 풀지 않고, 이진화(HybridBinarizer)도 줄어든 이미지로 함
+ */
+@Component
+public class QrFrameDecoder implements MeterBinder {
+
+    private static final Map<DecodeHintType, Object> HINTS = Map.of(
+            DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+
+    private final BlockingQueue<MultiFormatReader> readers;
+    private final Duration maxWait;
+    private final int maxDimension;
+    private final long maxSourcePixels;
+
+    private final AtomicLong found = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+
+    public QrFrameDecoder(@Value("${scan.decode.max-concurrent:2}") int maxConcurrent,
+                          @Value("${scan.decode.max-wait:200ms}") Duration maxWait,
+                          @Value("${scan.decode.max-dimension:1024}") int maxDimension,
+                          @Value("${scan.decode.max-source-pixels:40000000}") long maxSourcePixels) {
+        this.readers = new ArrayBlockingQueue<>(maxConcurrent);
+        for (int i = 0; i < maxConcurrent; i++) {
+            MultiFormatReader reader = new MultiFormatReader();
+            reader.setHints(HINTS);
+            readers.add(reader);
+        }
+        this.maxWait = maxWait;
+        this.maxDimension = maxDimension;
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    /**
+     * 사진에서 QR 코드 내용을 읽음
+     * @param image 사진 (JPEG, PNG 등 ImageIO 가 읽을 수 있는 형식)
+     * @return QR 내용, 사진에서 QR 코드를 찾지 못하면 빈 값
+     * @throws ServerBusyException 동시에 디코딩중인 요청이 많아 maxWait 안에 차례가 오지 않을 경우
+     * @throws IllegalStateException 이미지가 아니거나 너무 큰 경우
+     */
+    public Optional<String> decode(InputStream image) throws IOException {
+        MultiFormatReader reader = borrow();
+        try {
+            BufferedImage frame = readDownscaled(image);
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(frame)));
+            String text = reader.decodeWithState(bitmap).getText();
+            found.incrementAndGet();
+            return Optional.of(text);
+        } catch (NotFoundException e) {
+            notFound.incrementAndGet();
+            return Optional.empty();
+        } finally {
+            reader.reset();
+            readers.add(reader);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("qrp.qr.decode.requests", found, AtomicLong::get).tag("result", "found").register(registry);
+        FunctionCounter.builder("qrp.qr.decode.requests", notFound, AtomicLong::get).tag("result", "not_found").register(registry);
+        FunctionCounter.builder("qrp.qr.decode.requests", busy, AtomicLong::get).tag("result", "busy")
+                .description("디코딩 차례를 기다리다 거절된 요청 수")
+                .register(registry);
+        Gauge.builder("qrp.qr.decode.idle-readers", readers, BlockingQueue::size).register(registry);
+    }
+
+    private MultiFormatReader borrow() {
+        MultiFormatReader reader;
+        try {
+            reader = readers.poll(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reader = null;
+        }
+        if (reader == null) {
+            busy.incrementAndGet();
+            throw new ServerBusyException("QR 코드 인식 요청이 많습니다. 잠시 후 다시 시도해주세요.");
+        }
+        return reader;
+    }
+
+    /**
+     * 크기만 먼저 읽고, 긴 쪽이 maxDimension 이하가 되도록 n 픽셀마다 하나씩만 읽음
+     */
+    private BufferedImage readDownscaled(InputStream image) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> imageReaders = input == null ? null : ImageIO.getImageReaders(input);
+            if (imageReaders == null || !imageReaders.hasNext()) {
+                throw new IllegalStateException("이미지 형식을 알 수 없습니다. JPEG 또는 PNG 로 보내주세요.");
+            }
+            ImageReader imageReader = imageReaders.next();
+            try {
+                imageReader.setInput(input, true, true);
+                int width = imageReader.getWidth(0);
+                int height = imageReader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IllegalStateException("이미지가 너무 큽니다. (" + width + "x" + height + ")");
+                }
+                ImageReadParam param = imageReader.getDefaultReadParam();
+                int step = (Math.max(width, height) + maxDimension - 1) / maxDimension;
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return imageReader.read(0, param);
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+}
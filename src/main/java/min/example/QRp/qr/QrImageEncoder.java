@@ -0,0 +1,234 @@
+package min.example.QRp.qr;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * BitMatrix 를 BufferedImage/ImageIO 를 거치지 않고 바로 이미지 바이트로 바꾸는 인코더
+ * QR 코드는 흑백 두가지 색만 있으므로 1비트 그레이스케일 PNG 로 충분하고,
+ * 행 데이터를 재사용하는 Deflater 와 미리 크기를 잡아둔 버퍼에 바로 써서 중간 객체를 거의 만들지 않음
+ */
+public final class QrImageEncoder {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    // 작업 공간을 풀에서 빌려서 재사용 (Deflater 는 내부에 네이티브 메모리를 잡고 있어서 매번 만들면 비쌈)
+    // ThreadLocal 로 두면 가상 스레드 모드에서는 요청마다 새 스레드라서 재사용되지 않고 매번 만들어짐
+    private static final ArrayBlockingQueue<Workspace> WORKSPACES =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+    private QrImageEncoder() {
+    }
+
+    /**
+     * 1비트 그레이스케일 PNG 로 인코딩
+     * @param matrix 픽셀 단위 QR 코드 (true 가 검은색)
+     * @return PNG 바이트
+     */
+    public static byte[] toPng(BitMatrix matrix) {
+        Workspace workspace = borrow();
+        try {
+            return toPng(matrix, workspace);
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    private static byte[] toPng(BitMatrix matrix, Workspace workspace) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int bytesPerRow = (width + 7) / 8;
+        int rawLength = height * (bytesPerRow + 1); // 행마다 필터 타입 1바이트
+
+        byte[] raw = workspace.raw(rawLength);
+        BitArray row = workspace.row(width);
+
+        int offset = 0;
+        for (int y = 0; y < height; y++) {
+            raw[offset++] = 0; // 필터 없음
+            row = matrix.getRow(y, row);
+            packRow(row.getBitArray(), raw, offset, bytesPerRow);
+            offset += bytesPerRow;
+        }
+
+        // zlib compressBound 와 같은 계산, 압축 결과가 이보다 커지는 일은 없음
+        int deflateBound = rawLength + (rawLength >> 12) + (rawLength >> 14) + (rawLength >> 25) + 13;
+        byte[] out = workspace.out(PNG_SIGNATURE.length + 25 + 12 + deflateBound + 12);
+
+        int position = 0;
+        System.arraycopy(PNG_SIGNATURE, 0, out, 0, PNG_SIGNATURE.length);
+        position += PNG_SIGNATURE.length;
+
+        // IHDR: 너비, 높이, 비트깊이 1, 컬러타입 0(그레이스케일), 압축 0, 필터 0, 인터레이스 0
+        int ihdrData = position + 8;
+        writeInt(out, ihdrData, width);
+        writeInt(out, ihdrData + 4, height);
+        out[ihdrData + 8] = 1;
+        out[ihdrData + 9] = 0;
+        out[ihdrData + 10] = 0;
+        out[ihdrData + 11] = 0;
+        out[ihdrData + 12] = 0;
+        position = writeChunk(out, position, IHDR, 13, workspace.crc);
+
+        Deflater deflater = workspace.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int compressed = 0;
+        int idatData = position + 8;
+        while (!deflater.finished()) {
+            compressed += deflater.deflate(out, idatData + compressed, deflateBound - compressed);
+        }
+        position = writeChunk(out, position, IDAT, compressed, workspace.crc);
+        position = writeChunk(out, position, IEND, 0, workspace.crc);
+
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * SVG 로 인코딩, 모듈(QR 코드의 한 칸) 단위 행렬을 받아 가로로 이어진 검은 칸을 하나의 경로로 그림
+     * @param modules 모듈 단위 QR 코드 (QRCodeWriter 에 크기 0 을 주면 얻을 수 있음)
+     * @param size 출력할 가로,세로 크기(px)
+     * @return SVG 바이트 (UTF-8)
+     */
+    public static byte[] toSvg(BitMatrix modules, int size) {
+        int width = modules.getWidth();
+        int height = modules.getHeight();
+        StringBuilder svg = new StringBuilder(256 + width * height);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path d=\"");
+
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < width && modules.get(x, y)) {
+                    x++;
+                }
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(x - start).append("v1h-").append(x - start).append('z');
+            }
+        }
+        svg.append("\" fill=\"#000\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 압축하지 않은 1비트 비트맵(PBM P4)으로 인코딩, 라벨 프린터처럼 원본 비트를 그대로 받는 곳에 사용
+     * @param matrix 픽셀 단위 QR 코드 (true 가 검은색)
+     * @return PBM 바이트
+     */
+    public static byte[] toPbm(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int bytesPerRow = (width + 7) / 8;
+        byte[] header = ("P4\n" + width + " " + height + "\n").getBytes(StandardCharsets.US_ASCII);
+
+        byte[] out = new byte[header.length + bytesPerRow * height];
+        System.arraycopy(header, 0, out, 0, header.length);
+
+        BitArray row = new BitArray(width);
+        int offset = header.length;
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            packRow(row.getBitArray(), out, offset, bytesPerRow);
+            // PBM 은 1 이 검은색이므로 PNG 와 반대로 다시 뒤집음 (너비를 넘는 남는 비트도 다시 0 이 됨)
+            for (int i = offset; i < offset + bytesPerRow; i++) {
+                out[i] = (byte) ~out[i];
+            }
+            offset += bytesPerRow;
+        }
+        return out;
+    }
+
+    /**
+     * BitArray 의 int 배열(LSB 가 왼쪽 픽셀)을 PNG 행 순서(MSB 가 왼쪽 픽셀)로 바꾸면서 색을 뒤집음
+     * PNG 그레이스케일에서는 0 이 검은색, BitMatrix 에서는 true 가 검은색이기 때문
+     * 너비를 넘는 남는 비트는 0 이므로 뒤집으면 흰색이 됨
+     */
+    private static void packRow(int[] words, byte[] target, int offset, int bytesPerRow) {
+        for (int i = 0; i < bytesPerRow; i++) {
+            int word = words[i >> 2];
+            int bits = (word >>> ((i & 3) << 3)) & 0xFF;
+            target[offset + i] = (byte) ~(Integer.reverse(bits) >>> 24);
+        }
+    }
+
+    private static int writeChunk(byte[] out, int position, byte[] type, int length, CRC32 crc) {
+        writeInt(out, position, length);
+        System.arraycopy(type, 0, out, position + 4, 4);
+        crc.reset();
+        crc.update(out, position + 4, 4 + length);
+        writeInt(out, position + 8 + length, (int) crc.getValue());
+        return position + 12 + length;
+    }
+
+    private static void writeInt(byte[] out, int position, int value) {
+        out[position] = (byte) (value >>> 24);
+        out[position + 1] = (byte) (value >>> 16);
+        out[position + 2] = (byte) (value >>> 8);
+        out[position + 3] = (byte) value;
+    }
+
+    private static Workspace borrow() {
+        Workspace workspace = WORKSPACES.poll();
+        return workspace != null ? workspace : new Workspace();
+    }
+
+    /**
+     * 풀이 가득 찼으면 (동시에 인코딩한 요청이 많았으면) 버리면서 Deflater 의 네이티브 메모리를 바로 돌려줌
+     */
+    private static void giveBack(Workspace workspace) {
+        if (!WORKSPACES.offer(workspace)) {
+            workspace.deflater.end();
+        }
+    }
+
+    /**
+     * 재사용 버퍼, 한번에 한 스레드만 사용함, 더 큰 이미지가 들어오면 그때만 다시 할당함
+     */
+    private static final class Workspace {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private byte[] raw = new byte[0];
+        private byte[] out = new byte[0];
+        private BitArray row = new BitArray(0);
+
+        byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        byte[] out(int length) {
+            if (out.length < length) {
+                out = new byte[length];
+            }
+            return out;
+        }
+
+        BitArray row(int width) {
+            if (row.getSize() < width) {
+                row = new BitArray(width);
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package min.example.QRp.qr;
+
+import lombok.Getter;
+
+/**
+ * QR 코드 이미지 출력 형식
+ * ImageIO 가 이해하는 포맷 이름과 응답에 내려줄 Content-Type 을 함께 가지고 있음
+ * PNG, SVG, PBM 은 ImageIO 를 거치지 않고 QrImageEncoder 로 직접 만듦
+ */
+@Getter
+public enum QrImageFormat {
+    PNG("PNG", "image/png"),
+    GIF("GIF", "image/gif"),
+    BMP("BMP", "image/bmp"),
+    SVG(null, "image/svg+xml"),
+    PBM(null, "image/x-portable-bitmap"); // 압축하지 않은 1비트 비트맵
+
+    private final String imageIoName; // MatrixToImageWriter 에 넘길 포맷 이름 (직접 인코딩하는 포맷은 null)
+    private final String mediaType;   // HTTP 응답 Content-Type
+
+    QrImageFormat(String imageIoName, String mediaType) {
+        this.imageIoName = imageIoName;
+        this.mediaType = mediaType;
+    }
+}
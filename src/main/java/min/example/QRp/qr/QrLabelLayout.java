@@ -0,0 +1,10 @@
+package min.example.QRp.qr;
+
+/**
+ * QR 라벨 일괄 출력 형식
+ */
+public enum QrLabelLayout {
+    ZIP,    // 제품별 QR 코드 PNG 를 하나의 ZIP 으로 묶음
+    SHEET,  // 라벨 용지 한 페이지를 PNG 한장으로 (page 파라미터로 페이지 선택)
+    SHEETS  // 모든 라벨 용지 페이지 PNG 를 하나의 ZIP 으로 묶음
+}
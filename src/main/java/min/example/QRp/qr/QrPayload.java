@@ -0,0 +1,49 @@
+package min.example.QRp.qr;
+
+import java.util.OptionalInt;
+
+/**
+ * 상품 QR 코드에 넣는 내용
+ * 상품 ID 숫자만 넣고, 읽을때는 휴대폰 카메라로 찍은 장바구니 담기 주소(.../consumer/cart/add/{상품 ID})도 받아줌
+ */
+public final class QrPayload {
+
+    private static final String CART_ADD_PATH = "/consumer/cart/add/";
+
+    private QrPayload() {
+    }
+
+    /**
+     * @param productId 상품 ID
+     * @return QR 코드에 넣을 내용
+     */
+    public static String of(int productId) {
+        return String.valueOf(productId);
+    }
+
+    /**
+     * 스캔한 내용에서 상품 ID 를 꺼냄
+     * @param payload QR 내용
+     * @return 상품 ID, 상품 QR 이 아니면 빈 값
+     */
+    public static OptionalInt parseProductId(String payload) {
+        if (payload == null) {
+            return OptionalInt.empty();
+        }
+        String value = payload.strip();
+        int path = value.lastIndexOf(CART_ADD_PATH);
+        if (path >= 0) {
+            value = value.substring(path + CART_ADD_PATH.length());
+        }
+        if (value.isEmpty() || value.length() > 10) {
+            return OptionalInt.empty();
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return OptionalInt.empty();
+            }
+        }
+        long productId = Long.parseLong(value);
+        return productId > 0 && productId <= Integer.MAX_VALUE ? OptionalInt.of((int) productId) : OptionalInt.empty();
+    }
+}
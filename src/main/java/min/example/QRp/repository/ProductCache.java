@@ -0,0 +1,211 @@
+package min.example.QRp.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import min.example.QRp.dto.ProductResponseDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 소비자 화면(장바구니, 재고 확인, 제품 상세)에서 매번 읽는 제품 정보를 메모리에 보관하는 읽기 캐시
+ * 엔티티가 아닌 ProductResponseDto 를 보관하므로 어느 트랜잭션에서 꺼내도 안전하고, 최대 개수를 넘으면 LRU 로 제거함
+ *
+ * 제품이 바뀌면 (수정, 삭제, 재고 차감/복구) 바꾼 쪽이 evict 를 호출함, 바로 한번 지우고 트랜잭션이 끝난 뒤 한번 더 지움
+ * 커밋 전에 다른 요청이 DB 에서 옛 값을 읽어 캐시에 넣는 경우를 막기 위해
+ * 읽기 시작한 뒤에 무효화된 제품은 캐시에 넣지 않음 (제품별 마지막 무효화 번호와 비교)
+ * 결제의 재고 차감은 캐시를 보지 않고 DB 조건부 UPDATE(StockEngine)로 하므로, 캐시의 재고는 화면 표시와 사전 검사에만 쓰임
+ */
+@Component
+public class ProductCache implements MeterBinder {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // 접근 순서 유지
+    private final Map<Integer, Long> lastInvalidated = new HashMap<>(); // 제품 ID -> 마지막으로 무효화된 번호
+    private long invalidationSequence;
+    private long clearedAt = Long.MIN_VALUE;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(@Value("${product.cache.max-entries:10000}") int maxEntries,
+                        @Value("${product.cache.ttl:5m}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * 캐시에 있으면 그대로 반환하고, 없으면 loader 로 DB 에서 읽은 뒤 저장
+     * @param productId 제품 ID
+     * @param loader 캐시에 없을때 제품 정보를 읽을 함수
+     * @return 제품 정보, 없는 제품이면 비어있음 (없는 제품은 캐시하지 않음)
+     */
+    public Optional<ProductResponseDto> get(int productId, IntFunction<Optional<ProductResponseDto>> loader) {
+        long readFrom;
+        synchronized (entries) {
+            ProductResponseDto cached = lookup(productId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached);
+            }
+            readFrom = invalidationSequence;
+        }
+
+        misses.incrementAndGet();
+        Optional<ProductResponseDto> loaded = loader.apply(productId);
+        loaded.ifPresent(product -> put(List.of(product), readFrom));
+        return loaded;
+    }
+
+    /**
+     * 여러 제품을 한번에 조회, 캐시에 없는 제품만 모아서 loader 를 한번 호출함
+     * @param productIds 조회할 제품 ID 목록
+     * @param loader 캐시에 없는 제품 ID 들로 제품 정보를 읽을 함수 (IN 쿼리)
+     * @return <제품 ID, 제품 정보>, 없는 제품은 빠져 있음
+     */
+    public Map<Integer, ProductResponseDto> getAll(Collection<Integer> productIds,
+                                                   Function<Collection<Integer>, List<ProductResponseDto>> loader) {
+        Map<Integer, ProductResponseDto> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long readFrom;
+        synchronized (entries) {
+            for (Integer productId : productIds) {
+                ProductResponseDto cached = lookup(productId);
+                if (cached != null) {
+                    result.put(productId, cached);
+                } else {
+                    missing.add(productId);
+                }
+            }
+            readFrom = invalidationSequence;
+        }
+        hits.addAndGet(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.addAndGet(missing.size());
+        List<ProductResponseDto> loaded = loader.apply(missing);
+        for (ProductResponseDto product : loaded) {
+            result.put(product.getProductId(), product);
+        }
+        put(loaded, readFrom);
+        return result;
+    }
+
+    /**
+     * 제품을 캐시에서 제거, 트랜잭션 안이면 트랜잭션이 끝난 뒤에도 한번 더 제거함
+     * @param productId 바뀐 제품 ID
+     */
+    public void evict(int productId) {
+        invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(productId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 캐시 전체 비우기
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            clearedAt = ++invalidationSequence;
+        }
+    }
+
+    /**
+     * @return 캐시에 있는 제품 수
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("qrp.product.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("qrp.product.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("qrp.product.cache.invalidations", invalidations, AtomicLong::get).register(registry);
+        Gauge.builder("qrp.product.cache.entries", this, ProductCache::size).register(registry);
+        Gauge.builder("qrp.product.cache.hit.ratio", this, ProductCache::hitRatio).register(registry);
+    }
+
+    private double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private ProductResponseDto lookup(int productId) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.cachedAtNanos() > ttlNanos) {
+            entries.remove(productId); // 놓친 무효화가 있어도 ttl 이 지나면 DB 에서 다시 읽음
+            return null;
+        }
+        return entry.product();
+    }
+
+    /**
+     * 읽기 시작한(readFrom) 뒤에 무효화되지 않은 제품만 저장
+     */
+    private void put(List<ProductResponseDto> products, long readFrom) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (ProductResponseDto product : products) {
+                if (clearedAt > readFrom || lastInvalidated.getOrDefault(product.getProductId(), Long.MIN_VALUE) > readFrom) {
+                    continue;
+                }
+                entries.put(product.getProductId(), new Entry(product, now));
+            }
+            Iterator<Integer> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void invalidate(int productId) {
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            invalidationSequence++;
+            lastInvalidated.put(productId, invalidationSequence);
+            entries.remove(productId);
+        }
+    }
+
+    private record Entry(ProductResponseDto product, long cachedAtNanos) {
+    }
+}
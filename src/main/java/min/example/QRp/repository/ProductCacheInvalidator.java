@@ -0,0 +1,24 @@
+package min.example.QRp.repository;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import min.example.QRp.domain.Product;
+import org.springframework.stereotype.Component;
+
+/**
+ * Product 엔티티가 변경 감지로 수정(update, removeStock, addStock)되거나 삭제되어 DB 에 반영되면 캐시에서 제거하는 엔티티 리스너
+ * 조건부 UPDATE 같은 벌크 쿼리는 엔티티 이벤트가 생기지 않으므로 ProductRepository 에서 직접 제거함
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCacheInvalidator {
+
+    private final ProductCache productCache;
+
+    @PostUpdate
+    @PostRemove
+    public void invalidate(Product product) {
+        productCache.evict(product.getProductId());
+    }
+}
@@ -1,19 +1,33 @@
 package min.example.QRp.repository;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
 import min.example.QRp.domain.Product;
+import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.StockSummaryDto;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Timed("qrp.repository")
 public class ProductRepository {
+    // 조회 화면용 프로젝션, 엔티티와 변경 감지용 스냅샷을 만들지 않고 값만 읽음
+    private static final String SELECT_DTO = "select new min.example.QRp.dto.ProductResponseDto("
+            + "p.productId, p.name, p.price, p.quantity) from Product p";
+
     private final EntityManager em;
+    private final ProductCache productCache;
 
-    public ProductRepository(EntityManager em) {
+    public ProductRepository(EntityManager em, ProductCache productCache) {
         this.em = em;
+        this.productCache = productCache;
     }
 
     /**
@@ -27,7 +41,7 @@ public class ProductRepository {
     }
 
     /**
-     * 제품 이름 조회
+     * 제품 이름 조회 (name 유니크 인덱스로 찾음)
      * @param name 조회할 이름
      * @return 입력한 이름 제품 조회
      */
@@ -49,14 +63,188 @@ public class ProductRepository {
     }
 
     /**
-     * 모든 제품 조회
-     * @return 모든 제품 목록
+     * 제품을 읽지 않고 참조만 가져옴 (구매 항목의 외래키로만 쓸때)
+     * @param id 제품 기본키
+     * @return 초기화되지 않은 제품 프록시, 없는 ID 면 저장할때 외래키 오류
+     */
+    public Product getReference(int id){
+        return em.getReference(Product.class, id);
+    }
+
+    /**
+     * 여러 제품 아이디 조회, IN 절 한번으로 가져옴
+     * @param ids 조회할 기본키 목록
+     * @return 존재하는 제품 목록 (순서는 보장하지 않음)
+     */
+    public List<Product> findAllByIds(Collection<Integer> ids){
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select p from Product p where p.productId in :ids", Product.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 제품 아이디로 조회 화면용 정보만 조회 (영속성 컨텍스트에 올리지 않음)
+     * @param id 조회할 기본키
+     * @return 제품 정보
+     */
+    public Optional<ProductResponseDto> findDtoById(int id){
+        return em.createQuery(SELECT_DTO + " where p.productId = :id", ProductResponseDto.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findAny();
+    }
+
+    /**
+     * 여러 제품 아이디로 조회 화면용 정보만 조회, IN 절 한번으로 가져옴 (영속성 컨텍스트에 올리지 않음)
+     * @param ids 조회할 기본키 목록
+     * @return 존재하는 제품 정보 목록 (순서는 보장하지 않음)
+     */
+    public List<ProductResponseDto> findAllDtosByIds(Collection<Integer> ids){
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery(SELECT_DTO + " where p.productId in :ids", ProductResponseDto.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 모든 제품 조회 (조회 화면용, 영속성 컨텍스트에 올리지 않음)
+     * @return 모든 제품 정보 목록
      */
-    public List<Product> findAll(){
-        return em.createQuery("select p from Product p",Product.class)
+    public List<ProductResponseDto> findAll(){
+        return em.createQuery(SELECT_DTO, ProductResponseDto.class)
                 .getResultList();
     }
 
+    /**
+     * 전체 재고 현황을 한번의 집계 쿼리로 조회
+     * @param lowStockThreshold 이 수량 이하(0 제외)면 재고 부족으로 셈
+     * @return 제품 수, 품절/재고부족 제품 수, 전체 재고 수량
+     */
+    public StockSummaryDto summarizeStock(int lowStockThreshold){
+        return em.createQuery("select new min.example.QRp.dto.StockSummaryDto(count(p), "
+                        + "sum(case when p.quantity = 0 then 1L else 0L end), "
+                        + "sum(case when p.quantity > 0 and p.quantity <= :low then 1L else 0L end), "
+                        + "sum(cast(p.quantity as Long))) from Product p", StockSummaryDto.class)
+                .setParameter("low", lowStockThreshold)
+                .getSingleResult();
+    }
+
+    /**
+     * 제품 목록 한 페이지 조회
+     * @param keyword 이름 검색어, null 이나 빈 문자열이면 전체
+     * @param searchType 이름 검색 방식 (접두어 / 포함)
+     * @param sort 정렬 기준
+     * @param offset 건너뛸 제품 수
+     * @param limit 가져올 최대 제품 수
+     * @return 정렬된 제품 정보 목록 (조회 화면용, 영속성 컨텍스트에 올리지 않음)
+     */
+    public List<ProductResponseDto> findPage(String keyword, ProductSearchType searchType, ProductSort sort, int offset, int limit){
+        boolean filtered = keyword != null && !keyword.isBlank();
+        TypedQuery<ProductResponseDto> query = em.createQuery(SELECT_DTO +
+                (filtered ? " where p.name like :pattern escape '!'" : "") +
+                " order by " + sort.getOrderBy(), ProductResponseDto.class);
+        if (filtered) {
+            query.setParameter("pattern", likePattern(keyword, searchType));
+        }
+        return query.setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 검색 조건에 맞는 제품 수 조회
+     * @param keyword 이름 검색어, null 이나 빈 문자열이면 전체
+     * @param searchType 이름 검색 방식 (접두어 / 포함)
+     * @return 제품 수
+     */
+    public long count(String keyword, ProductSearchType searchType){
+        boolean filtered = keyword != null && !keyword.isBlank();
+        TypedQuery<Long> query = em.createQuery("select count(p) from Product p" +
+                (filtered ? " where p.name like :pattern escape '!'" : ""), Long.class);
+        if (filtered) {
+            query.setParameter("pattern", likePattern(keyword, searchType));
+        }
+        return query.getSingleResult();
+    }
+
+    /**
+     * 검색어 안의 %, _ 가 와일드카드로 해석되지 않도록 이스케이프한 LIKE 패턴
+     * 접두어 검색은 앞쪽이 고정되어 있어서 name 인덱스 범위 탐색으로 처리됨
+     */
+    private static String likePattern(String keyword, ProductSearchType searchType) {
+        String escaped = keyword.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return searchType == ProductSearchType.CONTAINS ? "%" + escaped + "%" : escaped + "%";
+    }
+
+    /**
+     * 제품 행을 트랜잭션이 끝날때까지 잠금 (SELECT ... FOR UPDATE)
+     * @param productId 잠글 제품 ID
+     * @return 잠갔으면 true, 제품이 없으면 false
+     */
+    public boolean lockForUpdate(int productId){
+        return em.find(Product.class, productId, LockModeType.PESSIMISTIC_WRITE) != null;
+    }
+
+    /**
+     * 재고가 충분할때만 차감 (조건부 UPDATE 한번으로 검사와 차감을 같이 함)
+     * 같은 제품을 동시에 차감하면 DB 행 잠금으로 차례대로 실행되므로 재고가 음수가 되지 않음
+     * 영속성 컨텍스트를 거치지 않으므로 이미 조회한 Product 엔티티의 quantity 는 바뀌지 않음
+     * 엔티티 이벤트가 생기지 않으므로 제품 캐시는 여기서 직접 제거함
+     * @param productId 차감할 제품 ID
+     * @param quantity 차감할 수량
+     * @return 차감했으면 true, 제품이 없거나 재고가 부족하면 false
+     */
+    public boolean decreaseStock(int productId, int quantity){
+        boolean decreased = em.createQuery("update Product p set p.quantity = p.quantity - :quantity " +
+                        "where p.productId = :productId and p.quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("productId", productId)
+                .executeUpdate() == 1;
+        if (decreased) {
+            productCache.evict(productId);
+        }
+        return decreased;
+    }
+
+    /**
+     * 재고 추가 (UPDATE 한번으로 현재 DB 값에 더함)
+     * @param productId 추가할 제품 ID
+     * @param quantity 추가할 수량
+     * @return 추가했으면 true, 제품이 없으면 false
+     */
+    public boolean increaseStock(int productId, int quantity){
+        boolean increased = em.createQuery("update Product p set p.quantity = p.quantity + :quantity " +
+                        "where p.productId = :productId")
+                .setParameter("quantity", quantity)
+                .setParameter("productId", productId)
+                .executeUpdate() == 1;
+        if (increased) {
+            productCache.evict(productId);
+        }
+        return increased;
+    }
+
+    /**
+     * 현재 DB 의 재고 수량 조회 (영속성 컨텍스트에 있는 값이 아닌 실제 값)
+     * @param productId 조회할 제품 ID
+     * @return 재고 수량, 제품이 없으면 비어있음
+     */
+    public Optional<Integer> findCurrentQuantity(int productId){
+        return em.createQuery("select p.quantity from Product p where p.productId = :productId", Integer.class)
+                .setParameter("productId", productId)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
     /**
      * 제품 변경
      * @param productUpdate 변경할 제품
@@ -0,0 +1,9 @@
+package min.example.QRp.repository;
+
+/**
+ * 제품 이름 검색 방식
+ */
+public enum ProductSearchType {
+    PREFIX,   // 이름이 검색어로 시작 (name 인덱스를 탐색함)
+    CONTAINS  // 이름 중간에 검색어가 포함 (인덱스를 쓸 수 없어 전체를 훑음)
+}
@@ -0,0 +1,23 @@
+package min.example.QRp.repository;
+
+import lombok.Getter;
+
+/**
+ * 제품 목록 정렬 기준
+ * JPQL ORDER BY 절을 직접 가지고 있어서 사용자 입력이 쿼리에 그대로 들어가지 않음
+ * 같은 값이 여러개일 때도 페이지 사이에 순서가 바뀌지 않도록 항상 제품 ID 로 한번 더 정렬함
+ */
+@Getter
+public enum ProductSort {
+    ID("p.productId"),
+    NAME("p.name, p.productId"),
+    PRICE_ASC("p.price, p.productId"),
+    PRICE_DESC("p.price DESC, p.productId"),
+    QUANTITY_ASC("p.quantity, p.productId");
+
+    private final String orderBy;
+
+    ProductSort(String orderBy) {
+        this.orderBy = orderBy;
+    }
+}
@@ -1,15 +1,36 @@
 package min.example.QRp.repository;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
 import min.example.QRp.domain.Purchase;
+import min.example.QRp.domain.PurchaseState;
+import min.example.QRp.dto.PurchaseExportRow;
+import min.example.QRp.dto.PurchaseResponseDto;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Repository
+@Timed("qrp.repository")
 public class PurchaseRepository {
+    private static final int EXPORT_FETCH_SIZE = 500;
+    // 구매 항목 단위 프로젝션, 엔티티와 변경 감지용 스냅샷을 만들지 않고 값만 읽음
+    private static final String SELECT_ROWS = "SELECT new min.example.QRp.dto.PurchaseExportRow(" +
+            "p.purchaseId, p.purchaseDate, p.state, pr.productId, pr.name, i.orderPrice, i.orderQuantity) " +
+            "FROM Purchase p " +
+            "LEFT JOIN p.purchaseItems i " +
+            "LEFT JOIN i.product pr ";
+    private static final String ORDER_BY_LATEST = "ORDER BY p.purchaseDate DESC, p.purchaseId DESC, i.purchaseItemId";
+
     private final EntityManager em;
 
     public PurchaseRepository(EntityManager em) {
@@ -26,6 +47,20 @@ public class PurchaseRepository {
         return Optional.ofNullable(purchase);
     }
 
+    /**
+     * 구매 내역 화면용 단일 조회, 구매 항목과 제품 이름까지 한번의 쿼리로 값만 읽음 (영속성 컨텍스트에 올리지 않음)
+     * @param id 구매 고유 아이디
+     * @return 구매 내역
+     */
+    public Optional<PurchaseResponseDto> findResponseById(int id){
+        List<PurchaseExportRow> rows = em.createQuery(SELECT_ROWS +
+                        "WHERE p.purchaseId = :id " +
+                        "ORDER BY i.purchaseItemId", PurchaseExportRow.class)
+                .setParameter("id", id)
+                .getResultList();
+        return PurchaseResponseDto.fromRows(rows).stream().findAny();
+    }
+
     /**
      * 결제기록 생성
      * @param purchase 저장할 구매기록
@@ -45,6 +80,74 @@ public class PurchaseRepository {
                 .getResultList();
     }
 
+    /**
+     * 구매 내역 화면용 전체 조회, 구매 항목과 제품 이름까지 한번의 쿼리로 값만 읽음
+     * 화면에서 구매 항목의 제품 이름까지 보여줄때 1 + N + N*M 번 쿼리가 나가지 않고,
+     * 엔티티를 영속성 컨텍스트에 올리지 않으므로 스냅샷 메모리와 flush 때 변경 감지 비용이 없음
+     * @return 구매시간, 구매ID 내림차순 구매 내역 목록
+     */
+    public List<PurchaseResponseDto> findAllResponses() {
+        return PurchaseResponseDto.fromRows(em.createQuery(SELECT_ROWS + ORDER_BY_LATEST, PurchaseExportRow.class)
+                .getResultList());
+    }
+
+    /**
+     * 구매 내역 화면용 한 페이지 조회 (키셋 페이지네이션)
+     * OFFSET 을 쓰지 않고 마지막으로 본 (구매시간, 구매ID) 보다 이전 기록부터 가져오므로
+     * 뒤쪽 페이지로 가도 앞의 기록을 다시 읽지 않음
+     * 먼저 ID 만 페이지 크기만큼 고른 뒤 그 ID 들에 대해서만 구매 항목,제품 이름을 값으로 읽음
+     * (항목 단위 행이라 setMaxResults 를 바로 걸면 구매 수가 아니라 항목 수로 잘리기 때문)
+     * @param cursorDate 이전 페이지 마지막 기록의 구매시간, 첫 페이지면 null
+     * @param cursorId 이전 페이지 마지막 기록의 구매ID, 첫 페이지면 null
+     * @param limit 가져올 최대 개수
+     * @return 구매시간, 구매ID 내림차순 구매 내역 목록
+     */
+    public List<PurchaseResponseDto> findResponsePage(LocalDateTime cursorDate, Integer cursorId, int limit) {
+        TypedQuery<Integer> idQuery;
+        if (cursorDate == null || cursorId == null) {
+            idQuery = em.createQuery("SELECT p.purchaseId FROM Purchase p " +
+                    "ORDER BY p.purchaseDate DESC, p.purchaseId DESC", Integer.class);
+        } else {
+            idQuery = em.createQuery("SELECT p.purchaseId FROM Purchase p " +
+                            "WHERE p.purchaseDate < :cursorDate " +
+                            "OR (p.purchaseDate = :cursorDate AND p.purchaseId < :cursorId) " +
+                            "ORDER BY p.purchaseDate DESC, p.purchaseId DESC", Integer.class)
+                    .setParameter("cursorDate", cursorDate)
+                    .setParameter("cursorId", cursorId);
+        }
+        List<Integer> ids = idQuery.setMaxResults(limit).getResultList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return PurchaseResponseDto.fromRows(em.createQuery(SELECT_ROWS +
+                        "WHERE p.purchaseId IN :ids " +
+                        ORDER_BY_LATEST, PurchaseExportRow.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    /**
+     * 전체 결제기록을 구매 항목 한줄씩 스트림으로 조회 (내보내기용)
+     * 엔티티가 아닌 값만 읽어서 영속성 컨텍스트에 쌓이지 않고, JDBC fetch size 만큼씩 끊어 읽으므로
+     * 기록이 아무리 많아도 메모리 사용량이 일정함. 스트림은 트랜잭션 안에서 닫아야 함
+     * @return 구매시간, 구매ID 내림차순 구매 항목 스트림
+     */
+    public Stream<PurchaseExportRow> streamExportRows() {
+        return em.createQuery(SELECT_ROWS + ORDER_BY_LATEST, PurchaseExportRow.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * 전체 구매 수
+     * @return 구매 수
+     */
+    public long count() {
+        return em.createQuery("SELECT count(p) FROM Purchase p", Long.class).getSingleResult();
+    }
+
     /**
      * 날짜와 날짜 사이의 매출을 찾음
      * @param startDate 시작 날짜
@@ -58,4 +161,81 @@ public class PurchaseRepository {
                 .getResultList();
     }
 
+    /**
+     * 일괄 환불 대상 검색, 환불되지 않은 구매의 ID 만 읽음
+     * @param productId 이 제품이 들어있는 구매만, 생략하면 모든 제품
+     * @param from 이 시간 이후(포함) 구매만, 생략하면 처음부터
+     * @param to 이 시간 이전(미포함) 구매만, 생략하면 끝까지
+     * @return 구매ID 오름차순 목록
+     */
+    public List<Integer> findRefundableIds(Integer productId, LocalDateTime from, LocalDateTime to) {
+        StringBuilder jpql = new StringBuilder("SELECT p.purchaseId FROM Purchase p WHERE p.state = :state ");
+        if (productId != null) {
+            jpql.append("AND EXISTS (SELECT 1 FROM PurchaseItem i WHERE i.purchase = p AND i.product.productId = :productId) ");
+        }
+        if (from != null) {
+            jpql.append("AND p.purchaseDate >= :from ");
+        }
+        if (to != null) {
+            jpql.append("AND p.purchaseDate < :to ");
+        }
+        TypedQuery<Integer> query = em.createQuery(jpql.append("ORDER BY p.purchaseId").toString(), Integer.class)
+                .setParameter("state", PurchaseState.COMPLETED);
+        if (productId != null) {
+            query.setParameter("productId", productId);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 주어진 구매 중 환불되지 않은 것만 행 잠금을 걸고 환불 상태로 바꿈
+     * 잠근 뒤에 바꾸므로 같은 구매를 동시에 환불하는 다른 트랜잭션이 있어도 한쪽만 바꾼 것으로 셈 (엔티티는 읽지 않음)
+     * @param ids 구매 ID 목록
+     * @return 이번에 환불 상태로 바꾼 구매 ID 목록, 없거나 이미 환불된 구매는 빠짐
+     */
+    public List<Integer> markRefunded(List<Integer> ids) {
+        List<Integer> locked = em.createQuery("SELECT p.purchaseId FROM Purchase p " +
+                        "WHERE p.purchaseId IN :ids AND p.state = :completed " +
+                        "ORDER BY p.purchaseId", Integer.class)
+                .setParameter("ids", ids)
+                .setParameter("completed", PurchaseState.COMPLETED)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (locked.isEmpty()) {
+            return locked;
+        }
+        em.createQuery("update Purchase p set p.state = :refunded where p.purchaseId in :ids")
+                .setParameter("refunded", PurchaseState.REFUNDED)
+                .setParameter("ids", locked)
+                .executeUpdate();
+        return locked;
+    }
+
+    /**
+     * 여러 구매의 구매 항목을 제품별로 합침 (GROUP BY 한번, 항목과 제품 엔티티를 읽지 않음)
+     * @param ids 구매 ID 목록
+     * @return 제품ID 오름차순 <제품ID, {수량, 금액}>
+     */
+    public Map<Integer, long[]> sumItemsByProduct(List<Integer> ids) {
+        Map<Integer, long[]> sums = new TreeMap<>();
+        if (ids.isEmpty()) {
+            return sums;
+        }
+        List<Object[]> rows = em.createQuery("SELECT i.product.productId, sum(i.orderQuantity), " +
+                        "sum(cast(i.orderPrice as Long) * i.orderQuantity) " +
+                        "FROM PurchaseItem i WHERE i.purchase.purchaseId IN :ids " +
+                        "GROUP BY i.product.productId", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        for (Object[] row : rows) {
+            sums.put((Integer) row[0], new long[]{((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+        return sums;
+    }
 }
@@ -0,0 +1,19 @@
+package min.example.QRp.repository;
+
+import lombok.Getter;
+
+/**
+ * 매출 리포트 집계 단위
+ * 한번에 조회할 수 있는 최대 기간을 같이 가지고 있어서 응답 크기가 제한됨
+ */
+@Getter
+public enum SalesGranularity {
+    HOUR(31),
+    DAY(366);
+
+    private final int maxDays; // 한번에 조회할 수 있는 최대 일수
+
+    SalesGranularity(int maxDays) {
+        this.maxDays = maxDays;
+    }
+}
@@ -0,0 +1,110 @@
+package min.example.QRp.repository;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import min.example.QRp.dto.SalesReportRow;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 판매 집계 저장소
+ * 집계 값은 JPA 엔티티를 읽어서 고치지 않고 UPDATE ... SET x = x + ? 로 DB 에서 바로 더함 (동시에 들어온 구매끼리 덮어쓰지 않도록)
+ * 쓰기는 JdbcTemplate 로 하므로 같은 트랜잭션(커넥션)에서 실행되지만, 중복 키 오류가 Hibernate 트랜잭션을 롤백 전용으로 만들지 않음
+ */
+@Repository
+@Timed("qrp.repository")
+public class SalesRollupRepository {
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String ADD_SQL = "update sales_rollup set units_sold = units_sold + ?, revenue = revenue + ?, "
+            + "refunded_units = refunded_units + ?, refunded_amount = refunded_amount + ? "
+            + "where sales_date = ? and sales_hour = ? and product_id = ?";
+    private static final String INSERT_SQL = "insert into sales_rollup "
+            + "(sales_date, sales_hour, product_id, units_sold, revenue, refunded_units, refunded_amount) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    public SalesRollupRepository(EntityManager em, JdbcTemplate jdbcTemplate) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 해당 시간대,제품 칸에 판매/환불 수치를 더함, 칸이 없으면 새로 만듦
+     * 두 트랜잭션이 동시에 같은 칸을 처음 만들려고 하면 늦은 쪽은 중복 키 오류가 나므로 먼저 만들어진 칸에 다시 더함
+     * @param salesDate 날짜
+     * @param salesHour 시간대 (0 ~ 23)
+     * @param productId 제품 ID
+     * @param units 판매 수량
+     * @param revenue 판매 금액
+     * @param refundedUnits 환불 수량
+     * @param refundedAmount 환불 금액
+     */
+    public void add(LocalDate salesDate, int salesHour, int productId,
+                    long units, long revenue, long refundedUnits, long refundedAmount){
+        Object[] delta = {units, revenue, refundedUnits, refundedAmount, salesDate, salesHour, productId};
+        if (jdbcTemplate.update(ADD_SQL, delta) == 1) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, salesDate, salesHour, productId, units, revenue, refundedUnits, refundedAmount);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(ADD_SQL, delta);
+        }
+    }
+
+    /**
+     * 기간 매출 조회, 집계 테이블만 읽으므로 구매 건수가 아니라 (구간 수 x 제품 수)에 비례함
+     * 판매와 환불이 모두 0 인 칸은 빼고, 삭제된 제품도 이름 없이 포함함
+     * @param from 시작일 (포함)
+     * @param toExclusive 종료일 (제외)
+     * @param granularity 시간대별/일별
+     * @param productId 특정 제품만 볼때 제품 ID, 전체면 null
+     * @return 구간, 제품 순으로 정렬된 매출
+     */
+    public List<SalesReportRow> findReport(LocalDate from, LocalDate toExclusive, SalesGranularity granularity, Integer productId){
+        String productFilter = productId == null ? "" : " and r.productId = :productId";
+        String jpql = granularity == SalesGranularity.HOUR
+                ? "select new min.example.QRp.dto.SalesReportRow(r.salesDate, r.salesHour, r.productId, p.name, "
+                        + "r.unitsSold, r.revenue, r.refundedUnits, r.refundedAmount) "
+                        + "from SalesRollup r left join Product p on p.productId = r.productId "
+                        + "where r.salesDate >= :from and r.salesDate < :to" + productFilter
+                        + " and (r.unitsSold > 0 or r.refundedUnits > 0) "
+                        + "order by r.salesDate, r.salesHour, r.productId"
+                : "select new min.example.QRp.dto.SalesReportRow(r.salesDate, r.productId, p.name, "
+                        + "sum(r.unitsSold), sum(r.revenue), sum(r.refundedUnits), sum(r.refundedAmount)) "
+                        + "from SalesRollup r left join Product p on p.productId = r.productId "
+                        + "where r.salesDate >= :from and r.salesDate < :to" + productFilter
+                        + " group by r.salesDate, r.productId, p.name "
+                        + "having sum(r.unitsSold) > 0 or sum(r.refundedUnits) > 0 "
+                        + "order by r.salesDate, r.productId";
+
+        TypedQuery<SalesReportRow> query = em.createQuery(jpql, SalesReportRow.class)
+                .setParameter("from", from)
+                .setParameter("to", toExclusive);
+        if (productId != null) {
+            query.setParameter("productId", productId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 집계 행 수
+     * @return 전체 행 수
+     */
+    public long count(){
+        return em.createQuery("select count(r) from SalesRollup r", Long.class).getSingleResult();
+    }
+
+    /**
+     * 집계 전체 삭제 (다시 쌓기 전에 사용)
+     */
+    public void deleteAll(){
+        jdbcTemplate.update("delete from sales_rollup");
+    }
+}
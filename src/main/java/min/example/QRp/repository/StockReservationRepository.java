@@ -0,0 +1,110 @@
+package min.example.QRp.repository;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import min.example.QRp.domain.ReservationStatus;
+import min.example.QRp.domain.StockReservation;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Timed("qrp.repository")
+public class StockReservationRepository {
+    private final EntityManager em;
+
+    public StockReservationRepository(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * 재고 예약 저장
+     * @param reservation 저장할 예약
+     * @return db 예약 저장
+     */
+    public StockReservation create(StockReservation reservation){
+        em.persist(reservation);
+        return reservation;
+    }
+
+    /**
+     * 예약 ID로 조회
+     * @param reservationId 조회할 기본키
+     * @return 해당 예약
+     */
+    public Optional<StockReservation> findById(int reservationId){
+        return Optional.ofNullable(em.find(StockReservation.class, reservationId));
+    }
+
+    /**
+     * 결제 주문 ID로 예약 조회
+     * @param partnerOrderId 결제 준비때 만든 주문 ID
+     * @return 해당 주문의 예약
+     */
+    public Optional<StockReservation> findByPartnerOrderId(String partnerOrderId){
+        return em.createQuery("select r from StockReservation r where r.partnerOrderId = :partnerOrderId", StockReservation.class)
+                .setParameter("partnerOrderId", partnerOrderId)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * 결제 주문 ID로 예약 상태만 조회, 영속성 컨텍스트에 올라온 예약이 아니라 DB 에 커밋된 상태를 읽음
+     * @param partnerOrderId 결제 준비때 만든 주문 ID
+     * @return 해당 주문의 예약 상태
+     */
+    public Optional<ReservationStatus> findStatusByPartnerOrderId(String partnerOrderId){
+        return em.createQuery("select r.status from StockReservation r where r.partnerOrderId = :partnerOrderId", ReservationStatus.class)
+                .setParameter("partnerOrderId", partnerOrderId)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * 아직 승인/해제되지 않은 모든 예약 조회 (서버 시작시 만료 타이머를 다시 걸기 위해 사용)
+     * @return HELD 상태 예약 목록
+     */
+    public List<StockReservation> findAllHeld(){
+        return em.createQuery("select r from StockReservation r where r.status = :status", StockReservation.class)
+                .setParameter("status", ReservationStatus.HELD)
+                .getResultList();
+    }
+
+    /**
+     * 만료 시간이 지났는데 아직 HELD 인 예약 ID 조회 (만료 큐를 들고 있던 서버가 죽었거나 놓친 예약을 정리하기 위해 사용)
+     * @param now 기준 시간
+     * @return 만료된 HELD 예약 ID 목록
+     */
+    public List<Integer> findExpiredHeldIds(LocalDateTime now){
+        return em.createQuery("select r.reservationId from StockReservation r where r.status = :status and r.expiresAt <= :now", Integer.class)
+                .setParameter("status", ReservationStatus.HELD)
+                .setParameter("now", now)
+                .getResultList();
+    }
+
+    /**
+     * 아직 from 상태인 예약만 다른 상태로 바꿈 (조건부 UPDATE 라 동시에 바꾸려 해도 한쪽만 성공함)
+     * @param reservationId 바꿀 예약 ID
+     * @param from 지금 상태
+     * @param to 바꿀 상태
+     * @param notExpiredAt 이 시간에 만료되지 않은 예약만 바꿈, null 이면 만료 여부와 상관없이 바꿈
+     * @return 바꿨으면 true
+     */
+    public boolean changeStatus(int reservationId, ReservationStatus from, ReservationStatus to, LocalDateTime notExpiredAt){
+        Query query = em.createQuery("update StockReservation r set r.status = :to " +
+                        "where r.reservationId = :reservationId and r.status = :from" +
+                        (notExpiredAt != null ? " and r.expiresAt > :now" : ""))
+                .setParameter("to", to)
+                .setParameter("reservationId", reservationId)
+                .setParameter("from", from);
+        if (notExpiredAt != null) {
+            query.setParameter("now", notExpiredAt);
+        }
+        return query.executeUpdate() == 1;
+    }
+}
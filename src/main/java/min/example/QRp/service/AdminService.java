@@ -4,6 +4,7 @@ import com.google.zxing.BarcodeFormat;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import min.example.QRp.domain.Product;
@@ -11,25 +12,64 @@ import min.example.QRp.domain.Purchase;
 import min.example.QRp.domain.PurchaseItem;
 import min.example.QRp.domain.PurchaseState;
 import min.example.QRp.dto.CreateProductDto;
+import min.example.QRp.dto.ProductPageDto;
 import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.PurchaseExportRow;
+import min.example.QRp.dto.PurchasePageDto;
 import min.example.QRp.dto.PurchaseResponseDto;
+import min.example.QRp.dto.QrCodeCacheStatsDto;
+import min.example.QRp.dto.SalesReportRow;
 import min.example.QRp.dto.UpdateProductDto;
+import min.example.QRp.qr.QrCodeCache;
+import min.example.QRp.qr.QrImageEncoder;
+import min.example.QRp.qr.QrImageFormat;
+import min.example.QRp.qr.QrPayload;
 import min.example.QRp.repository.ProductRepository;
+import min.example.QRp.repository.ProductSearchType;
+import min.example.QRp.repository.ProductSort;
 import min.example.QRp.repository.PurchaseRepository;
+import min.example.QRp.repository.SalesGranularity;
+import min.example.QRp.repository.SalesRollupRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
+@Timed("qrp.service")
 public class AdminService {
 
     private final ProductRepository productRepository;
     private final PurchaseRepository purchaseRepository;
+    private final StockEngine stockEngine;
+    private final QrCodeCache qrCodeCache;
+    private final SalesRollupService salesRollupService;
+    private final SalesRollupRepository salesRollupRepository;
+
+    public static final int DEFAULT_QR_SIZE = 200; // 기존 QR 보기 버튼이 사용하던 크기
+    public static final int MIN_QR_SIZE = 50;
+    public static final int MAX_QR_SIZE = 2000;
+    public static final int MAX_PAGE_SIZE = 100;
 
 
     /**
@@ -46,7 +86,12 @@ public class AdminService {
                 .price(createProductDto.getPrice())
                 .quantity(createProductDto.getQuantity())
                 .build();
-        return productRepository.create(newProduct);
+        try {
+            return productRepository.create(newProduct);
+        } catch (DataIntegrityViolationException e) {
+            // 중복 검사 이후 다른 요청이 같은 이름을 먼저 저장한 경우 (name 유니크 인덱스가 막아줌)
+            throw new IllegalStateException("이미 존재하는 상품 이름입니다.");
+        }
     }
 
     /**
@@ -76,10 +121,53 @@ public class AdminService {
      * @return 모든 제품
      */
     public List<ProductResponseDto> findAllProducts(){
-        List<Product> productList = productRepository.findAll();
-        return productList.stream()
-                .map(product -> new ProductResponseDto(product))
-                .collect(Collectors.toList());
+        return productRepository.findAll();
+    }
+
+    /**
+     * 제품 목록 한 페이지 검색
+     * @param keyword 이름 검색어, 비어있으면 모든 제품
+     * @param searchType 이름 검색 방식 (접두어 / 포함)
+     * @param sort 정렬 기준
+     * @param page 페이지 번호 (1부터 시작)
+     * @param size 페이지 크기
+     * @return 해당 페이지 제품과 전체 페이지 정보
+     */
+    public ProductPageDto findProductPage(String keyword, ProductSearchType searchType, ProductSort sort, int page, int size){
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalStateException("페이지 크기는 1 ~ " + MAX_PAGE_SIZE + " 사이여야 합니다.");
+        }
+        if (page < 1) {
+            throw new IllegalStateException("존재하지 않는 페이지입니다: " + page);
+        }
+
+        long totalCount = productRepository.count(keyword, searchType);
+        List<ProductResponseDto> products = productRepository.findPage(keyword, searchType, sort, (page - 1) * size, size);
+        return new ProductPageDto(products, page, size, totalCount);
+    }
+
+    /**
+     * 여러 제품 검색(ID), 요청한 ID 순서대로 반환
+     * @param productIds 검색할 제품 ID 목록, 비어있으면 모든 제품
+     * @return 해당 ID 제품들
+     */
+    public List<ProductResponseDto> findProductsByIds(List<Integer> productIds){
+        if (productIds == null || productIds.isEmpty()) {
+            return findAllProducts();
+        }
+
+        Map<Integer, ProductResponseDto> productMap = productRepository.findAllDtosByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductResponseDto::getProductId, product -> product));
+
+        List<ProductResponseDto> result = new ArrayList<>();
+        for (Integer productId : productIds) {
+            ProductResponseDto product = productMap.get(productId);
+            if (product == null) {
+                throw new EntityNotFoundException("해당 ID의 상품을 찾을 수 없습니다." + productId);
+            }
+            result.add(product);
+        }
+        return result;
     }
 
     /**
@@ -94,6 +182,11 @@ public class AdminService {
         Product product = productRepository.findById(productid)
                         .orElseThrow(() -> new EntityNotFoundException("해당 ID의 제품을 찾을 수 없습니다." + productid));
 
+        String newName = updateProductDto.getName();
+        if (newName != null && !newName.isBlank() && !newName.equals(product.getName())) {
+            productRepository.findByName(newName).ifPresent(other -> {throw new IllegalStateException("이미 존재하는 상품 이름입니다.");});
+        }
+
         product.update(
                 updateProductDto.getName(),
                 updateProductDto.getPrice(),
@@ -109,6 +202,7 @@ public class AdminService {
     @Transactional
     public void deleteProduct(int productId){
         productRepository.delete(productId);
+        qrCodeCache.evict(productId);
     }
 
     /**
@@ -120,14 +214,20 @@ public class AdminService {
         Purchase purchase = purchaseRepository.findById(purchaseId)
                 .orElseThrow(() -> new EntityNotFoundException("해당 ID를 찾을 수 없습니다."+ purchaseId));
 
-        if (purchase.getState() == PurchaseState.REFUNDED){
+        // 상태 검사와 변경은 행 잠금 + 조건부 UPDATE 로 한번에 함 (일괄 환불과 같은 방식)
+        // 같은 구매를 동시에 환불해도 (단건 환불끼리, 또는 일괄 환불과) 먼저 바꾼 쪽만 재고와 판매 집계를 돌려줌
+        if (purchaseRepository.markRefunded(List.of(purchaseId)).isEmpty()){
             throw new IllegalStateException("이미 환불 처리가 되었습니다.");
         }
         purchase.changeState(PurchaseState.REFUNDED);
 
+        // 엔티티의 재고를 고쳐서 저장하면 그사이 다른 결제가 차감한 재고를 덮어쓰므로 DB 값에 바로 더함
+        Map<Integer, Integer> lines = new HashMap<>();
         for (PurchaseItem item : purchase.getPurchaseItems()){
-            item.getProduct().addStock(item.getOrderQuantity());
+            lines.merge(item.getProduct().getProductId(), item.getOrderQuantity(), Integer::sum);
         }
+        stockEngine.increase(lines);
+        salesRollupService.recordRefund(purchase, LocalDateTime.now());
     }
 
     /**
@@ -136,9 +236,8 @@ public class AdminService {
      * @return 해당 ID 주문
      */
     public PurchaseResponseDto findPurchaseById(int purchaseId) {
-        Purchase purchase = purchaseRepository.findById(purchaseId)
+        return purchaseRepository.findResponseById(purchaseId)
                 .orElseThrow(() -> new EntityNotFoundException("해당 ID의 주문을 찾을 수 없습니다: " + purchaseId));
-        return new PurchaseResponseDto(purchase);
     }
 
     /**
@@ -146,27 +245,162 @@ public class AdminService {
      * @return 모든 주문 내역
      */
     public List<PurchaseResponseDto> findAllPurchases(){
-        List<Purchase> purchaseList = purchaseRepository.findAll();
+        return purchaseRepository.findAllResponses();
+    }
+
+    /**
+     * 구매 내역 한 페이지 검색 (최신순)
+     * @param cursorDate 이전 페이지 마지막 주문의 구매시간, 첫 페이지면 null
+     * @param cursorId 이전 페이지 마지막 주문 ID, 첫 페이지면 null
+     * @param size 페이지 크기
+     * @return 주문 내역과 다음 페이지 커서
+     */
+    public PurchasePageDto findPurchasePage(LocalDateTime cursorDate, Integer cursorId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalStateException("페이지 크기는 1 ~ " + MAX_PAGE_SIZE + " 사이여야 합니다.");
+        }
+        // 한개 더 읽어서 다음 페이지가 있는지 확인
+        List<PurchaseResponseDto> purchases = purchaseRepository.findResponsePage(cursorDate, cursorId, size + 1);
+
+        boolean hasNext = purchases.size() > size;
+        if (hasNext) {
+            purchases = purchases.subList(0, size);
+        }
+        return new PurchasePageDto(purchases, hasNext);
+    }
+
+    /**
+     * 모든 구매 내역을 CSV 로 내보냄
+     * 구매 항목 한 줄씩 DB 에서 읽는 즉시 out 에 쓰므로 내역이 아무리 많아도 메모리 사용량이 일정함
+     * @param out CSV 를 쓸 스트림 (닫지 않음)
+     * @throws IOException 스트림 쓰기에 실패할 경우
+     */
+    public void exportPurchasesCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF'); // 엑셀에서 한글이 깨지지 않도록 BOM 추가
+        writer.write("purchaseId,purchaseDate,state,productId,productName,orderPrice,orderQuantity\n");
+
+        try (Stream<PurchaseExportRow> rows = purchaseRepository.streamExportRows()) {
+            Iterator<PurchaseExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PurchaseExportRow row = iterator.next();
+                writer.write(row.getPurchaseId() + "," + row.getPurchaseDate() + "," + row.getState() + ","
+                        + nullToEmpty(row.getProductId()) + "," + csvEscape(row.getProductName()) + ","
+                        + nullToEmpty(row.getOrderPrice()) + "," + nullToEmpty(row.getOrderQuantity()) + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
 
-        return purchaseList.stream()
-                .map(purchase -> new PurchaseResponseDto(purchase))
-                .collect(Collectors.toList());
+    /**
+     * CSV 한 칸으로 바꿈, 엑셀에서 수식으로 실행되지 않도록 =,+,-,@ 로 시작하면 앞에 ' 를 붙임
+     */
+    private static String csvEscape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * 기간 매출 리포트, 원본 구매 내역이 아니라 판매 집계 테이블에서 조회함
+     * @param from 시작일 (포함)
+     * @param to 종료일 (포함)
+     * @param granularity 시간대별/일별
+     * @param productId 특정 제품만 볼때 제품 ID, 전체면 null
+     * @return 구간, 제품별 판매/환불 수량과 금액
+     */
+    public List<SalesReportRow> findSalesReport(LocalDate from, LocalDate to, SalesGranularity granularity, Integer productId) {
+        if (from.isAfter(to)) {
+            throw new IllegalStateException("시작일은 종료일보다 늦을 수 없습니다.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) + 1 > granularity.getMaxDays()) {
+            throw new IllegalStateException(granularity + " 단위 리포트는 최대 " + granularity.getMaxDays() + "일까지 조회할 수 있습니다.");
+        }
+        return salesRollupRepository.findReport(from, to.plusDays(1), granularity, productId);
     }
 
     /**
-     * QR 코드 생성
+     * 원본 구매 내역으로 판매 집계를 다시 만듦
+     * @return 다시 만든 집계 행 수
+     */
+    @Transactional
+    public int rebuildSalesRollup() {
+        return salesRollupService.rebuild();
+    }
+
+    /**
+     * QR 코드 생성 (기본 크기 PNG)
      * @param productId 제품 ID
      * @return QR 코드
      * @throws Exception QR 코드 이미지를 스트림에 쓰는 데 실패할 경우
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // DB를 사용하지 않으므로 커넥션을 잡지 않음
     public byte[] generateQrCodeImage(int productId) throws Exception {
-        String content = String.valueOf(productId);
+        return generateQrCodeImage(productId, DEFAULT_QR_SIZE, QrImageFormat.PNG);
+    }
+
+    /**
+     * QR 코드 생성, 한번 만든 이미지는 캐시에 보관해두고 같은 요청이 오면 다시 인코딩하지 않음
+     * @param productId 제품 ID
+     * @param size 이미지 가로,세로 크기(px)
+     * @param format 이미지 포맷
+     * @return QR 코드
+     * @throws Exception QR 코드 이미지를 스트림에 쓰는 데 실패할 경우
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public byte[] generateQrCodeImage(int productId, int size, QrImageFormat format) throws Exception {
+        validateQrSize(size);
+        return qrCodeCache.get(productId, size, format, () -> renderQrCodeImage(productId, size, format));
+    }
+
+    /**
+     * QR 코드 크기가 허용 범위 안인지 검사
+     * @param size 이미지 가로,세로 크기(px)
+     */
+    public static void validateQrSize(int size) {
+        if (size < MIN_QR_SIZE || size > MAX_QR_SIZE) {
+            throw new IllegalStateException("QR 코드 크기는 " + MIN_QR_SIZE + " ~ " + MAX_QR_SIZE + " 사이여야 합니다.");
+        }
+    }
+
+    /**
+     * QR 코드 캐시 통계
+     * @return 캐시 적중/실패 횟수 및 사용량
+     */
+    public QrCodeCacheStatsDto getQrCodeCacheStats() {
+        return qrCodeCache.stats();
+    }
+
+    private byte[] renderQrCodeImage(int productId, int size, QrImageFormat format) throws Exception {
+        String content = QrPayload.of(productId);
         QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, 200, 200);
-        ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
 
-        return pngOutputStream.toByteArray();
+        if (format == QrImageFormat.SVG) {
+            // SVG 는 벡터라서 모듈(한 칸) 단위 행렬로 그리고 크기는 viewBox 로 맞춤
+            return QrImageEncoder.toSvg(qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, 0, 0), size);
+        }
+
+        BitMatrix bitMatrix = qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, size, size);
+        return switch (format) {
+            case PNG -> QrImageEncoder.toPng(bitMatrix);
+            case PBM -> QrImageEncoder.toPbm(bitMatrix);
+            default -> {
+                ByteArrayOutputStream imageOutputStream = new ByteArrayOutputStream();
+                MatrixToImageWriter.writeToStream(bitMatrix, format.getImageIoName(), imageOutputStream);
+                yield imageOutputStream.toByteArray();
+            }
+        };
     }
 
 }
@@ -0,0 +1,230 @@
+package min.example.QRp.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import min.example.QRp.dto.BulkRefundRequestDto;
+import min.example.QRp.dto.BulkRefundStatusDto;
+import min.example.QRp.dto.BulkRefundStatusDto.Status;
+import min.example.QRp.repository.PurchaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 일괄 환불 (리콜 등으로 많은 구매를 한번에 환불)
+ * 요청을 받으면 작업만 등록하고 바로 돌아가며, 전용 스레드 하나가 작업을 차례대로 실행함
+ * 구매를 chunkSize 개씩 묶어서 묶음마다 트랜잭션 한번으로
+ *  1. 환불되지 않은 구매만 잠그고 상태를 한번에 REFUNDED 로 바꾸고
+ *  2. 구매 항목을 제품별로 합쳐서 (GROUP BY 한번) 제품마다 재고 UPDATE 한번, 판매 집계 갱신 한번만 함
+ * 구매,구매항목,제품 엔티티를 하나씩 읽지 않으므로 묶음 크기와 상관없이 쿼리 수는 제품 수에만 비례함
+ * 묶음 하나가 실패하면 그 묶음만 롤백되고 작업은 FAILED 가 됨, 앞 묶음은 이미 커밋되어 있고 다시 요청하면 남은 구매만 환불함
+ * 작업 상태는 이 서버 메모리에만 있고 jobRetention 이 지난 완료 작업은 지움
+ */
+@Slf4j
+@Service
+public class BulkRefundService {
+
+    private final PurchaseRepository purchaseRepository;
+    private final StockEngine stockEngine;
+    private final SalesRollupService salesRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration jobRetention;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-refund");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BulkRefundService(PurchaseRepository purchaseRepository,
+                             StockEngine stockEngine,
+                             SalesRollupService salesRollupService,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${refund.bulk.chunk-size:500}") int chunkSize,
+                             @Value("${refund.bulk.job-retention:24h}") Duration jobRetention) {
+        this.purchaseRepository = purchaseRepository;
+        this.stockEngine = stockEngine;
+        this.salesRollupService = salesRollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * 실행중인 묶음까지만 끝내고 남은 작업은 버림 (커밋된 묶음만 반영됨)
+     */
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 일괄 환불 작업 등록
+     * @param request 구매 ID 목록 또는 조건 (제품, 구매일 기간)
+     * @return 등록된 작업 상태 (QUEUED)
+     */
+    public BulkRefundStatusDto start(BulkRefundRequestDto request) {
+        validate(request);
+        removeExpiredJobs();
+        Job job = new Job(UUID.randomUUID().toString(), request, LocalDateTime.now());
+        jobs.put(job.id, job);
+        try {
+            worker.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new IllegalStateException("서버가 종료중이라 환불 작업을 시작할 수 없습니다.");
+        }
+        return job.toDto();
+    }
+
+    /**
+     * 작업 진행 상황 조회
+     * @param jobId 작업 ID
+     * @return 작업 상태
+     */
+    public BulkRefundStatusDto findJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("해당 환불 작업을 찾을 수 없습니다: " + jobId);
+        }
+        return job.toDto();
+    }
+
+    /**
+     * 구매 묶음 하나를 환불 (호출한 트랜잭션에 참여하고, 없으면 새 트랜잭션에서 실행)
+     * @param ids 구매 ID 목록
+     * @param refundedAt 환불 시간
+     * @return 이번에 환불한 구매 수와 복구한 재고 수량
+     */
+    public ChunkResult refundChunk(List<Integer> ids, LocalDateTime refundedAt) {
+        return transactionTemplate.execute(status -> {
+            List<Integer> refunded = purchaseRepository.markRefunded(ids);
+            Map<Integer, long[]> byProduct = purchaseRepository.sumItemsByProduct(refunded);
+
+            Map<Integer, Integer> lines = new TreeMap<>();
+            long units = 0;
+            for (Map.Entry<Integer, long[]> entry : byProduct.entrySet()) {
+                lines.put(entry.getKey(), Math.toIntExact(entry.getValue()[0]));
+                units += entry.getValue()[0];
+            }
+            stockEngine.increase(lines);
+            salesRollupService.recordRefund(byProduct, refundedAt);
+            return new ChunkResult(refunded.size(), units);
+        });
+    }
+
+    private void run(Job job) {
+        job.status = Status.RUNNING;
+        try {
+            List<Integer> ids = targetIds(job.request);
+            job.total = ids.size();
+            for (int start = 0; start < ids.size(); start += chunkSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("서버 종료로 중단되었습니다.");
+                }
+                List<Integer> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+                ChunkResult result = refundChunk(chunk, LocalDateTime.now());
+                job.refunded += result.refunded();
+                job.skipped += chunk.size() - result.refunded();
+                job.restoredUnits += result.restoredUnits();
+                job.processed += chunk.size();
+            }
+            job.finish(Status.COMPLETED, null);
+            log.info("일괄 환불 완료: 작업 {}, 대상 {}건, 환불 {}건, 건너뜀 {}건", job.id, job.total, job.refunded, job.skipped);
+        } catch (RuntimeException e) {
+            job.finish(Status.FAILED, e.getMessage());
+            log.warn("일괄 환불 실패: 작업 {}, {}/{}건 처리후 중단", job.id, job.processed, job.total, e);
+        }
+    }
+
+    /**
+     * 구매 ID 목록이 있으면 중복을 뺀 오름차순 목록, 없으면 조건으로 찾은 환불되지 않은 구매 목록
+     * 오름차순으로 잠가서 동시에 환불하는 다른 트랜잭션과 서로 다른 순서로 잠그지 않도록 함
+     */
+    private List<Integer> targetIds(BulkRefundRequestDto request) {
+        if (request.getPurchaseIds() != null && !request.getPurchaseIds().isEmpty()) {
+            return new ArrayList<>(new TreeSet<>(request.getPurchaseIds()));
+        }
+        LocalDateTime from = request.getFrom() == null ? null : request.getFrom().atStartOfDay();
+        LocalDateTime to = request.getTo() == null ? null : request.getTo().plusDays(1).atStartOfDay();
+        return transactionTemplate.execute(status ->
+                purchaseRepository.findRefundableIds(request.getProductId(), from, to));
+    }
+
+    private static void validate(BulkRefundRequestDto request) {
+        boolean hasIds = request.getPurchaseIds() != null && !request.getPurchaseIds().isEmpty();
+        boolean hasFilter = request.getProductId() != null || request.getFrom() != null || request.getTo() != null;
+        if (hasIds == hasFilter) {
+            throw new IllegalStateException("환불할 구매 ID 목록이나 조건(제품, 기간) 중 하나만 입력해주세요.");
+        }
+        if (hasIds && request.getPurchaseIds().stream().anyMatch(Objects::isNull)) {
+            throw new IllegalStateException("구매 ID 목록에 빈 값이 있습니다.");
+        }
+        if (request.getFrom() != null && request.getTo() != null && request.getFrom().isAfter(request.getTo())) {
+            throw new IllegalStateException("시작일은 종료일보다 늦을 수 없습니다.");
+        }
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiredBefore));
+    }
+
+    /**
+     * @param refunded 이번에 환불한 구매 수 (없거나 이미 환불된 구매는 빠짐)
+     * @param restoredUnits 복구한 재고 수량 합계
+     */
+    public record ChunkResult(int refunded, long restoredUnits) {
+    }
+
+    /**
+     * 작업 상태, 전용 스레드만 고치고 조회 요청은 volatile 로 읽음
+     */
+    private static class Job {
+        private final String id;
+        private final BulkRefundRequestDto request;
+        private final LocalDateTime createdAt;
+        private volatile Status status = Status.QUEUED;
+        private volatile int total;
+        private volatile int processed;
+        private volatile int refunded;
+        private volatile int skipped;
+        private volatile long restoredUnits;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        private Job(String id, BulkRefundRequestDto request, LocalDateTime createdAt) {
+            this.id = id;
+            this.request = request;
+            this.createdAt = createdAt;
+        }
+
+        private void finish(Status status, String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        private BulkRefundStatusDto toDto() {
+            return new BulkRefundStatusDto(id, status, total, processed, refunded, skipped, restoredUnits,
+                    error, createdAt, finishedAt);
+        }
+    }
+}
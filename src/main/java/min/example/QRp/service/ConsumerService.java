@@ -1,45 +1,58 @@
 package min.example.QRp.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import min.example.QRp.cart.CartStore;
 import min.example.QRp.domain.Product;
 import min.example.QRp.domain.Purchase;
 import min.example.QRp.domain.PurchaseItem;
+import min.example.QRp.domain.ReservationStatus;
+import min.example.QRp.dto.CartLineUpdateDto;
 import min.example.QRp.dto.ProductResponseDto;
 import min.example.QRp.dto.PurchaseRequestDto;
 import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
 import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import min.example.QRp.kakao.KakaoPayClient;
+import min.example.QRp.payment.CheckoutSnapshot;
+import min.example.QRp.payment.PaymentStateStore;
+import min.example.QRp.payment.PaymentStateStore.Approval;
+import min.example.QRp.payment.PaymentStateStore.PaymentState;
+import min.example.QRp.repository.ProductCache;
 import min.example.QRp.repository.ProductRepository;
 import min.example.QRp.repository.PurchaseRepository;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 
+@Slf4j
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
+@Timed("qrp.service")
 public class ConsumerService {
 
     private final ProductRepository productRepository;
     private final PurchaseRepository purchaseRepository;
-    private final RestTemplate restTemplate;
-
-    // 카카오페이 API 호출 필수 정보 (Admin Key, URL 등)
-    @Value("${kakao.admin-key}")
-    private String kakaoAdminKey;
-
-    @Value("${kakao.api-url}")
-    private String kakaoApiUrl;
-
+    private final StockEngine stockEngine;
+    private final StockReservationService stockReservationService;
+    private final KakaoPayClient kakaoPayClient;
+    private final SalesRollupService salesRollupService;
+    private final PurchaseGroupCommitter purchaseGroupCommitter;
+    private final ProductCache productCache;
+    private final CartStore cartStore;
+    private final PaymentStateStore paymentStateStore;
+
+    // 카카오페이 결제 후 돌아올 주소
     @Value("${kakao.payment.host}")
     private String paymentHost;
 
@@ -52,126 +65,322 @@ public class ConsumerService {
     @Value("${kakao.payment.fail-url}")
     private String failUrl;
 
-    private final String KAKAO_READY_URL = "/v1/payment/ready";
-    private final String KAKAO_APPROVE_URL = "/v1/payment/approve";
+    // 결제 준비 후 승인,취소 요청을 기다리는 시간
+    @Value("${payment.state.ttl:30m}")
+    private Duration paymentStateTtl;
+
     private final String TEST_CID = "TC0ONETIME";
 
 
     /**
      * 장바구니 정보로 카카오페이 결제 준비 API를 호출
+     * 결제창으로 넘어가기 전에 장바구니 수량만큼 재고를 예약하므로, 재고가 부족하면 결제창으로 가지 않고 바로 실패함
+     * 예약은 자체 트랜잭션으로 먼저 커밋되고, 카카오페이 API 를 기다리는 동안 DB 트랜잭션을 잡고 있지 않음
+     * TID 는 세션이 아니라 결제 상태 저장소에 주문 ID 로 넣고, 돌아올 주소에 주문 ID 를 붙여두므로 승인,취소는 어느 서버에서 받아도 됨
      * @param cart 장바구니 정보 <상품 ID, 구매수량>
-     * @param session 현재 사용자 세션
+     * @param cartId 결제할 장바구니 ID
      * @return 결제 페이지 리다이렉트 URL
      */
-    public KakaoReadyResponseDto kakaoPayReady(Map<Integer, Integer> cart, HttpSession session) {
-
-        //  장바구니 정보 조회 및 총액 계산
-        Map<ProductResponseDto, Integer> detailedCart = getDetailedCart(cart);
-        int totalAmount = detailedCart.entrySet().stream()
-                .mapToInt(entry -> entry.getKey().getPrice() * entry.getValue())
-                .sum();
-
-        // 상품명 생성
-        String itemName = detailedCart.keySet().stream().findFirst().get().getName();
-        if (detailedCart.size() > 1) {
-            itemName += " 외 " + (detailedCart.size() - 1) + "건";
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public KakaoReadyResponseDto kakaoPayReady(Map<Integer, Integer> cart, String cartId) {
+
+        // 결제 내용 고정 (결제 금액이므로 캐시가 아닌 DB 에서 읽음), 승인때는 제품을 다시 읽지 않고 이 가격으로 구매 기록을 만듦
+        CheckoutSnapshot snapshot = CheckoutSnapshot.of(cart, loadProductDtos(cart.keySet(), "장바구니 상품 ID "));
 
         // 주문 ID, 유저 ID 생성
         String partnerOrderId = UUID.randomUUID().toString();
-        String partnerUserId = session.getId();
+        String partnerUserId = cartId;
+        String orderQuery = "?partner_order_id=" + partnerOrderId;
 
-        // HTTP 헤더 설정
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", kakaoAdminKey);
-        headers.set("Content-Type", MediaType.APPLICATION_FORM_URLENCODED_VALUE + ";charset=UTF-8");
+        // 재고 예약 (부족하면 여기서 예외)
+        stockReservationService.reserve(partnerOrderId, cart);
 
         // HTTP 바디 설정
         MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
         body.add("cid", TEST_CID);
         body.add("partner_order_id", partnerOrderId);
         body.add("partner_user_id", partnerUserId);
-        body.add("item_name", itemName);
-        body.add("quantity", String.valueOf(cart.values().stream().mapToInt(Integer::intValue).sum()));
-        body.add("total_amount", String.valueOf(totalAmount));
+        body.add("item_name", snapshot.itemName());
+        body.add("quantity", String.valueOf(snapshot.totalQuantity()));
+        body.add("total_amount", String.valueOf(snapshot.totalAmount()));
         body.add("tax_free_amount", "0");
-        body.add("approval_url", paymentHost + successUrl);
-        body.add("cancel_url", paymentHost + cancelUrl);
-        body.add("fail_url", paymentHost + failUrl);
-
-        HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(body, headers);
-
-        KakaoReadyResponseDto responseDto = restTemplate.postForObject(
-                kakaoApiUrl + KAKAO_READY_URL,
-                entity,
-                KakaoReadyResponseDto.class
-        );
+        body.add("approval_url", paymentHost + successUrl + orderQuery);
+        body.add("cancel_url", paymentHost + cancelUrl + orderQuery);
+        body.add("fail_url", paymentHost + failUrl + orderQuery);
+
+        KakaoReadyResponseDto responseDto;
+        try {
+            responseDto = kakaoPayClient.ready(body);
+        } catch (RuntimeException e) {
+            stockReservationService.release(partnerOrderId);
+            throw e;
+        }
+        if (responseDto == null) {
+            stockReservationService.release(partnerOrderId);
+            throw new IllegalStateException("카카오페이 결제 준비 응답이 없습니다.");
+        }
 
-        // 세션에 정보 저장
-        session.setAttribute("kakao_tid", responseDto.getTid());
-        session.setAttribute("kakao_order_id", partnerOrderId);
+        // 승인,취소때 찾을 수 있도록 주문 ID 로 저장
+        try {
+            paymentStateStore.save(new PaymentState(partnerOrderId, responseDto.getTid(), cartId, snapshot,
+                    LocalDateTime.now().plus(paymentStateTtl)));
+        } catch (RuntimeException e) {
+            stockReservationService.release(partnerOrderId);
+            throw e;
+        }
 
         return responseDto;
     }
 
     /**
      * 카카오페이 "결제 승인" API를 호출후 결제 성공시 DB에 주문 저장
+     * 결제 준비때 예약한 재고를 구매로 전환하므로 승인 단계에서 재고 부족으로 실패하지 않음
+     * 구매 기록은 결제 준비때 고정한 스냅샷의 가격으로 만들고 제품은 다시 읽지 않음
+     * 승인 API 는 트랜잭션 밖에서 부르므로 기다리는 동안 DB 커넥션과 잠금을 잡고 있지 않음
+     * 1. 예약을 APPROVING 으로 바꿔 커밋 (만료된 예약이면 승인 API 를 부르지 않고 실패, 이후로는 만료 처리가 재고를 돌려주지 않음)
+     * 2. 카카오페이 승인 API 호출
+     * 3. 예약 전환과 구매 기록, 결제 상태의 승인 기록을 한 트랜잭션으로 커밋 (그룹 커밋을 켜면 동시에 승인된 결제와 같은 트랜잭션)
+     * 2, 3 이 실패하면 카카오페이 결제를 취소하고 예약을 해제해서, 돈은 나갔는데 구매가 없는 결제가 남지 않음
+     * @param partnerOrderId 결제 준비때 돌아올 주소에 붙인 주문 ID
      * @param pgToken 결제 승인 토큰
-     * @param session 결제 준비 단계에서 저장할 TID와 주문 정보를 불러올 세션
+     * @param cartId 요청한 사용자의 장바구니 ID, 결제 준비때의 장바구니와 같아야 함
      * @return 결제 승인시간, 카드 정보등
      */
-    @Transactional
-    public KakaoApproveResponseDto kakaoPayApprove(String pgToken, HttpSession session) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public KakaoApproveResponseDto kakaoPayApprove(String partnerOrderId, String pgToken, String cartId) {
 
-        // 세션에서 정보 꺼내기
-        String tid = (String) session.getAttribute("kakao_tid");
-        String partnerOrderId = (String) session.getAttribute("kakao_order_id");
-        Map<Integer, Integer> cart = (Map<Integer, Integer>) session.getAttribute("cart");
-        String partnerUserId = session.getId();
+        // 결제 준비때 저장한 정보 꺼내기
+        PaymentState state = findPaymentState(partnerOrderId, cartId)
+                .orElseThrow(() -> new IllegalStateException("카카오페이 결제 정보가 없습니다."));
+        String tid = state.tid();
 
-        if (tid == null || partnerOrderId == null || cart == null) {
-            throw new IllegalStateException("카카오페이 결제 정보가 세션에 없습니다.");
+        // 이미 승인,구매 기록까지 끝난 결제 (승인 버튼 연타, 새로고침 등) 는 남겨둔 승인 기록으로 같은 응답을 줌
+        if (state.isApproved()) {
+            return toApproveResponse(state);
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", kakaoAdminKey);
-        headers.set("Content-Type", MediaType.APPLICATION_FORM_URLENCODED_VALUE + ";charset=UTF-8");
+        // 1. 예약을 승인중으로 바꿈 (만료되었거나 수량이 다르면 예외), 같은 주문의 다른 승인 요청은 여기서 걸러짐
+        try {
+            stockReservationService.beginApproval(partnerOrderId, state.snapshot().quantities());
+        } catch (IllegalStateException e) {
+            return answerDuplicateApprove(state, e);
+        }
 
         MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
         body.add("cid", TEST_CID);
         body.add("tid", tid);
         body.add("partner_order_id", partnerOrderId);
-        body.add("partner_user_id", partnerUserId);
+        body.add("partner_user_id", state.cartId());
         body.add("pg_token", pgToken);
 
-        HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(body, headers);
-
-        // RestTemplate으로 카카오 결제 승인 API 호출
-        KakaoApproveResponseDto responseDto = restTemplate.postForObject(
-                kakaoApiUrl + KAKAO_APPROVE_URL,
-                entity,
-                KakaoApproveResponseDto.class
-        );
+        // 2. 카카오 결제 승인 API 호출 (같은 tid 는 한번만 호출됨)
+        KakaoApproveResponseDto responseDto;
+        try {
+            responseDto = kakaoPayClient.approve(tid, body);
+        } catch (RuntimeException e) {
+            abortApproval(state, false, e);
+            throw e;
+        }
+        if (responseDto == null) {
+            IllegalStateException e = new IllegalStateException("카카오페이 결제 승인 응답이 없습니다.");
+            abortApproval(state, false, e);
+            throw e;
+        }
 
-        if (responseDto != null) {
-            createPurchaseFromCart(cart);
-            session.removeAttribute("kakao_tid");
-            session.removeAttribute("kakao_order_id");
-            session.removeAttribute("cart");
+        // 3. 예약 전환과 구매 기록, 커밋된 뒤에 돌아옴
+        try {
+            purchaseGroupCommitter.execute(state.snapshot().quantities().keySet(), () -> {
+                stockReservationService.convert(partnerOrderId);
+                createPurchaseFromSnapshot(state.snapshot());
+                paymentStateStore.markApproved(partnerOrderId, new Approval(responseDto.getAid(), responseDto.getPaymentMethodType()));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            abortApproval(state, true, e);
+            throw e;
         }
+        cartStore.clear(state.cartId());
 
         return responseDto;
     }
 
+    /**
+     * 예약을 승인중으로 바꾸지 못한 승인 요청에 응답함
+     * 같은 결제 요청이 먼저 승인,구매 기록까지 커밋했으면 (다른 서버에서 처리했어도) 결제 상태의 승인 기록으로 성공 응답을 주고,
+     * 아직 승인중이면 잠시 뒤 다시 요청하게 함
+     */
+    private KakaoApproveResponseDto answerDuplicateApprove(PaymentState state, IllegalStateException cause) {
+        ReservationStatus status = stockReservationService.findStatus(state.partnerOrderId()).orElse(null);
+        if (status == ReservationStatus.APPROVING) {
+            throw new IllegalStateException("결제를 승인하고 있습니다. 잠시 후 다시 시도해주세요.");
+        }
+        if (status != ReservationStatus.CONVERTED) {
+            throw cause;
+        }
+        // 처음 결제 상태를 읽은 뒤에 다른 요청이 커밋했으므로 다시 읽음
+        return paymentStateStore.find(state.partnerOrderId())
+                .filter(PaymentState::isApproved)
+                .map(ConsumerService::toApproveResponse)
+                .orElseThrow(() -> new IllegalStateException("이미 승인된 결제입니다."));
+    }
+
+    /**
+     * 남겨둔 승인 기록으로 승인 API 응답을 다시 만듦
+     */
+    private static KakaoApproveResponseDto toApproveResponse(PaymentState state) {
+        KakaoApproveResponseDto response = new KakaoApproveResponseDto();
+        response.setAid(state.approval().aid());
+        response.setTid(state.tid());
+        response.setPaymentMethodType(state.approval().paymentMethodType());
+        response.setItemName(state.snapshot().itemName());
+        return response;
+    }
+
+    /**
+     * 승인중으로 바꾼 뒤 구매를 기록하지 못한 결제를 되돌림
+     * 카카오페이 결제를 먼저 취소하고, 취소되면 예약을 해제해서 재고를 돌려주고 결제 상태를 지움
+     * 승인 API 가 실패했으면 승인 여부를 알 수 없으므로 (응답 시간초과 등) 똑같이 취소를 요청하고, 승인되지 않은 결제라 거절(4xx)되면 취소할 것이 없다고 봄
+     * 취소도 실패하면 돈이 나갔을 수 있으므로 재고를 돌려주지 않고 예약을 APPROVING 으로 남겨둠 (로그를 보고 직접 확인해야 함)
+     * @param state 결제 상태
+     * @param approved 승인 API 가 성공했으면 true
+     * @param cause 되돌리는 이유, 되돌리다 난 예외는 여기에 붙임
+     */
+    private void abortApproval(PaymentState state, boolean approved, RuntimeException cause) {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("cid", TEST_CID);
+        body.add("tid", state.tid());
+        body.add("cancel_amount", String.valueOf(state.snapshot().totalAmount()));
+        body.add("cancel_tax_free_amount", "0");
+        try {
+            kakaoPayClient.cancel(state.tid(), body);
+        } catch (RuntimeException e) {
+            if (approved || !(e instanceof HttpClientErrorException)) {
+                cause.addSuppressed(e);
+                log.error("결제를 취소하지 못해 재고 예약을 승인중으로 남김: partnerOrderId={}, tid={}", state.partnerOrderId(), state.tid(), e);
+                return;
+            }
+        }
+        try {
+            stockReservationService.releaseApproving(state.partnerOrderId());
+            paymentStateStore.remove(state.partnerOrderId());
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+            log.error("취소한 결제의 재고 예약을 해제하지 못함: partnerOrderId={}", state.partnerOrderId(), e);
+        }
+    }
+
+    /**
+     * 결제 취소,실패시 결제 준비때 예약한 재고를 돌려줌
+     * 장바구니는 남겨두어서 다시 결제할 수 있음
+     * @param partnerOrderId 결제 준비때 돌아올 주소에 붙인 주문 ID
+     * @param cartId 요청한 사용자의 장바구니 ID, 다른 사용자의 주문이거나 이미 승인된 결제면 아무것도 하지 않음
+     */
+    @Transactional
+    public void cancelPayment(String partnerOrderId, String cartId) {
+        findPaymentState(partnerOrderId, cartId).filter(state -> !state.isApproved()).ifPresent(state -> {
+            stockReservationService.release(state.partnerOrderId());
+            paymentStateStore.remove(state.partnerOrderId());
+        });
+    }
+
+    /**
+     * 주문 ID 로 결제 상태를 찾음, 주문 ID 만 알아서는 다른 사용자의 결제를 승인,취소할 수 없도록 장바구니 ID 도 맞아야 함
+     */
+    private Optional<PaymentState> findPaymentState(String partnerOrderId, String cartId) {
+        if (partnerOrderId == null || cartId == null) {
+            return Optional.empty();
+        }
+        return paymentStateStore.find(partnerOrderId)
+                .filter(state -> state.cartId().equals(cartId));
+    }
+
     /**
      * 단일 제품 검색
+     * 제품 캐시에 있으면 DB 를 읽지 않으므로 새 트랜잭션을 시작하지 않음 (readOnly 트랜잭션도 시작할때 커넥션을 잡음)
      * @param productId 검색할 제품 ID
      * @return 해당 ID 제품
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductResponseDto findProductById(int productId){
-        Product product = productRepository.findById(productId)
+        return productCache.get(productId, productRepository::findDtoById)
                 .orElseThrow(() -> new EntityNotFoundException("해당 ID의 상품을 찾을 수 없습니다." + productId));
-        return new ProductResponseDto(product);
+    }
+
+    /**
+     * 장바구니 조회
+     * @param cartId 장바구니 ID
+     * @return <상품ID, 구매수량> (담은 순서 유지)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<Integer, Integer> getCart(String cartId) {
+        return cartStore.get(cartId);
+    }
+
+    /**
+     * 장바구니에 상품 1개 추가, 현재 재고(제품 캐시)를 넘으면 추가하지 않음
+     * 재고 검사와 증가는 저장소에서 한번에 하므로 장바구니 전체를 읽고 다시 쓰지 않음
+     * @param cartId 장바구니 ID
+     * @param productId 추가할 상품 ID
+     * @return 바뀐 줄과 장바구니 총 합계
+     * @throws IllegalStateException 재고가 부족할 경우
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CartLineUpdateDto addToCart(String cartId, int productId) {
+        ProductResponseDto product = findProductById(productId);
+        if (!cartStore.increment(cartId, productId, product.getQuantity())) {
+            throw new IllegalStateException(product.getName() + "의 재고가 부족합니다. (남은 수량: " + product.getQuantity() + "개)");
+        }
+        return toLineUpdate(cartId, productId);
+    }
+
+    /**
+     * 장바구니에서 상품 1개 빼기, 1개였으면 장바구니에서 제거
+     * @param cartId 장바구니 ID
+     * @param productId 뺄 상품 ID
+     * @return 바뀐 줄과 장바구니 총 합계
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CartLineUpdateDto subtractFromCart(String cartId, int productId) {
+        cartStore.decrement(cartId, productId);
+        return toLineUpdate(cartId, productId);
+    }
+
+    /**
+     * 장바구니에서 상품 제거
+     * @param cartId 장바구니 ID
+     * @param productId 제거할 상품 ID
+     * @return 제거된 줄(수량 0)과 장바구니 총 합계
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CartLineUpdateDto removeFromCart(String cartId, int productId) {
+        cartStore.remove(cartId, productId);
+        return toLineUpdate(cartId, productId);
+    }
+
+    /**
+     * 바뀐 뒤 장바구니로 해당 줄과 총 합계를 계산, 제품 정보는 제품 캐시에서 읽음
+     * 삭제된 제품을 장바구니에서 뺀 경우에는 그 줄의 이름,가격이 비어있음
+     * @throws EntityNotFoundException 장바구니에 남은 상품 중 삭제된 상품이 있을 경우
+     */
+    private CartLineUpdateDto toLineUpdate(String cartId, int productId) {
+        Map<Integer, Integer> cart = cartStore.get(cartId);
+        Set<Integer> productIds = new HashSet<>(cart.keySet());
+        productIds.add(productId);
+        Map<Integer, ProductResponseDto> products = productCache.getAll(productIds, productRepository::findAllDtosByIds);
+        checkAllFound(products, cart.keySet(), "장바구니 상품 ID ");
+
+        ProductResponseDto product = products.getOrDefault(productId, new ProductResponseDto(productId, null, 0, 0));
+        int totalAmount = calculateTotalAmount(toDetailedCart(cart, products));
+        return new CartLineUpdateDto(product, cart.getOrDefault(productId, 0), totalAmount, cart.size());
+    }
+
+    /**
+     * 장바구니 비우기
+     * @param cartId 장바구니 ID
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void clearCart(String cartId) {
+        cartStore.clear(cartId);
     }
 
     /**
@@ -182,12 +391,32 @@ public class ConsumerService {
     @Transactional
     public Purchase createPurchase(PurchaseRequestDto purchaseRequestDto){
         List<PurchaseRequestDto.OrderItemDto> orderItems = purchaseRequestDto.getOrderList();
+        List<Integer> productIds = orderItems.stream()
+                .map(PurchaseRequestDto.OrderItemDto::getProductId)
+                .toList();
+        Map<Integer, Product> products = loadProducts(productIds, "상품 ID ");
+
+        // 재고는 DB 에서 조건부 UPDATE 로 차감 (동시에 결제해도 초과 판매되지 않음)
+        Map<Integer, Integer> lines = new HashMap<>();
+        for (PurchaseRequestDto.OrderItemDto itemDto : orderItems) {
+            lines.merge(itemDto.getProductId(), itemDto.getQuantity(), Integer::sum);
+        }
+        stockEngine.decrease(lines);
+        return createPurchase(orderItems, products);
+    }
+
+    /**
+     * 재고를 이미 차감한 제품으로 구매 기록 생성
+     * @param orderItems 구매할 제품ID, 수량
+     * @param products orderItems 의 모든 제품 <상품ID, 제품>
+     * @return DB에 저장된 Purchase 엔티티
+     */
+    private Purchase createPurchase(List<PurchaseRequestDto.OrderItemDto> orderItems, Map<Integer, Product> products){
         List<PurchaseItem> purchaseItems = new ArrayList<>();
         for(PurchaseRequestDto.OrderItemDto itemDto : orderItems){
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new EntityNotFoundException("상품 ID " + itemDto.getProductId() + "을(를) 찾을 수 없습니다."));
+            Product product = products.get(itemDto.getProductId());
 
-            PurchaseItem purchaseItem = PurchaseItem.createPurchaseItem(
+            PurchaseItem purchaseItem = PurchaseItem.createFromReservedStock(
                     product,
                     product.getPrice(),
                     itemDto.getQuantity()
@@ -196,37 +425,59 @@ public class ConsumerService {
         }
         Purchase purchase = Purchase.createPurchase(purchaseItems.toArray(new PurchaseItem[0]));
         purchaseRepository.create(purchase);
+        salesRollupService.recordSale(purchase);
         return purchase;
     }
 
     /**
-     * 장바구니안에 담겨있는 상품ID 및 수량을봄
+     * 장바구니안에 담겨있는 상품ID 및 수량을봄 (화면 표시용이므로 제품 캐시에서 읽음)
      * @param cart <상품ID, 구매수량>
-     * @return 상품 정보와 수량이 매핑된 결과 맵
+     * @return 상품 정보와 수량이 매핑된 결과 맵 (장바구니 순서 유지)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Map<ProductResponseDto, Integer> getDetailedCart(Map<Integer, Integer> cart) {
-        Map<ProductResponseDto, Integer> detailedCart = new HashMap<>();
+        return toDetailedCart(cart, loadCachedProducts(cart.keySet(), "장바구니 상품 ID "));
+    }
 
+    private static Map<ProductResponseDto, Integer> toDetailedCart(Map<Integer, Integer> cart, Map<Integer, ProductResponseDto> products) {
+        Map<ProductResponseDto, Integer> detailedCart = new LinkedHashMap<>();
         for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
-            int productId = entry.getKey();
-            int quantity = entry.getValue();
-
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new EntityNotFoundException("장바구니 상품 ID " + productId + "을(를) 찾을 수 없습니다."));
-
-            detailedCart.put(new ProductResponseDto(product), quantity);
+            detailedCart.put(products.get(entry.getKey()), entry.getValue());
         }
         return detailedCart;
     }
 
     /**
-     * 현재 장바구니가 재고를 초과하는지 검증
+     * 장바구니 총 결제 금액 계산
+     * @param detailedCart getDetailedCart 로 조회한 <상품 정보, 구매수량>
+     * @return 상품 가격 x 수량의 합
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int calculateTotalAmount(Map<ProductResponseDto, Integer> detailedCart) {
+        int totalAmount = 0;
+        for (Map.Entry<ProductResponseDto, Integer> entry : detailedCart.entrySet()) {
+            totalAmount += entry.getKey().getPrice() * entry.getValue();
+        }
+        return totalAmount;
+    }
+
+    /**
+     * 현재 장바구니가 재고를 초과하는지 검증 (수량 변경때마다 부르는 사전 검사이므로 제품 캐시에서 읽음)
+     * 재고가 바뀌면 캐시에서 제거되므로 커밋된 재고로 검사하고, 실제 결제는 StockEngine 이 DB 에서 다시 검사함
      * @param cart <상품ID, 구매수량>
      */
     public void validateStock(Map<Integer, Integer> cart) {
+        validateStock(cart, loadCachedProducts(cart.keySet(), "상품 ID "));
+    }
+
+    /**
+     * 이미 조회한 제품으로 재고 검증
+     * @param cart <상품ID, 구매수량>
+     * @param products cart 의 모든 제품 <상품ID, 제품 정보>
+     */
+    private void validateStock(Map<Integer, Integer> cart, Map<Integer, ProductResponseDto> products) {
         for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
-            Product product = productRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new EntityNotFoundException("상품 ID " + entry.getKey() + "을(를) 찾을 수 없습니다."));
+            ProductResponseDto product = products.get(entry.getKey());
 
             if (product.getQuantity() < entry.getValue()) {
                 throw new IllegalStateException(product.getName() + "의 재고가 부족합니다. (남은 수량: " + product.getQuantity() + "개)");
@@ -235,23 +486,75 @@ public class ConsumerService {
     }
 
     /**
-     * 장바구니 안에 있는 제품 구매로직 실행
-     * @param cart <상품ID, 상품수량>
+     * 결제 준비때 예약(차감)해둔 재고와 고정한 가격으로 구매 기록 생성, 재고를 다시 차감하지 않고 제품도 읽지 않음
+     * 주문가격이 카카오페이에 보낸 금액을 만든 가격과 같으므로 결제 금액과 구매 기록의 합계가 항상 같음
+     * @param snapshot 결제 준비때 고정한 제품, 가격, 수량
      * @return DB에 저장된 최종 Purchase 엔티티
      */
-    @Transactional
-    public Purchase createPurchaseFromCart(Map<Integer, Integer> cart) {
-        validateStock(cart);
-        PurchaseRequestDto dto = new PurchaseRequestDto();
-        List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
+    private Purchase createPurchaseFromSnapshot(CheckoutSnapshot snapshot) {
+        List<PurchaseItem> purchaseItems = new ArrayList<>();
+        for (CheckoutSnapshot.Line line : snapshot.lines()) {
+            purchaseItems.add(PurchaseItem.createFromReservedStock(
+                    productRepository.getReference(line.productId()), line.unitPrice(), line.quantity()));
+        }
+        Purchase purchase = Purchase.createPurchase(purchaseItems.toArray(new PurchaseItem[0]));
+        purchaseRepository.create(purchase);
+        salesRollupService.recordSale(purchase);
+        return purchase;
+    }
 
-        for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
-            PurchaseRequestDto.OrderItemDto itemDto = new PurchaseRequestDto.OrderItemDto();
-            itemDto.setProductId(entry.getKey());
-            itemDto.setQuantity(entry.getValue());
-            orderList.add(itemDto);
+    /**
+     * 여러 제품을 IN 쿼리 한번으로 조회
+     * @param productIds 조회할 제품 ID 목록
+     * @param notFoundPrefix 없는 제품이 있을때 예외 메세지 앞부분
+     * @return <상품ID, 제품>
+     */
+    private Map<Integer, Product> loadProducts(Collection<Integer> productIds, String notFoundPrefix) {
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIds(productIds)) {
+            products.put(product.getProductId(), product);
+        }
+        for (Integer productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new EntityNotFoundException(notFoundPrefix + productId + "을(를) 찾을 수 없습니다.");
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 여러 제품을 제품 캐시에서 조회, 캐시에 없는 제품만 IN 쿼리 한번으로 읽음
+     * 캐시에 없는 제품도 엔티티가 아닌 값(프로젝션)으로 읽으므로 영속성 컨텍스트에 남지 않음
+     * @param productIds 조회할 제품 ID 목록
+     * @param notFoundPrefix 없는 제품이 있을때 예외 메세지 앞부분
+     * @return <상품ID, 제품 정보>
+     */
+    private Map<Integer, ProductResponseDto> loadCachedProducts(Collection<Integer> productIds, String notFoundPrefix) {
+        Map<Integer, ProductResponseDto> products = productCache.getAll(productIds, productRepository::findAllDtosByIds);
+        checkAllFound(products, productIds, notFoundPrefix);
+        return products;
+    }
+
+    /**
+     * 여러 제품 정보를 캐시를 거치지 않고 IN 쿼리 한번으로 값만 읽음 (결제 금액 계산용)
+     * @param productIds 조회할 제품 ID 목록
+     * @param notFoundPrefix 없는 제품이 있을때 예외 메세지 앞부분
+     * @return <상품ID, 제품 정보>
+     */
+    private Map<Integer, ProductResponseDto> loadProductDtos(Collection<Integer> productIds, String notFoundPrefix) {
+        Map<Integer, ProductResponseDto> products = new HashMap<>();
+        for (ProductResponseDto product : productRepository.findAllDtosByIds(productIds)) {
+            products.put(product.getProductId(), product);
+        }
+        checkAllFound(products, productIds, notFoundPrefix);
+        return products;
+    }
+
+    private static void checkAllFound(Map<Integer, ?> products, Collection<Integer> productIds, String notFoundPrefix) {
+        for (Integer productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new EntityNotFoundException(notFoundPrefix + productId + "을(를) 찾을 수 없습니다.");
+            }
         }
-        dto.setOrderList(orderList);
-        return createPurchase(dto);
     }
 }
@@ -0,0 +1,49 @@
+package min.example.QRp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import min.example.QRp.cart.CartStore;
+import min.example.QRp.payment.PaymentStateStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 세션에 묶이지 않은 상태를 주기적으로 정리
+ * 장바구니와 결제 진행 상태는 세션 만료때 같이 지워지지 않으므로
+ * 쿠키가 만료되어 더 찾을 수 없는 장바구니와 승인,취소 요청이 돌아오지 않은 결제 상태를 지움
+ * 재고 예약의 만료 큐는 예약한 서버의 메모리에만 있으므로, 그 서버가 죽어서 남은 만료된 HELD 예약도 여기서 해제함
+ * 서버를 여러대 띄우면 서버마다 돌지만 조건부 DELETE, UPDATE 라서 겹쳐도 문제 없음
+ */
+@Slf4j
+@Component
+public class IdleStateCleaner {
+
+    private final CartStore cartStore;
+    private final PaymentStateStore paymentStateStore;
+    private final StockReservationService stockReservationService;
+    private final Duration cartIdleTimeout;
+
+    public IdleStateCleaner(CartStore cartStore,
+                            PaymentStateStore paymentStateStore,
+                            StockReservationService stockReservationService,
+                            @Value("${cart.cookie.max-age:7d}") Duration cartIdleTimeout) {
+        this.cartStore = cartStore;
+        this.paymentStateStore = paymentStateStore;
+        this.stockReservationService = stockReservationService;
+        this.cartIdleTimeout = cartIdleTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${idle-state.cleanup-interval:10m}", initialDelayString = "${idle-state.cleanup-interval:10m}")
+    public void cleanUp() {
+        LocalDateTime now = LocalDateTime.now();
+        int cartLines = cartStore.removeIdle(now.minus(cartIdleTimeout));
+        int payments = paymentStateStore.removeExpired(now);
+        int reservations = stockReservationService.releaseExpiredHeld(now);
+        if (cartLines > 0 || payments > 0 || reservations > 0) {
+            log.info("오래된 장바구니 {}줄, 만료된 결제 상태 {}개, 만료된 재고 예약 {}개 정리", cartLines, payments, reservations);
+        }
+    }
+}
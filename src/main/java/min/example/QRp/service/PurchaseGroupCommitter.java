@@ -0,0 +1,241 @@
+package min.example.QRp.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 구매 저장 그룹 커밋
+ * 동시에 승인된 카카오페이 결제의 저장 작업 (예약 전환, 구매 기록, 판매 집계, 결제 상태의 승인 기록)을
+ * 전용 스레드 하나가 모아서 트랜잭션 한번으로 실행하고 커밋함
+ * 커밋 횟수(로그 동기화)가 결제 수가 아니라 묶음 수만큼만 일어나고, 묶음 안의 INSERT 는 JDBC 배치로 나감
+ * 각 요청은 자기 작업이 포함된 트랜잭션이 커밋된 뒤에야 돌아가므로 응답을 받은 구매는 항상 저장되어 있음
+ * 묶음 중 하나라도 실패하면 묶음 전체를 롤백하고 작업마다 따로 다시 실행해서 실패한 요청만 실패시킴
+ * 작업끼리는 판매 집계 행을 바꾸는 순서가 섞이므로 (앞 작업이 5번, 뒤 작업이 3번 제품의 집계를 바꾸고 커밋까지 들고 있음)
+ * 묶음의 작업을 실행하기 전에 묶음 전체의 제품을 오름차순으로 먼저 잠가서, 제품을 잠근 뒤 집계를 바꾸는 환불과 교착상태가 생기지 않음
+ * 커밋이 빠른 DB 에서는 전용 스레드를 거치는 비용이 더 커서 (H2 메모리 DB 에서 승인 처리량이 오히려 15% 정도 낮음)
+ * 커밋(로그 동기화)이 승인 처리의 병목인 DB 에서만 켬
+ *
+ * purchase.group-commit.enabled=false(기본)이거나 이미 트랜잭션 안에서 호출되면 호출한 스레드에서 바로 실행함
+ */
+@Slf4j
+@Component
+public class PurchaseGroupCommitter implements MeterBinder {
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager em;
+    private final StockEngine stockEngine;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Job<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong jobs = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public PurchaseGroupCommitter(TransactionTemplate transactionTemplate,
+                                  EntityManager em,
+                                  StockEngine stockEngine,
+                                  @Value("${purchase.group-commit.enabled:false}") boolean enabled,
+                                  @Value("${purchase.group-commit.max-batch:64}") int maxBatch,
+                                  @Value("${purchase.group-commit.max-wait:0ms}") Duration maxWait) {
+        this.transactionTemplate = transactionTemplate;
+        this.em = em;
+        this.stockEngine = stockEngine;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        if (enabled) {
+            this.writer = new Thread(this::drain, "purchase-group-commit");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * 남은 요청을 모두 저장하고 전용 스레드를 멈춤
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        closed = true;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * 저장 작업을 트랜잭션 안에서 실행하고 커밋될때까지 기다림
+     * @param productIds 작업이 재고를 바꾸는 제품 ID (묶음으로 실행할때 미리 잠금)
+     * @param work 트랜잭션 안에서 실행할 작업 (묶음이 실패하면 한번 더 실행될 수 있음)
+     * @return 작업 결과 (커밋된 뒤에 돌려줌)
+     */
+    public <T> T execute(Collection<Integer> productIds, Supplier<T> work) {
+        if (!enabled || closed || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+
+        Job<T> job = new Job<>(Set.copyOf(productIds), work);
+        queue.add(job);
+        if (!writer.isAlive() && queue.remove(job)) { // 종료 직전에 들어와 아무도 꺼내지 않을 요청
+            return transactionTemplate.execute(status -> work.get());
+        }
+        return job.await();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("qrp.purchase.group-commit.groups", groups, AtomicLong::get)
+                .description("그룹 커밋 트랜잭션 수")
+                .register(registry);
+        FunctionCounter.builder("qrp.purchase.group-commit.purchases", jobs, AtomicLong::get)
+                .description("그룹 커밋으로 저장을 시도한 결제 수 (purchases / groups = 평균 묶음 크기)")
+                .register(registry);
+        FunctionCounter.builder("qrp.purchase.group-commit.fallbacks", fallbacks, AtomicLong::get)
+                .description("실패한 결제가 섞여 작업마다 따로 다시 실행한 묶음 수")
+                .register(registry);
+    }
+
+    /**
+     * 전용 스레드 본문, 큐에 쌓인 요청을 최대 maxBatch 개까지 꺼내서 한번에 커밋함
+     * 앞 묶음을 커밋하는 동안 들어온 요청이 다음 묶음이 되므로, maxWait 은 요청이 드물때 조금 더 모으기 위한 시간임
+     */
+    private void drain() {
+        List<Job<?>> group = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, maxBatch - group.size());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxBatch) {
+                    Job<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, maxBatch - group.size());
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            commit(group);
+            group.clear();
+        }
+
+        // 종료: 이미 받은 요청은 마저 저장
+        queue.drainTo(group);
+        if (!group.isEmpty()) {
+            commit(group);
+        }
+    }
+
+    private void commit(List<Job<?>> group) {
+        groups.incrementAndGet();
+        jobs.addAndGet(group.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // 묶음의 작업들은 서로 다른 구매만 만들고 조회는 제품만 하므로, 조회할때마다 쌓인 구매를 flush 할 필요가 없음
+                // (AUTO 면 조회마다 영속성 컨텍스트 전체를 검사해서 묶음이 커질수록 느려짐) 커밋할때 한번에 배치로 보냄
+                em.setFlushMode(FlushModeType.COMMIT);
+                if (group.size() > 1) {
+                    Set<Integer> productIds = new TreeSet<>();
+                    group.forEach(job -> productIds.addAll(job.productIds));
+                    stockEngine.lock(productIds);
+                }
+                group.forEach(Job::run);
+            });
+        } catch (RuntimeException | Error e) {
+            if (group.size() == 1) {
+                group.get(0).fail(e);
+                return;
+            }
+            // 어떤 작업이 실패했는지 모르므로 묶음을 풀어서 따로 실행함 (롤백되었으므로 다시 실행해도 중복되지 않음)
+            fallbacks.incrementAndGet();
+            log.debug("구매 {}건 그룹 커밋 실패, 따로 다시 실행", group.size(), e);
+            for (Job<?> job : group) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> job.run());
+                } catch (RuntimeException | Error jobError) {
+                    job.fail(jobError);
+                    continue;
+                }
+                job.succeed();
+            }
+            return;
+        }
+        group.forEach(Job::succeed);
+    }
+
+    /**
+     * 저장 작업 하나와 그 결과를 기다리는 요청
+     */
+    private static final class Job<T> {
+        private final Set<Integer> productIds;
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        Job(Set<Integer> productIds, Supplier<T> work) {
+            this.productIds = productIds;
+            this.work = work;
+        }
+
+        void run() {
+            result = work.get();
+        }
+
+        void succeed() {
+            future.complete(result);
+        }
+
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+
+        /**
+         * 커밋 또는 실패가 확정될때까지 기다림
+         * 기다리는 중에 인터럽트되어도 이미 넘긴 작업은 저장될 수 있으므로 결과가 나올때까지 기다림
+         */
+        T await() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
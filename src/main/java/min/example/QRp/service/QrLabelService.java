@@ -0,0 +1,259 @@
+package min.example.QRp.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import jakarta.annotation.PreDestroy;
+import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.qr.QrImageFormat;
+import min.example.QRp.qr.QrPayload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 여러 제품의 QR 코드를 한번에 만들어 ZIP 또는 라벨 용지(PNG)로 내보내는 서비스
+ * QR 인코딩은 CPU 작업이므로 전용 ForkJoinPool 에서 병렬로 처리하고,
+ * 결과는 순서대로 응답 스트림에 바로 써서 전체를 메모리에 모으지 않음
+ */
+@Service
+public class QrLabelService {
+
+    // A4 용지를 150dpi 로 출력했을때의 크기
+    static final int PAGE_WIDTH = 1240;
+    static final int PAGE_HEIGHT = 1754;
+    static final int COLUMNS = 4;
+    static final int ROWS = 6;
+    static final int LABELS_PER_PAGE = COLUMNS * ROWS;
+
+    private static final int PAGE_MARGIN = 40;
+    private static final int LABEL_QR_SIZE = 200;
+
+    private final AdminService adminService;
+    private final ForkJoinPool renderPool;
+    private final int window; // 동시에 렌더링을 걸어둘 최대 작업 수, 메모리 사용량 상한
+
+    public QrLabelService(AdminService adminService,
+                          @Value("${qr.label.parallelism:0}") int parallelism) {
+        this.adminService = adminService;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.renderPool = new ForkJoinPool(threads);
+        this.window = threads * 4;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdown();
+    }
+
+    /**
+     * 라벨 용지 페이지 수
+     * @param labelCount 라벨(제품) 개수
+     * @return 페이지 수
+     */
+    public int pageCount(int labelCount) {
+        return Math.max(1, (labelCount + LABELS_PER_PAGE - 1) / LABELS_PER_PAGE);
+    }
+
+    /**
+     * 제품별 QR 코드 PNG 를 ZIP 으로 스트리밍
+     * PNG 는 이미 압축된 데이터라 ZIP 에는 압축 없이(STORED) 담음
+     * @param products QR 코드를 만들 제품들
+     * @param size QR 코드 크기(px)
+     * @param out 응답 스트림
+     * @throws IOException 스트림 쓰기에 실패할 경우
+     */
+    public void writeZip(List<ProductResponseDto> products, int size, OutputStream out) throws IOException {
+        // ZIP 안에서 파일 이름이 겹치면 안되므로 같은 제품은 한번만 담음
+        Set<Integer> seen = new HashSet<>();
+        List<ProductResponseDto> distinctProducts = products.stream()
+                .filter(product -> seen.add(product.getProductId()))
+                .toList();
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        renderInOrder(distinctProducts, product -> renderPng(product.getProductId(), size), (product, png) ->
+                writeStoredEntry(zip, product.getProductId() + ".png", png));
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * 라벨 용지 한 페이지를 PNG 로 스트리밍
+     * @param products QR 코드를 만들 제품들
+     * @param page 출력할 페이지 (1부터 시작)
+     * @param out 응답 스트림
+     * @throws IOException 스트림 쓰기에 실패할 경우
+     */
+    public void writeSheet(List<ProductResponseDto> products, int page, OutputStream out) throws IOException {
+        if (page < 1 || page > pageCount(products.size())) {
+            throw new IllegalStateException("존재하지 않는 페이지입니다: " + page);
+        }
+        int from = (page - 1) * LABELS_PER_PAGE;
+        int to = Math.min(from + LABELS_PER_PAGE, products.size());
+
+        BufferedImage sheet = renderSheet(products.subList(from, to));
+        ImageIO.write(sheet, "PNG", out);
+        out.flush();
+    }
+
+    /**
+     * 모든 라벨 용지 페이지 PNG 를 ZIP 으로 스트리밍
+     * @param products QR 코드를 만들 제품들
+     * @param out 응답 스트림
+     * @throws IOException 스트림 쓰기에 실패할 경우
+     */
+    public void writeSheetsZip(List<ProductResponseDto> products, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        int pages = pageCount(products.size());
+        for (int page = 1; page <= pages; page++) {
+            zip.putNextEntry(new ZipEntry("labels-" + page + ".png"));
+            int from = (page - 1) * LABELS_PER_PAGE;
+            int to = Math.min(from + LABELS_PER_PAGE, products.size());
+            ImageIO.write(renderSheet(products.subList(from, to)), "PNG", zip);
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * 한 페이지 분량의 라벨을 그림, 각 라벨의 QR 인코딩은 병렬로 수행
+     * @param products 이 페이지에 들어갈 제품들 (최대 LABELS_PER_PAGE 개)
+     * @return 라벨 용지 이미지
+     * @throws IOException 렌더링 결과를 받는 중 실패할 경우
+     */
+    BufferedImage renderSheet(List<ProductResponseDto> products) throws IOException {
+        BufferedImage sheet = new BufferedImage(PAGE_WIDTH, PAGE_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = sheet.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, PAGE_WIDTH, PAGE_HEIGHT);
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+
+            int cellWidth = (PAGE_WIDTH - PAGE_MARGIN * 2) / COLUMNS;
+            int cellHeight = (PAGE_HEIGHT - PAGE_MARGIN * 2) / ROWS;
+
+            int[] index = {0};
+            renderInOrder(products, product -> encode(product.getProductId(), LABEL_QR_SIZE), (product, matrix) -> {
+                int x = PAGE_MARGIN + (index[0] % COLUMNS) * cellWidth;
+                int y = PAGE_MARGIN + (index[0] / COLUMNS) * cellHeight;
+                drawMatrix(g, matrix, x + (cellWidth - LABEL_QR_SIZE) / 2, y);
+                drawCaption(g, product, x, y + LABEL_QR_SIZE, cellWidth);
+                index[0]++;
+            });
+        } finally {
+            g.dispose();
+        }
+        return sheet;
+    }
+
+    /**
+     * items 를 renderPool 에서 병렬로 변환하되, 결과는 입력 순서대로 sink 에 전달함
+     * 동시에 진행중인 작업은 window 개로 제한해 제품이 수천개여도 결과가 메모리에 쌓이지 않음
+     */
+    private <T, R> void renderInOrder(List<T> items, Function<T, R> renderer, ResultSink<T, R> sink) throws IOException {
+        Deque<ForkJoinTask<R>> inFlight = new ArrayDeque<>();
+        int submitted = 0;
+        int completed = 0;
+
+        try {
+            while (completed < items.size()) {
+                while (submitted < items.size() && inFlight.size() < window) {
+                    T item = items.get(submitted++);
+                    inFlight.addLast(renderPool.submit(() -> renderer.apply(item)));
+                }
+                R result = inFlight.removeFirst().join();
+                sink.accept(items.get(completed++), result);
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(true)); // 클라이언트가 연결을 끊은 경우 남은 작업 취소
+        }
+    }
+
+    private byte[] renderPng(int productId, int size) {
+        try {
+            return adminService.generateQrCodeImage(productId, size, QrImageFormat.PNG);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("QR 코드 생성에 실패했습니다. 제품 ID: " + productId, e);
+        }
+    }
+
+    private static BitMatrix encode(int productId, int size) {
+        try {
+            return new QRCodeWriter().encode(QrPayload.of(productId), BarcodeFormat.QR_CODE, size, size);
+        } catch (WriterException e) {
+            throw new IllegalStateException("QR 코드 생성에 실패했습니다. 제품 ID: " + productId, e);
+        }
+    }
+
+    private static void drawMatrix(Graphics2D g, BitMatrix matrix, int x, int y) {
+        for (int row = 0; row < matrix.getHeight(); row++) {
+            int column = 0;
+            while (column < matrix.getWidth()) {
+                if (!matrix.get(column, row)) {
+                    column++;
+                    continue;
+                }
+                int start = column;
+                while (column < matrix.getWidth() && matrix.get(column, row)) {
+                    column++;
+                }
+                g.fillRect(x + start, y + row, column - start, 1); // 검은 칸이 이어진 구간은 한번에 칠함
+            }
+        }
+    }
+
+    private static void drawCaption(Graphics2D g, ProductResponseDto product, int x, int y, int cellWidth) {
+        FontMetrics metrics = g.getFontMetrics();
+        String name = product.getName();
+        String price = product.getPrice() + "원 (ID " + product.getProductId() + ")";
+        g.drawString(name, x + Math.max(0, (cellWidth - metrics.stringWidth(name)) / 2), y + metrics.getAscent());
+        g.drawString(price, x + Math.max(0, (cellWidth - metrics.stringWidth(price)) / 2), y + metrics.getAscent() + metrics.getHeight());
+    }
+
+    private static void writeStoredEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    @FunctionalInterface
+    private interface ResultSink<T, R> {
+        void accept(T item, R result) throws IOException;
+    }
+}
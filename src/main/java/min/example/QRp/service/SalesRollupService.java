@@ -0,0 +1,147 @@
+package min.example.QRp.service;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import min.example.QRp.domain.Purchase;
+import min.example.QRp.domain.PurchaseItem;
+import min.example.QRp.domain.PurchaseState;
+import min.example.QRp.dto.PurchaseExportRow;
+import min.example.QRp.repository.PurchaseRepository;
+import min.example.QRp.repository.SalesRollupRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 판매 집계(SalesRollup) 갱신
+ * 구매,환불을 저장하는 트랜잭션 안에서 호출되어 함께 커밋되거나 함께 롤백되므로 집계와 원본 구매 내역이 어긋나지 않음
+ * 판매는 구매 시간대에, 환불은 환불한 시간대에 집계함
+ */
+@Slf4j
+@Service
+@Timed("qrp.service")
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class SalesRollupService {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final PurchaseRepository purchaseRepository;
+
+    /**
+     * 구매를 판매 집계에 더함 (구매를 저장한 뒤 호출해야 구매시간이 정해져 있음)
+     * @param purchase 저장된 구매
+     */
+    public void recordSale(Purchase purchase) {
+        LocalDateTime purchasedAt = purchase.getPurchaseDate();
+        for (Map.Entry<Integer, long[]> entry : sumByProduct(purchase).entrySet()) {
+            long[] sum = entry.getValue();
+            salesRollupRepository.add(purchasedAt.toLocalDate(), purchasedAt.getHour(), entry.getKey(), sum[0], sum[1], 0, 0);
+        }
+    }
+
+    /**
+     * 환불을 환불 시간대의 집계에 더함
+     * @param purchase 환불한 구매
+     * @param refundedAt 환불 시간
+     */
+    public void recordRefund(Purchase purchase, LocalDateTime refundedAt) {
+        recordRefund(sumByProduct(purchase), refundedAt);
+    }
+
+    /**
+     * 여러 구매의 환불을 제품별로 합친 값으로 환불 시간대의 집계에 더함 (일괄 환불)
+     * @param byProduct 제품ID 오름차순 <제품ID, {수량, 금액}>
+     * @param refundedAt 환불 시간
+     */
+    public void recordRefund(Map<Integer, long[]> byProduct, LocalDateTime refundedAt) {
+        for (Map.Entry<Integer, long[]> entry : byProduct.entrySet()) {
+            long[] sum = entry.getValue();
+            salesRollupRepository.add(refundedAt.toLocalDate(), refundedAt.getHour(), entry.getKey(), 0, 0, sum[0], sum[1]);
+        }
+    }
+
+    /**
+     * 원본 구매 내역으로 집계를 처음부터 다시 만듦 (집계가 생기기 전 구매 내역을 옮기거나 어긋났을때 사용)
+     * 구매 내역에는 환불 시간이 없으므로 환불은 구매한 시간대에 집계됨
+     * @return 다시 만든 집계 행 수
+     */
+    @Transactional
+    public int rebuild() {
+        Map<BucketKey, long[]> buckets = new TreeMap<>();
+        try (Stream<PurchaseExportRow> rows = purchaseRepository.streamExportRows()) {
+            Iterator<PurchaseExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PurchaseExportRow row = iterator.next();
+                if (row.getProductId() == null) {
+                    continue; // 항목이 없는 구매
+                }
+                long units = row.getOrderQuantity();
+                long amount = (long) row.getOrderPrice() * row.getOrderQuantity();
+                long[] sum = buckets.computeIfAbsent(
+                        new BucketKey(row.getPurchaseDate().toLocalDate(), row.getPurchaseDate().getHour(), row.getProductId()),
+                        key -> new long[4]);
+                sum[0] += units;
+                sum[1] += amount;
+                if (row.getState() == PurchaseState.REFUNDED) {
+                    sum[2] += units;
+                    sum[3] += amount;
+                }
+            }
+        }
+
+        salesRollupRepository.deleteAll();
+        for (Map.Entry<BucketKey, long[]> entry : buckets.entrySet()) {
+            BucketKey key = entry.getKey();
+            long[] sum = entry.getValue();
+            salesRollupRepository.add(key.date(), key.hour(), key.productId(), sum[0], sum[1], sum[2], sum[3]);
+        }
+        return buckets.size();
+    }
+
+    /**
+     * 시작할때 집계가 비어있는데 구매 내역이 있으면 (집계 기능 이전 데이터, data.sql 샘플 등) 한번 만들어둠
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (salesRollupRepository.count() == 0 && purchaseRepository.count() > 0) {
+            log.info("판매 집계가 비어있어 구매 내역으로 다시 만듦: {}건", rebuild());
+        }
+    }
+
+    /**
+     * 같은 제품이 여러 항목으로 나뉘어 있어도 한 칸에 한번만 더하도록 제품별로 합침
+     * 제품 ID 순서로 갱신해서 동시에 집계하는 트랜잭션끼리 서로 다른 순서로 행 잠금을 잡지 않도록 함
+     * @return <제품ID, {수량, 금액}>
+     */
+    private static Map<Integer, long[]> sumByProduct(Purchase purchase) {
+        Map<Integer, long[]> sums = new TreeMap<>();
+        for (PurchaseItem item : purchase.getPurchaseItems()) {
+            long[] sum = sums.computeIfAbsent(item.getProduct().getProductId(), id -> new long[2]);
+            sum[0] += item.getOrderQuantity();
+            sum[1] += (long) item.getOrderPrice() * item.getOrderQuantity();
+        }
+        return sums;
+    }
+
+    private record BucketKey(LocalDate date, int hour, int productId) implements Comparable<BucketKey> {
+        @Override
+        public int compareTo(BucketKey other) {
+            int byDate = date.compareTo(other.date);
+            if (byDate != 0) {
+                return byDate;
+            }
+            return hour != other.hour ? Integer.compare(hour, other.hour) : Integer.compare(productId, other.productId);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package min.example.QRp.service;
+
+import io.micrometer.core.annotation.Timed;
+import min.example.QRp.cart.CartStore;
+import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.ScanBatchRequestDto.ScanDto;
+import min.example.QRp.dto.ScanBatchResultDto;
+import min.example.QRp.qr.QrPayload;
+import min.example.QRp.repository.ProductCache;
+import min.example.QRp.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * 스캐너가 읽은 QR 묶음을 장바구니에 한번에 반영
+ * 스캔마다 담기 요청을 보내지 않고, 묶음 안의 스캔을 상품별로 합쳐서
+ * 제품 조회(캐시, 없는 것만 IN 쿼리) 한번, 상품마다 재고를 넘지 않게 담는 변경 한번으로 처리함
+ *
+ * 중복으로 세지 않는 스캔
+ *  - 단말이 붙인 스캔 ID 가 같은 스캔 (연결이 끊겨 같은 묶음을 다시 보낸 경우), dedupeTtl 동안 기억함
+ *  - 같은 상품을 debounce 보다 짧은 간격으로 다시 읽은 스캔 (스캐너가 한번 댄 QR 을 여러번 읽은 경우)
+ * 스캔 ID 는 이 서버 메모리에만 기억하므로 서버를 여러대 띄우면 같은 묶음은 같은 서버로 보내야 걸러짐
+ * 기억하는 스캔 ID 는 최대 maxSeenScanIds 개이고, 넘으면 오래된 것부터 잊음 (쿠키 없이 계속 새 장바구니로 보내도 메모리가 끝없이 늘지 않음)
+ */
+@Service
+@Timed("qrp.service")
+public class ScanIngestionService {
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final CartStore cartStore;
+    private final Duration debounce;
+    private final Duration dedupeTtl;
+
+    private final LinkedHashMap<String, LocalDateTime> seenScanIds; // 장바구니 ID + 스캔 ID -> 받은 시각 (받은 순서)
+
+    public ScanIngestionService(ProductRepository productRepository,
+                                ProductCache productCache,
+                                CartStore cartStore,
+                                @Value("${scan.debounce:300ms}") Duration debounce,
+                                @Value("${scan.dedupe-ttl:24h}") Duration dedupeTtl,
+                                @Value("${scan.dedupe-max-entries:100000}") int maxSeenScanIds) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.cartStore = cartStore;
+        this.debounce = debounce;
+        this.dedupeTtl = dedupeTtl;
+        this.seenScanIds = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+                return size() > maxSeenScanIds;
+            }
+        };
+    }
+
+    /**
+     * 스캔 묶음을 장바구니에 담음, 재고를 넘는 만큼은 담지 않고 결과에 읽은 수와 담은 수를 따로 알려줌
+     * @param cartId 장바구니 ID
+     * @param scans 스캔 목록 (읽은 시각이 있으면 그 순서로 처리)
+     * @return 상품별 결과, 담지 못한 스캔, 중복 수, 장바구니 합계
+     */
+    public ScanBatchResultDto ingest(String cartId, List<ScanDto> scans) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ScanDto> ordered = new ArrayList<>(scans);
+        ordered.sort(Comparator.comparing(ScanDto::getScannedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        // 1. 중복을 빼고 상품별로 모음 (처음 읽은 순서 유지)
+        Map<Integer, List<ScanDto>> byProduct = new LinkedHashMap<>();
+        Map<Integer, LocalDateTime> lastCounted = new HashMap<>();
+        List<ScanBatchResultDto.Rejected> rejected = new ArrayList<>();
+        int duplicates = 0;
+        for (ScanDto scan : ordered) {
+            if (scan.getScanId() != null && !markSeen(scanKey(cartId, scan.getScanId()), now)) {
+                duplicates++;
+                continue;
+            }
+            OptionalInt productId = QrPayload.parseProductId(scan.getPayload());
+            if (productId.isEmpty()) {
+                rejected.add(reject(scan, "상품 QR 코드가 아닙니다."));
+                continue;
+            }
+            LocalDateTime last = lastCounted.get(productId.getAsInt());
+            if (last != null && scan.getScannedAt() != null && scan.getScannedAt().isBefore(last.plus(debounce))) {
+                duplicates++;
+                continue;
+            }
+            if (scan.getScannedAt() != null) {
+                lastCounted.put(productId.getAsInt(), scan.getScannedAt());
+            }
+            byProduct.computeIfAbsent(productId.getAsInt(), id -> new ArrayList<>()).add(scan);
+        }
+
+        // 2. 제품 한번에 조회, 3. 상품마다 재고까지만 담음
+        Map<Integer, Integer> added = new LinkedHashMap<>();
+        Set<Integer> done = new HashSet<>(); // 담았거나 담지 않기로 확정한 상품
+        Map<Integer, ProductResponseDto> products;
+        try {
+            products = productCache.getAll(byProduct.keySet(), productRepository::findAllDtosByIds);
+            for (Map.Entry<Integer, List<ScanDto>> entry : byProduct.entrySet()) {
+                ProductResponseDto product = products.get(entry.getKey());
+                if (product == null) {
+                    entry.getValue().forEach(scan -> rejected.add(reject(scan, "상품 ID " + entry.getKey() + "을(를) 찾을 수 없습니다.")));
+                } else {
+                    try {
+                        added.put(product.getProductId(),
+                                cartStore.add(cartId, product.getProductId(), entry.getValue().size(), product.getQuantity()));
+                    } catch (IllegalStateException e) {
+                        entry.getValue().forEach(scan -> rejected.add(reject(scan, e.getMessage()))); // 장바구니 종류 수 초과
+                    }
+                }
+                done.add(entry.getKey());
+            }
+        } catch (RuntimeException e) {
+            // 담지 못한 상품의 스캔만 다시 보낼 수 있게 함 (이미 담은 상품은 다시 보내도 중복으로 셈)
+            forgetScanIds(cartId, byProduct, done);
+            throw e;
+        }
+        return toResult(cartId, byProduct, added, products, rejected, duplicates);
+    }
+
+    /**
+     * 기억하는 기간이 지난 스캔 ID 를 지움
+     */
+    @Scheduled(fixedDelayString = "${idle-state.cleanup-interval:10m}", initialDelayString = "${idle-state.cleanup-interval:10m}")
+    public void removeExpiredScanIds() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(dedupeTtl);
+        synchronized (seenScanIds) {
+            // 받은 순서로 들어있으므로 만료되지 않은 ID 가 나오면 그 뒤는 볼 필요 없음
+            Iterator<LocalDateTime> receivedAt = seenScanIds.values().iterator();
+            while (receivedAt.hasNext() && receivedAt.next().isBefore(expiredBefore)) {
+                receivedAt.remove();
+            }
+        }
+    }
+
+    /**
+     * 처음 받은 스캔 ID 면 기억함
+     * @return 처음 받았으면 true, 이미 받은 스캔 ID 면 false
+     */
+    private boolean markSeen(String key, LocalDateTime receivedAt) {
+        synchronized (seenScanIds) {
+            return seenScanIds.putIfAbsent(key, receivedAt) == null;
+        }
+    }
+
+    private void forgetScanIds(String cartId, Map<Integer, List<ScanDto>> byProduct, Set<Integer> done) {
+        synchronized (seenScanIds) {
+            byProduct.forEach((productId, scans) -> {
+                if (!done.contains(productId)) {
+                    scans.stream()
+                            .filter(scan -> scan.getScanId() != null)
+                            .forEach(scan -> seenScanIds.remove(scanKey(cartId, scan.getScanId())));
+                }
+            });
+        }
+    }
+
+    /**
+     * 담은 뒤 장바구니로 상품별 수량과 총 합계를 계산, 제품 정보는 제품 캐시에서 읽음
+     * 장바구니에 삭제된 제품이 남아있으면 합계에서만 빠지고, 장바구니 화면에서 알려줌
+     */
+    private ScanBatchResultDto toResult(String cartId, Map<Integer, List<ScanDto>> byProduct, Map<Integer, Integer> added,
+                                        Map<Integer, ProductResponseDto> scannedProducts,
+                                        List<ScanBatchResultDto.Rejected> rejected, int duplicates) {
+        Map<Integer, Integer> cart = cartStore.get(cartId);
+        Map<Integer, ProductResponseDto> products = productCache.getAll(cart.keySet(), productRepository::findAllDtosByIds);
+        int totalAmount = 0;
+        for (Map.Entry<Integer, Integer> line : cart.entrySet()) {
+            ProductResponseDto product = products.get(line.getKey());
+            if (product != null) {
+                totalAmount += product.getPrice() * line.getValue();
+            }
+        }
+
+        List<ScanBatchResultDto.Line> lines = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : added.entrySet()) {
+            int productId = entry.getKey();
+            lines.add(new ScanBatchResultDto.Line(productId, scannedProducts.get(productId).getName(),
+                    byProduct.get(productId).size(), entry.getValue(), cart.getOrDefault(productId, 0)));
+        }
+        return new ScanBatchResultDto(lines, rejected, duplicates, totalAmount, cart.size());
+    }
+
+    private static String scanKey(String cartId, String scanId) {
+        return cartId + '\n' + scanId;
+    }
+
+    private static ScanBatchResultDto.Rejected reject(ScanDto scan, String reason) {
+        return new ScanBatchResultDto.Rejected(scan.getScanId(), scan.getPayload(), reason);
+    }
+}
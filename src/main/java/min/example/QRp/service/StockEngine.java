@@ -0,0 +1,104 @@
+package min.example.QRp.service;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import min.example.QRp.domain.Product;
+import min.example.QRp.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 재고 차감/복구를 담당
+ * 엔티티의 quantity 를 읽고 고쳐서 저장하면 동시에 결제한 두 요청이 같은 재고를 보고 둘 다 통과할 수 있으므로
+ * "재고가 충분할때만 차감" 하는 조건부 UPDATE 로 검사와 차감을 DB 에서 한번에 처리함
+ * 차감한 행은 트랜잭션이 끝날때까지 잠겨 있어서 같은 제품을 사는 다른 결제는 그 뒤에 줄을 섬 (제품별 잠금)
+ * 여러 제품을 차감할때는 항상 제품 ID 오름차순으로 잠가서 서로 반대 순서로 기다리는 교착상태가 생기지 않음
+ * 호출한 쪽의 트랜잭션 안에서만 동작하며, 중간에 실패하면 예외로 그 트랜잭션 전체가 롤백되어 앞서 차감한 재고도 되돌아감
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+@Timed("qrp.service")
+public class StockEngine {
+
+    private final ProductRepository productRepository;
+
+    /**
+     * 여러 제품의 재고를 한번에 차감, 하나라도 부족하면 예외
+     * @param lines <상품ID, 차감할 수량>
+     */
+    public void decrease(Map<Integer, Integer> lines) {
+        for (Map.Entry<Integer, Integer> line : sorted(lines).entrySet()) {
+            int productId = line.getKey();
+            int quantity = line.getValue();
+            if (quantity == 0) {
+                continue;
+            }
+            if (!productRepository.decreaseStock(productId, quantity)) {
+                throw insufficientStock(productId);
+            }
+        }
+    }
+
+    /**
+     * 여러 제품의 재고를 한번에 복구 (환불, 결제 취소시 사용)
+     * @param lines <상품ID, 복구할 수량>
+     */
+    public void increase(Map<Integer, Integer> lines) {
+        for (Map.Entry<Integer, Integer> line : sorted(lines).entrySet()) {
+            int productId = line.getKey();
+            int quantity = line.getValue();
+            if (quantity == 0) {
+                continue;
+            }
+            if (!productRepository.increaseStock(productId, quantity)) {
+                throw new EntityNotFoundException("상품 ID " + productId + "을(를) 찾을 수 없습니다.");
+            }
+        }
+    }
+
+    /**
+     * 여러 제품의 행을 제품 ID 오름차순으로 미리 잠금 (한 트랜잭션에서 여러 결제를 차례로 처리할때)
+     * 결제마다 오름차순으로 차감해도 결제끼리는 순서가 섞이므로 (앞 결제가 5번, 뒤 결제가 3번) 처리하기 전에 전체를 잠가둠
+     * 없는 제품은 건너뜀 (그 제품을 산 결제가 차감할때 예외가 남)
+     * @param productIds 잠글 제품 ID
+     */
+    public void lock(Collection<Integer> productIds) {
+        for (int productId : new TreeSet<>(productIds)) {
+            productRepository.lockForUpdate(productId);
+        }
+    }
+
+    /**
+     * 제품 ID 오름차순으로 정렬, 음수 수량은 재고를 늘리게 되므로 막음
+     */
+    private static Map<Integer, Integer> sorted(Map<Integer, Integer> lines) {
+        Map<Integer, Integer> sorted = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            if (line.getValue() < 0) {
+                throw new IllegalStateException("수량은 0개 이상이어야 합니다. (상품 ID: " + line.getKey() + ")");
+            }
+            sorted.put(line.getKey(), line.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * 차감에 실패했을때 제품이 없는 것인지 재고가 부족한 것인지 구분해서 예외를 만듦
+     */
+    private RuntimeException insufficientStock(int productId) {
+        Integer remaining = productRepository.findCurrentQuantity(productId).orElse(null);
+        if (remaining == null) {
+            return new EntityNotFoundException("상품 ID " + productId + "을(를) 찾을 수 없습니다.");
+        }
+        String name = productRepository.findById(productId).map(Product::getName).orElse("상품 ID " + productId);
+        return new IllegalStateException(name + "의 재고가 부족합니다. (남은 수량: " + remaining + "개)");
+    }
+}
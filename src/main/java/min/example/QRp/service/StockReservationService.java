@@ -0,0 +1,272 @@
+package min.example.QRp.service;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import min.example.QRp.domain.ReservationStatus;
+import min.example.QRp.domain.StockReservation;
+import min.example.QRp.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 카카오페이 결제 준비~승인 사이에 재고를 잡아두는 서비스
+ * 결제 준비(ready)때 재고를 차감해서 예약하고, 승인되면 그 예약을 구매로 전환, 취소/실패/만료되면 재고를 돌려줌
+ * 승인은 HELD -> APPROVING (승인 API 호출 전 커밋) -> CONVERTED (구매 기록과 같이 커밋) 순서로 바뀌고,
+ * APPROVING 인 예약은 카카오페이에서 돈이 나갔을 수 있으므로 만료되어도 돌려주지 않음
+ * 만료는 DB 를 주기적으로 훑지 않고 예약마다 만료 시간을 DelayQueue 에 넣어두고
+ * 전용 스레드 하나가 만료 시간이 된 예약만 꺼내서 처리함 (만료 전에는 잠들어 있음)
+ * DelayQueue 는 메모리에만 있으므로 서버가 시작될때 한번 HELD 예약을 읽어 다시 넣고,
+ * 다른 서버가 예약한 뒤 죽은 경우를 위해 IdleStateCleaner 가 주기적으로 만료된 HELD 예약을 DB 에서 찾아 해제함
+ * 만료 처리가 실패하면 (DB 장애 등) 큐에 다시 넣고 retry-backoff 부터 두배씩 늘린 시간 (최대 5분) 뒤에 다시 시도함
+ */
+@Slf4j
+@Service
+@Transactional
+@Timed("qrp.service")
+public class StockReservationService {
+
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(5);
+
+    private final StockReservationRepository stockReservationRepository;
+    private final StockEngine stockEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration retryBackoff;
+
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+    private final Thread sweeper;
+
+    public StockReservationService(StockReservationRepository stockReservationRepository,
+                                   StockEngine stockEngine,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${stock.reservation.ttl:15m}") Duration ttl,
+                                   @Value("${stock.reservation.retry-backoff:1s}") Duration retryBackoff) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.stockEngine = stockEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.retryBackoff = retryBackoff;
+        this.sweeper = new Thread(this::sweep, "stock-reservation-sweeper");
+        this.sweeper.setDaemon(true);
+        this.sweeper.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.interrupt();
+    }
+
+    /**
+     * 장바구니 수량만큼 재고를 차감해서 예약, 재고가 부족하면 예외
+     * @param partnerOrderId 결제 주문 ID
+     * @param cart <상품ID, 수량>
+     * @return 저장된 예약
+     */
+    public StockReservation reserve(String partnerOrderId, Map<Integer, Integer> cart) {
+        stockEngine.decrease(cart);
+        StockReservation reservation = stockReservationRepository.create(
+                StockReservation.hold(partnerOrderId, cart, LocalDateTime.now().plus(ttl)));
+        // 트랜잭션이 롤백되어도 만료 처리에서 예약이 없거나 HELD 가 아니면 아무것도 하지 않으므로 바로 등록함
+        expiries.add(new Expiry(reservation.getReservationId(), reservation.getExpiresAt()));
+        return reservation;
+    }
+
+    /**
+     * 결제 승인 API 를 부르기 전에 예약을 APPROVING 으로 바꿈 (HELD 이고 만료되지 않은 예약만)
+     * 커밋된 뒤에는 만료 처리가 재고를 돌려주지 않고, 같은 주문의 다른 승인 요청은 여기서 실패함
+     * @param partnerOrderId 결제 주문 ID
+     * @param expectedLines 결제 준비때 고정한 <상품ID, 수량>, 예약과 다르면 바꾸지 않음
+     * @throws IllegalStateException 예약이 없거나, 수량이 다르거나, 이미 만료/해제/승인중/전환된 경우
+     */
+    public void beginApproval(String partnerOrderId, Map<Integer, Integer> expectedLines) {
+        StockReservation reservation = stockReservationRepository.findByPartnerOrderId(partnerOrderId)
+                .orElseThrow(() -> new IllegalStateException("재고 예약 정보가 없습니다."));
+
+        // 예약과 스냅샷은 같은 장바구니로 만들었으므로 다르면 승인하지 않음 (예약은 HELD 로 남고 만료때 돌려줌)
+        if (!new HashMap<>(reservation.getLines()).equals(expectedLines)) {
+            throw new IllegalStateException("결제 준비때와 예약된 수량이 다릅니다. 다시 결제해주세요.");
+        }
+        if (!stockReservationRepository.changeStatus(reservation.getReservationId(),
+                ReservationStatus.HELD, ReservationStatus.APPROVING, LocalDateTime.now())) {
+            throw new IllegalStateException("결제 가능 시간이 지나 재고 예약이 취소되었습니다. 다시 결제해주세요.");
+        }
+    }
+
+    /**
+     * 승인중인 예약을 구매로 전환, 구매 기록과 같은 트랜잭션에서 호출해야 함
+     * 호출한 트랜잭션이 롤백되면 예약은 APPROVING 으로 남음
+     * @param partnerOrderId 결제 주문 ID
+     * @return 예약했던 <상품ID, 수량>
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> convert(String partnerOrderId) {
+        StockReservation reservation = stockReservationRepository.findByPartnerOrderId(partnerOrderId)
+                .orElseThrow(() -> new IllegalStateException("재고 예약 정보가 없습니다."));
+
+        if (!stockReservationRepository.changeStatus(reservation.getReservationId(),
+                ReservationStatus.APPROVING, ReservationStatus.CONVERTED, null)) {
+            throw new IllegalStateException("승인중인 재고 예약이 아닙니다.");
+        }
+        return new HashMap<>(reservation.getLines());
+    }
+
+    /**
+     * 승인중이던 예약을 해제하고 재고를 돌려줌 (승인이 실패했거나 승인한 결제를 취소한 뒤)
+     * @param partnerOrderId 결제 주문 ID
+     * @return 해제했으면 true
+     */
+    public boolean releaseApproving(String partnerOrderId) {
+        return stockReservationRepository.findByPartnerOrderId(partnerOrderId)
+                .map(reservation -> release(reservation, ReservationStatus.APPROVING))
+                .orElse(false);
+    }
+
+    /**
+     * DB 에 커밋된 예약 상태 조회
+     * @param partnerOrderId 결제 주문 ID
+     * @return 예약 상태, 예약이 없으면 빈 값
+     */
+    @Transactional(readOnly = true)
+    public Optional<ReservationStatus> findStatus(String partnerOrderId) {
+        return stockReservationRepository.findStatusByPartnerOrderId(partnerOrderId);
+    }
+
+    /**
+     * 예약을 해제하고 재고를 돌려줌 (결제 취소, 실패시), 이미 전환/해제된 예약이면 아무것도 하지 않음
+     * @param partnerOrderId 결제 주문 ID
+     * @return 해제했으면 true
+     */
+    public boolean release(String partnerOrderId) {
+        return stockReservationRepository.findByPartnerOrderId(partnerOrderId)
+                .map(reservation -> release(reservation, ReservationStatus.HELD))
+                .orElse(false);
+    }
+
+    /**
+     * 서버 시작시 남아있는 HELD 예약을 만료 큐에 다시 넣음, 이미 만료된 예약은 곧바로 해제됨
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void scheduleHeldReservations() {
+        for (StockReservation reservation : stockReservationRepository.findAllHeld()) {
+            expiries.add(new Expiry(reservation.getReservationId(), reservation.getExpiresAt()));
+        }
+    }
+
+    /**
+     * 만료 시간이 지났는데 아직 HELD 인 예약을 모두 해제 (만료 큐를 들고 있던 서버가 죽었거나 놓친 예약)
+     * 예약마다 따로 커밋하고, 조건부 UPDATE 라서 여러 서버가 동시에 돌거나 만료 스레드와 겹쳐도 재고는 한번만 돌려줌
+     * @param now 기준 시간
+     * @return 해제한 예약 수
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int releaseExpiredHeld(LocalDateTime now) {
+        int released = 0;
+        for (Integer reservationId : stockReservationRepository.findExpiredHeldIds(now)) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> releaseExpired(reservationId)))) {
+                    released++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("재고 예약 {} 만료 처리 실패, 다음 정리때 다시 시도", reservationId, e);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 만료 큐에서 대기중인 예약 수
+     * @return 대기중인 예약 수
+     */
+    public int pendingExpiryCount() {
+        return expiries.size();
+    }
+
+    private boolean release(StockReservation reservation, ReservationStatus from) {
+        // 승인과 동시에 와도 RELEASED 로 바꾼 쪽만 재고를 돌려줌
+        if (!stockReservationRepository.changeStatus(reservation.getReservationId(), from, ReservationStatus.RELEASED, null)) {
+            return false;
+        }
+        stockEngine.increase(reservation.getLines());
+        return true;
+    }
+
+    /**
+     * 만료 시간이 된 예약을 꺼내 해제하는 스레드 본문
+     */
+    private void sweep() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Expiry expiry;
+            try {
+                expiry = expiries.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> releaseExpired(expiry.reservationId()));
+            } catch (RuntimeException e) {
+                // 버리면 이 서버에서는 다시 꺼내지 않으므로 재고가 예약된 채로 남음
+                Duration backoff = retryBackoff(expiry.attempt());
+                log.warn("재고 예약 {} 만료 처리 실패, {} 뒤에 다시 시도", expiry.reservationId(), backoff, e);
+                expiries.add(expiry.retryAfter(backoff));
+            }
+        }
+    }
+
+    /**
+     * 실패한 횟수만큼 두배씩 늘린 재시도 대기 시간
+     * @param attempt 앞서 실패한 횟수 (처음 실패했으면 0)
+     * @return 재시도까지 기다릴 시간 (최대 MAX_RETRY_BACKOFF)
+     */
+    private Duration retryBackoff(int attempt) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt, 20));
+        return backoff.compareTo(MAX_RETRY_BACKOFF) > 0 ? MAX_RETRY_BACKOFF : backoff;
+    }
+
+    private boolean releaseExpired(int reservationId) {
+        StockReservation reservation = stockReservationRepository.findById(reservationId).orElse(null);
+        return reservation != null && reservation.getStatus() == ReservationStatus.HELD
+                && release(reservation, ReservationStatus.HELD);
+    }
+
+    /**
+     * DelayQueue 에 넣는 만료 항목, 만료 시간(재시도면 재시도 시간)이 되어야 take() 로 꺼낼 수 있음
+     * attempt 는 만료 처리에 실패한 횟수
+     */
+    private record Expiry(int reservationId, long expiresAtMillis, int attempt) implements Delayed {
+
+        Expiry(int reservationId, LocalDateTime expiresAt) {
+            this(reservationId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), 0);
+        }
+
+        Expiry retryAfter(Duration backoff) {
+            return new Expiry(reservationId, System.currentTimeMillis() + backoff.toMillis(), attempt + 1);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((Expiry) other).expiresAtMillis);
+        }
+    }
+}
@@ -8,22 +8,26 @@ INSERT INTO product (name, price, quantity) VALUES ('신라면', 1150, 250);
 INSERT INTO product (name, price, quantity) VALUES ('삼각김밥 참치마요', 1300, 80);
 
 
-INSERT INTO purchase (state, purchase_date) VALUES ('COMPLETED', '2025-10-28T10:00:00');
-INSERT INTO purchase (state, purchase_date) VALUES ('COMPLETED', '2025-10-29T11:30:00');
-INSERT INTO purchase (state, purchase_date) VALUES ('REFUNDED', '2025-10-30T14:15:00');
-INSERT INTO purchase (state, purchase_date) VALUES ('COMPLETED', '2025-11-01T12:00:00');
-INSERT INTO purchase (state, purchase_date) VALUES ('COMPLETED', '2025-11-02T16:00:00');
+INSERT INTO purchase (purchase_id, state, purchase_date) VALUES (1, 'COMPLETED', '2025-10-28T10:00:00');
+INSERT INTO purchase (purchase_id, state, purchase_date) VALUES (2, 'COMPLETED', '2025-10-29T11:30:00');
+INSERT INTO purchase (purchase_id, state, purchase_date) VALUES (3, 'REFUNDED', '2025-10-30T14:15:00');
+INSERT INTO purchase (purchase_id, state, purchase_date) VALUES (4, 'COMPLETED', '2025-11-01T12:00:00');
+INSERT INTO purchase (purchase_id, state, purchase_date) VALUES (5, 'COMPLETED', '2025-11-02T16:00:00');
 
 
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (1, 1, 2, 1500);
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (1, 3, 1, 2500);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (1, 1, 1, 2, 1500);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (2, 1, 3, 1, 2500);
 
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (2, 2, 1, 1700);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (3, 2, 2, 1, 1700);
 
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (3, 4, 3, 950);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (4, 3, 4, 3, 950);
 
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (4, 7, 2, 1150);
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (4, 8, 1, 1300);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (5, 4, 7, 2, 1150);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (6, 4, 8, 1, 1300);
 
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (5, 5, 1, 1700);
-INSERT INTO purchase_item (purchase_id, product_id, order_quantity, order_price) VALUES (5, 6, 2, 1200);
\ No newline at end of file
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (7, 5, 5, 1, 1700);
+INSERT INTO purchase_item (purchase_item_id, purchase_id, product_id, order_quantity, order_price) VALUES (8, 5, 6, 2, 1200);
+
+-- 구매,구매항목 키는 시퀀스에서 50개씩 받아서 쓰므로 (pooled) 위에서 직접 넣은 키와 겹치지 않는 곳부터 시작
+ALTER SEQUENCE purchase_seq RESTART WITH 101;
+ALTER SEQUENCE purchase_item_seq RESTART WITH 101;
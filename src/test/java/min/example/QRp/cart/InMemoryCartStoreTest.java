@@ -0,0 +1,147 @@
+package min.example.QRp.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCartStoreTest {
+
+    private final InMemoryCartStore cartStore = new InMemoryCartStore();
+
+    @Test
+    void 담은순서대로_조회되고_빈장바구니는_사라진다() {
+        // given
+        cartStore.increment("cart", 3, 10);
+        cartStore.increment("cart", 1, 10);
+        cartStore.increment("cart", 3, 10);
+
+        // when
+        Map<Integer, Integer> cart = cartStore.get("cart");
+        cartStore.decrement("cart", 1);
+        cartStore.remove("cart", 3);
+
+        // then
+        assertEquals(List.of(3, 1), new ArrayList<>(cart.keySet()));
+        assertEquals(List.of(2, 1), new ArrayList<>(cart.values()));
+        assertTrue(cartStore.get("cart").isEmpty());
+        assertEquals(0, cartStore.summary().carts());
+    }
+
+    @Test
+    void 동시에_담아도_재고를_넘지않는다() throws Exception {
+        // given
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when 재고 50개 상품을 8개 스레드가 20번씩 담음
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int added = 0;
+                for (int i = 0; i < 20; i++) {
+                    if (cartStore.increment("cart", 1, 50)) {
+                        added++;
+                    }
+                }
+                return added;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // then
+        int added = 0;
+        for (Future<Integer> future : futures) {
+            added += future.get();
+        }
+        assertEquals(50, added);
+        assertEquals(Map.of(1, 50), cartStore.get("cart"));
+    }
+
+    @Test
+    void 여러개를_한번에_담으면_재고까지만_담기고_담은수를_돌려준다() {
+        // given
+        cartStore.increment("cart", 1, 5);
+
+        // when
+        int added = cartStore.add("cart", 1, 3, 5);
+        int overStock = cartStore.add("cart", 1, 3, 5);
+        int full = cartStore.add("cart", 1, 1, 5);
+        int newLine = cartStore.add("cart", 2, 2, 10);
+
+        // then
+        assertEquals(3, added);
+        assertEquals(1, overStock);
+        assertEquals(0, full);
+        assertEquals(2, newLine);
+        assertEquals(Map.of(1, 5, 2, 2), cartStore.get("cart"));
+    }
+
+    @Test
+    void 최대종류수를_넘으면_예외발생() {
+        // given
+        for (int productId = 1; productId <= CartStore.MAX_LINES; productId++) {
+            cartStore.increment("cart", productId, 1);
+        }
+
+        // when & then
+        assertThrows(IllegalStateException.class, () -> cartStore.increment("cart", CartStore.MAX_LINES + 1, 1));
+        assertTrue(cartStore.increment("cart", 1, 2)); // 이미 있는 상품은 더 담을 수 있음
+    }
+
+    @Test
+    void IntIntMap은_실제크기만큼만_직렬화된다() throws Exception {
+        // given
+        IntIntMap map = new IntIntMap(64);
+        map.put(7, 2);
+        map.put(3, 1);
+
+        // when
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        IntIntMap restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (IntIntMap) in.readObject();
+        }
+
+        // then
+        assertEquals(map.toMap(), restored.toMap());
+        assertTrue(bytes.size() < 64 * 4, "용량(64)이 아니라 2개만 써야 함: " + bytes.size());
+    }
+
+    @Test
+    void 기준시각이후로_바뀌지않은_장바구니만_지운다() {
+        // given
+        InMemoryCartStore store = new InMemoryCartStore();
+        store.increment("cart-1", 1, 10);
+        store.increment("cart-2", 1, 10);
+
+        // when
+        int notIdle = store.removeIdle(LocalDateTime.now().minusMinutes(1));
+        int idle = store.removeIdle(LocalDateTime.now().plusMinutes(1));
+
+        // then
+        assertEquals(0, notIdle);
+        assertEquals(2, idle);
+        assertEquals(new CartStore.Summary(0, 0, 0), store.summary());
+    }
+}
@@ -0,0 +1,112 @@
+package min.example.QRp.cart;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class JdbcCartStoreTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private JdbcCartStore cartStore;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = new JdbcCartStore(jdbcTemplate);
+    }
+
+    @DisplayName("담은 순서대로 조회되고, 재고를 넘어서는 담기지 않는다.")
+    @Test
+    void incrementWithStockLimit() {
+        // given
+        cartStore.increment("cart", 5, 2);
+        cartStore.increment("cart", 2, 10);
+        cartStore.increment("cart", 5, 2);
+
+        // when
+        boolean overStock = cartStore.increment("cart", 5, 2);
+        boolean soldOut = cartStore.increment("cart", 9, 0);
+        Map<Integer, Integer> cart = cartStore.get("cart");
+
+        // then
+        assertThat(overStock).isFalse();
+        assertThat(soldOut).isFalse();
+        assertThat(new ArrayList<>(cart.keySet())).isEqualTo(List.of(5, 2));
+        assertThat(cart).containsEntry(5, 2).containsEntry(2, 1);
+    }
+
+    @DisplayName("여러개를 한번에 담으면 재고까지만 담기고 실제로 담은 수를 돌려준다.")
+    @Test
+    void addWithStockLimit() {
+        // given
+        cartStore.increment("cart", 1, 5);
+
+        // when
+        int added = cartStore.add("cart", 1, 3, 5);
+        int overStock = cartStore.add("cart", 1, 3, 5);
+        int full = cartStore.add("cart", 1, 1, 5);
+        int newLine = cartStore.add("cart", 2, 2, 10);
+
+        // then
+        assertThat(added).isEqualTo(3);
+        assertThat(overStock).isEqualTo(1);
+        assertThat(full).isZero();
+        assertThat(newLine).isEqualTo(2);
+        assertThat(cartStore.get("cart")).containsEntry(1, 5).containsEntry(2, 2);
+    }
+
+    @DisplayName("1개 남은 상품을 빼면 줄이 지워지고, 장바구니끼리는 섞이지 않는다.")
+    @Test
+    void decrementAndClear() {
+        // given
+        cartStore.increment("cart", 1, 10);
+        cartStore.increment("cart", 2, 10);
+        cartStore.increment("cart", 2, 10);
+        cartStore.increment("other", 1, 10);
+
+        // when
+        cartStore.decrement("cart", 1);
+        cartStore.decrement("cart", 2);
+        CartStore.Summary before = cartStore.summary();
+        cartStore.clear("cart");
+
+        // then
+        assertThat(before).isEqualTo(new CartStore.Summary(2, 2, 2));
+        assertThat(cartStore.get("cart")).isEmpty();
+        assertThat(cartStore.get("other")).isEqualTo(Map.of(1, 1));
+    }
+
+    @DisplayName("마지막으로 바뀐 줄이 기준시각보다 오래된 장바구니만 통째로 지운다.")
+    @Test
+    void removeIdle() {
+        // given
+        cartStore.increment("old", 1, 10);
+        cartStore.increment("old", 2, 10);
+        cartStore.increment("recent", 1, 10);
+        jdbcTemplate.update("update cart_line set updated_at = ? where cart_id = 'old'", LocalDateTime.now().minusDays(8));
+        jdbcTemplate.update("update cart_line set updated_at = ? where cart_id = 'recent' and product_id = 1", LocalDateTime.now().minusDays(8));
+        cartStore.increment("recent", 2, 10);
+
+        // when
+        int removed = cartStore.removeIdle(LocalDateTime.now().minusDays(7));
+
+        // then
+        assertThat(removed).isEqualTo(2); // 지운 줄 수
+        assertThat(cartStore.get("old")).isEmpty();
+        assertThat(cartStore.get("recent")).containsEntry(1, 1).containsEntry(2, 1);
+    }
+}
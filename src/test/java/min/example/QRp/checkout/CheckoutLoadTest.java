@@ -0,0 +1,347 @@
+package min.example.QRp.checkout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import min.example.QRp.cart.CartIdResolver;
+import min.example.QRp.domain.Product;
+import min.example.QRp.kakao.KakaoPayStubServer;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 카카오페이 스텁 서버를 띄워두고 실제 HTTP 로 결제 흐름 전체(장바구니 담기 -> 결제 준비 -> 승인)를 동시에 돌리는 부하 테스트
+ * 단계별 p50/p99 응답 시간과 초당 구매 수를 출력함, 시간이 오래 걸리므로 기본 test 에서는 빠지고 loadTest 로만 실행됨
+ *
+ * ./gradlew loadTest -Dload.users=16 -Dload.checkouts=50 -Dload.stub-latency=50ms -Dload.stub-failure-rate=0.01
+ *
+ * 가상 스레드 모드 비교: 같은 사용자 수로 -Dload.virtual-threads=true 와 false 를 각각 실행해서 purchases/s 를 비교함
+ * (-Dload.tomcat-max-threads=8 처럼 플랫폼 스레드 수를 사용자 수보다 적게 잡으면 차이가 잘 보임, 캐리어 스레드 수는 -Dload.carrier-threads)
+ * 가상 스레드 모드에서는 JFR 로 캐리어 스레드를 잡고 멈춘 위치를 모아서 많은 순으로 출력함 (JFR 부담 없이 재려면 -Dload.pinning-report=false)
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CheckoutLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 8);
+    private static final int CHECKOUTS_PER_USER = Integer.getInteger("load.checkouts", 25);
+    private static final int WARM_UP_CHECKOUTS = Integer.getInteger("load.warm-up", 20);
+    private static final int ITEMS_PER_CART = 3;
+    private static final String[] STEPS = {"cart-add", "ready", "approve", "checkout"};
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("load.virtual-threads");
+
+    static {
+        // 캐리어 스레드 수 (기본은 CPU 수), 부하 발생기와 같은 JVM 이라 CPU 가 적으면 캐리어가 OS 스케줄링에서 밀릴 수 있음
+        String carriers = System.getProperty("load.carrier-threads");
+        if (carriers != null) {
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", carriers);
+        }
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static KakaoPayStubServer stub;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> productIds = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void kakaoStub(DynamicPropertyRegistry registry) throws IOException {
+        stub = KakaoPayStubServer.start(0,
+                KakaoPayStubServer.parseDuration(System.getProperty("load.stub-latency", "30ms")),
+                Duration.ZERO,
+                Double.parseDouble(System.getProperty("load.stub-failure-rate", "0")));
+        registry.add("kakao.api-url", stub::getBaseUrl);
+        registry.add("spring.threads.virtual.enabled", () -> VIRTUAL_THREADS);
+        String maxThreads = System.getProperty("load.tomcat-max-threads");
+        if (maxThreads != null) {
+            registry.add("server.tomcat.threads.max", () -> maxThreads);
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 이 테스트에서 만든 상품과 관련된 구매,예약을 모두 지움
+        jdbcTemplate.update("delete from purchase_item");
+        jdbcTemplate.update("delete from purchase");
+        jdbcTemplate.update("delete from stock_reservation_line");
+        jdbcTemplate.update("delete from stock_reservation");
+        for (Integer productId : productIds) {
+            jdbcTemplate.update("delete from sales_rollup where product_id = ?", productId);
+            jdbcTemplate.update("delete from product where product_id = ?", productId);
+        }
+    }
+
+    @DisplayName("여러 사용자가 동시에 장바구니 담기, 결제 준비, 승인을 반복해도 승인된 결제만큼 구매가 저장된다.")
+    @Test
+    void concurrentCheckout() throws Exception {
+        // given
+        for (int i = 0; i < ITEMS_PER_CART * 2; i++) {
+            Product product = transactionTemplate.execute(status ->
+                    productRepository.create(new Product("부하테스트상품-" + System.nanoTime(), 1000, 1_000_000)));
+            productIds.add(product.getProductId());
+        }
+        Recorder warmUp = new Recorder(WARM_UP_CHECKOUTS);
+        warmUp.runUser(new User(), WARM_UP_CHECKOUTS); // JIT 워밍업
+
+        // when
+        PinningRecorder pinning = VIRTUAL_THREADS && !"false".equals(System.getProperty("load.pinning-report")) ? new PinningRecorder() : null;
+        Recorder recorder = new Recorder(USERS * CHECKOUTS_PER_USER);
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int u = 0; u < USERS; u++) {
+            executor.submit(() -> {
+                start.await();
+                recorder.runUser(new User(), CHECKOUTS_PER_USER);
+                return null;
+            });
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        if (pinning != null) {
+            pinning.close();
+            pinning.print();
+        }
+
+        // then
+        Integer purchases = jdbcTemplate.queryForObject("select count(*) from purchase", Integer.class);
+        assertThat(purchases).isEqualTo(warmUp.succeeded.get() + recorder.succeeded.get());
+        assertThat(recorder.succeeded.get() + recorder.failed.get()).isEqualTo(USERS * CHECKOUTS_PER_USER);
+        if (stub.getFailureCount() == 0) {
+            assertThat(recorder.failed.get()).isZero();
+        }
+
+        System.out.printf("[load] %s 스레드, 사용자 %d명 x %d회, 스텁 지연 %s, 성공 %d, 실패 %d, 스텁 임의실패 %d, %.1f purchases/s%n",
+                VIRTUAL_THREADS ? "가상" : "플랫폼(최대 " + System.getProperty("load.tomcat-max-threads", "200") + ")",
+                USERS, CHECKOUTS_PER_USER, System.getProperty("load.stub-latency", "30ms"),
+                recorder.succeeded.get(), recorder.failed.get(), stub.getFailureCount(),
+                recorder.succeeded.get() / seconds);
+        for (int step = 0; step < STEPS.length; step++) {
+            System.out.printf("[load] %-9s p50 %6.1f ms, p99 %6.1f ms%n",
+                    STEPS[step], recorder.percentile(step, 50), recorder.percentile(step, 99));
+        }
+    }
+
+    /**
+     * 가상 스레드가 캐리어 스레드를 잡은 채로 멈춘 위치를 JFR 이벤트로 모음
+     * - jdk.VirtualThreadPinned: synchronized 안이나 네이티브 프레임 위에서 park (I/O, 락 대기)
+     * - jdk.JavaMonitorEnter: 다른 스레드가 잡고 있는 synchronized 에 들어가려고 기다림, JDK 21 에서는 이 동안 캐리어도 같이 멈춤
+     * JDK 24 부터는 (JEP 491) synchronized 에서 기다려도 캐리어를 놓아주므로 두번째는 문제가 되지 않음
+     * 위치는 스택에서 처음 나오는 JDK 밖의 프레임으로 묶음
+     */
+    private static class PinningRecorder implements AutoCloseable {
+        private final RecordingStream stream = new RecordingStream();
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> nanos = new ConcurrentHashMap<>();
+
+        PinningRecorder() {
+            stream.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(Duration.ZERO);
+            stream.enable("jdk.JavaMonitorEnter").withStackTrace().withThreshold(Duration.ofMillis(1));
+            stream.onEvent("jdk.VirtualThreadPinned", event -> record("pinned ", event));
+            stream.onEvent("jdk.JavaMonitorEnter", event -> {
+                if (event.getThread() != null && event.getThread().isVirtual()) {
+                    record("monitor", event);
+                }
+            });
+            stream.startAsync();
+        }
+
+        private void record(String kind, RecordedEvent event) {
+            String site = kind + " (스택 없음)";
+            if (event.getStackTrace() != null) {
+                for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                    String type = frame.getMethod().getType().getName();
+                    if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                        site = kind + " " + type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                        break;
+                    }
+                }
+            }
+            counts.computeIfAbsent(site, key -> new LongAdder()).increment();
+            nanos.computeIfAbsent(site, key -> new LongAdder()).add(event.getDuration().toNanos());
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+
+        void print() {
+            if (counts.isEmpty()) {
+                System.out.println("[load] 캐리어를 잡고 멈춘 가상 스레드 없음");
+                return;
+            }
+            counts.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(10)
+                    .forEach(entry -> System.out.printf("[load] %5d회, 합계 %8.1f ms  %s%n",
+                            entry.getValue().sum(), nanos.get(entry.getKey()).sum() / 1_000_000.0, entry.getKey()));
+        }
+    }
+
+    /**
+     * 단계별 응답 시간(ns)을 모아두고 백분위수를 계산함
+     */
+    private class Recorder {
+        private final long[][] samples = new long[STEPS.length][];
+        private final AtomicInteger[] counts = new AtomicInteger[STEPS.length];
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        Recorder(int checkouts) {
+            for (int step = 0; step < STEPS.length; step++) {
+                samples[step] = new long[checkouts * (step == 0 ? ITEMS_PER_CART : 1)];
+                counts[step] = new AtomicInteger();
+            }
+        }
+
+        void runUser(User user, int checkouts) throws IOException {
+            for (int i = 0; i < checkouts; i++) {
+                long checkoutStart = System.nanoTime();
+                if (user.checkout(this, i)) {
+                    record(3, System.nanoTime() - checkoutStart);
+                    succeeded.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+
+        void record(int step, long nanos) {
+            int index = counts[step].getAndIncrement();
+            if (index < samples[step].length) {
+                samples[step][index] = nanos;
+            }
+        }
+
+        double percentile(int step, int percentile) {
+            int count = Math.min(counts[step].get(), samples[step].length);
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples[step], count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * 장바구니 쿠키 하나를 가진 가상 사용자, 브라우저처럼 앱에 HTTP 요청을 보냄
+     * 세션 쿠키는 보내지 않으므로 요청마다 다른 서버로 가도 같은 결과가 나와야 함
+     */
+    private class User {
+        private String cartCookie;
+
+        /**
+         * 장바구니에 상품을 담고 결제 준비 후 카카오페이 결제 페이지 URL 의 approval_url 로 돌아와 승인까지 진행
+         * @return 결제 성공 화면까지 도착했는지
+         */
+        boolean checkout(Recorder recorder, int round) throws IOException {
+            for (int i = 0; i < ITEMS_PER_CART; i++) {
+                int productId = productIds.get((round + i) % productIds.size());
+                long start = System.nanoTime();
+                int status = request("POST", "/consumer/api/cart/" + productId + "/add").status();
+                recorder.record(0, System.nanoTime() - start);
+                if (status != 200) {
+                    return false;
+                }
+            }
+
+            long start = System.nanoTime();
+            Response ready = request("POST", "/consumer/payment/ready");
+            recorder.record(1, System.nanoTime() - start);
+            if (ready.status() != 200) {
+                return false;
+            }
+
+            // 스텁의 결제 페이지 URL 은 approval_url?pg_token=... 이므로 경로와 쿼리만 앱 주소로 보냄
+            URI redirect = URI.create(OBJECT_MAPPER.readTree(ready.body()).path("next_redirect_mobile_url").asText());
+            start = System.nanoTime();
+            Response approve = request("GET", redirect.getRawPath() + "?" + redirect.getRawQuery());
+            recorder.record(2, System.nanoTime() - start);
+            return approve.status() == 200 && approve.body().contains("결제가 성공적으로 완료되었습니다");
+        }
+
+        private Response request(String method, String path) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + port + path).toURL().openConnection();
+            connection.setRequestMethod(method);
+            connection.setInstanceFollowRedirects(false);
+            if (cartCookie != null) {
+                connection.setRequestProperty("Cookie", cartCookie);
+            }
+            if ("POST".equals(method)) {
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.flush();
+                }
+            }
+
+            int status = connection.getResponseCode();
+            String setCookie = connection.getHeaderField("Set-Cookie");
+            if (setCookie != null && setCookie.startsWith(CartIdResolver.COOKIE_NAME + "=")) {
+                cartCookie = setCookie.substring(0, setCookie.indexOf(';'));
+            }
+            InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            String body = stream == null ? "" : new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            if (stream != null) {
+                stream.close(); // 끝까지 읽고 닫아야 keep-alive 연결이 재사용됨
+            }
+            return new Response(status, body);
+        }
+    }
+
+    private record Response(int status, String body) {
+    }
+}
@@ -25,6 +25,23 @@ class PurchaseItemTest {
         assertEquals(7, apple.getQuantity()); // 재고 차감 확인
     }
 
+    @Test
+    void 이미_차감한_재고로_만든_구매항목은_재고를_다시_차감하지_않는다() {
+        // given
+        Product apple = Product.builder()
+                .name("사과")
+                .price(1000)
+                .quantity(10)
+                .build();
+
+        // when
+        PurchaseItem item = PurchaseItem.createFromReservedStock(apple, 1000, 3);
+
+        // then
+        assertEquals(3, item.getOrderQuantity());
+        assertEquals(10, apple.getQuantity());
+    }
+
     @Test
     void 구매항목이_구매와_연결된다() {
         // given
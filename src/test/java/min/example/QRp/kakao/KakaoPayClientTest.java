@@ -0,0 +1,214 @@
+package min.example.QRp.kakao;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
+import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 로컬 HttpServer 로 카카오페이 API 를 흉내내서 재시도,시간제한,중복 승인 방지를 확인
+ */
+class KakaoPayClientTest {
+
+    static {
+        // 응답 헤더와 본문을 따로 보내는 스텁 서버에서 Nagle 지연(~40ms)이 측정에 섞이지 않도록 함
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private HttpServer server;
+    private final AtomicInteger readyCalls = new AtomicInteger();
+    private final AtomicInteger approveCalls = new AtomicInteger();
+    private volatile int readyFailures;         // 처음 몇번의 ready 요청을 500 으로 응답할지
+    private volatile int readyStatus = 500;
+    private volatile long approveDelayMillis;
+    private volatile boolean approveFails;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/payment/ready", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (readyCalls.incrementAndGet() <= readyFailures) {
+                respond(exchange, readyStatus, "{\"msg\":\"error\"}");
+                return;
+            }
+            respond(exchange, 200, "{\"tid\":\"T1234\",\"next_redirect_mobile_url\":\"https://stub/pay\"}");
+        });
+        server.createContext("/v1/payment/approve", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            approveCalls.incrementAndGet();
+            sleep(approveDelayMillis);
+            if (approveFails) {
+                respond(exchange, 500, "{\"msg\":\"error\"}");
+                return;
+            }
+            respond(exchange, 200, "{\"aid\":\"A1\",\"tid\":\"T1234\",\"payment_method_type\":\"MONEY\",\"item_name\":\"상품\"}");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void 결제준비는_5xx응답이면_재시도해서_성공한다() {
+        // given
+        readyFailures = 2;
+        KakaoPayClient client = client(Duration.ofSeconds(2));
+
+        // when
+        KakaoReadyResponseDto response = client.ready(readyBody());
+
+        // then
+        assertEquals("T1234", response.getTid());
+        assertEquals(3, readyCalls.get());
+    }
+
+    @Test
+    void 결제준비는_4xx응답이면_재시도하지_않는다() {
+        // given
+        readyFailures = 10;
+        readyStatus = 400;
+        KakaoPayClient client = client(Duration.ofSeconds(2));
+
+        // when & then
+        assertThrows(HttpClientErrorException.class, () -> client.ready(readyBody()));
+        assertEquals(1, readyCalls.get());
+    }
+
+    @Test
+    void 응답이_읽기시간제한보다_늦으면_기다리지않고_실패한다() {
+        // given
+        approveDelayMillis = 2000;
+        KakaoPayClient client = client(Duration.ofMillis(200));
+
+        // when
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> client.approve("T1234", readyBody()));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertTrue(elapsedMillis < 1500, "elapsed=" + elapsedMillis);
+    }
+
+    @Test
+    void 같은결제를_동시에_여러번_승인해도_API는_한번만_호출된다() throws Exception {
+        // given
+        approveDelayMillis = 300;
+        KakaoPayClient client = client(Duration.ofSeconds(2));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        List<Future<KakaoApproveResponseDto>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return client.approve("T1234", readyBody());
+            }));
+        }
+        start.countDown();
+        for (Future<KakaoApproveResponseDto> result : results) {
+            assertEquals("A1", result.get().getAid());
+        }
+        executor.shutdown();
+
+        // then 이후에 다시 요청해도 기억해둔 결과를 돌려줌
+        assertEquals("A1", client.approve("T1234", readyBody()).getAid());
+        assertEquals(1, approveCalls.get());
+        assertTrue(client.findApproved("T1234").isPresent());
+    }
+
+    @Test
+    void 승인이_실패하면_기억하지않고_다시_시도할수있다() {
+        // given
+        approveFails = true;
+        KakaoPayClient client = client(Duration.ofSeconds(2));
+        assertThrows(RuntimeException.class, () -> client.approve("T1234", readyBody()));
+
+        // when
+        approveFails = false;
+        KakaoApproveResponseDto response = client.approve("T1234", readyBody());
+
+        // then
+        assertEquals("A1", response.getAid());
+        assertEquals(2, approveCalls.get());
+    }
+
+    @Test
+    void 연결을_재사용해서_로컬_스텁서버를_호출한다() {
+        // given
+        KakaoPayClient client = client(Duration.ofSeconds(2));
+        for (int i = 0; i < 50; i++) {
+            client.ready(readyBody()); // 워밍업
+        }
+
+        // when
+        int calls = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            client.ready(readyBody());
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / calls;
+
+        // then
+        assertEquals(550, readyCalls.get());
+        System.out.printf("[kakao] stub ready: %.0f us/call%n", micros);
+    }
+
+    private KakaoPayClient client(Duration readTimeout) {
+        return new KakaoPayClient(RestClient.builder(),
+                "http://127.0.0.1:" + server.getAddress().getPort(), "KakaoAK test",
+                Duration.ofSeconds(1), readTimeout, 50, 3, Duration.ofMillis(10));
+    }
+
+    private static MultiValueMap<String, String> readyBody() {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("cid", "TC0ONETIME");
+        body.add("item_name", "상품");
+        return body;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
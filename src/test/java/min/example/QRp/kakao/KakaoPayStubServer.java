@@ -0,0 +1,286 @@
+package min.example.QRp.kakao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 카카오페이 결제 준비/승인/취소 API(/v1/payment/ready, /v1/payment/approve, /v1/payment/cancel)를 흉내내는 로컬 스텁 서버
+ * 실제 카카오페이 없이 결제 흐름 전체를 부하 테스트할 수 있도록 응답 지연과 실패 비율을 설정할 수 있음
+ * 결제 준비 응답의 결제 페이지 URL 은 바로 approval_url?pg_token=... 이므로 사용자가 결제를 마친 것처럼 따라가면 됨
+ *
+ * 단독 실행: ./gradlew kakaoStub --args='--port=9090 --latency=50ms --jitter=20ms --failure-rate=0.01'
+ * 앱은 kakao.api-url=http://localhost:9090 으로 띄우면 이 서버를 호출함
+ * 테스트 코드에만 있으므로 배포 jar 에는 들어가지 않음
+ */
+public class KakaoPayStubServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KakaoPayStubServer.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double failureRate;
+
+    private final Map<String, ReadyRequest> readyRequests = new ConcurrentHashMap<>(); // tid -> 결제 준비 요청
+    private final Set<String> approvedTids = ConcurrentHashMap.newKeySet(); // 승인되고 취소되지 않은 결제
+    private final AtomicLong readyCount = new AtomicLong();
+    private final AtomicLong approveCount = new AtomicLong();
+    private final AtomicLong cancelCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private KakaoPayStubServer(int port, Duration latency, Duration jitter, double failureRate) throws IOException {
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("실패 비율은 0 이상 1 이하여야 합니다. (입력값: " + failureRate + ")");
+        }
+        this.latency = latency;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+
+        // 응답 헤더와 본문을 따로 보내므로 Nagle 지연(~40ms)이 응답 시간에 섞이지 않도록 함 (테스트,스텁 실행 JVM 에서만 바뀜)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor(); // 지연중에는 sleep 만 하므로 요청마다 가상 스레드
+        server.setExecutor(executor);
+        server.createContext("/v1/payment/ready", exchange -> handle(exchange, readyCount, this::ready));
+        server.createContext("/v1/payment/approve", exchange -> handle(exchange, approveCount, this::approve));
+        server.createContext("/v1/payment/cancel", exchange -> handle(exchange, cancelCount, this::cancel));
+        server.start();
+    }
+
+    /**
+     * 스텁 서버 시작
+     * @param port 포트 (0 이면 빈 포트를 골라서 사용)
+     * @param latency 모든 응답에 더할 지연 시간
+     * @param jitter 지연 시간에 추가로 더할 0 ~ jitter 사이의 무작위 시간
+     * @param failureRate 500 으로 응답할 요청 비율 (0.0 ~ 1.0)
+     * @return 시작된 스텁 서버
+     */
+    public static KakaoPayStubServer start(int port, Duration latency, Duration jitter, double failureRate) throws IOException {
+        return new KakaoPayStubServer(port, latency, jitter, failureRate);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        KakaoPayStubServer stub = start(
+                Integer.parseInt(options.getOrDefault("port", "9090")),
+                parseDuration(options.getOrDefault("latency", "0ms")),
+                parseDuration(options.getOrDefault("jitter", "0ms")),
+                Double.parseDouble(options.getOrDefault("failure-rate", "0")));
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        log.info("카카오페이 스텁 서버 시작: {} (지연 {} + 0~{}, 실패 비율 {})",
+                stub.getBaseUrl(), stub.latency, stub.jitter, stub.failureRate);
+    }
+
+    /**
+     * @return kakao.api-url 에 넣을 주소 (예: http://127.0.0.1:9090)
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getReadyCount() {
+        return readyCount.get();
+    }
+
+    public long getApproveCount() {
+        return approveCount.get();
+    }
+
+    public long getCancelCount() {
+        return cancelCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 결제 준비, tid 와 approval_url 로 바로 돌아가는 결제 페이지 URL 을 돌려줌
+     */
+    private Response ready(Map<String, String> form) {
+        String approvalUrl = form.get("approval_url");
+        if (approvalUrl == null || form.get("partner_order_id") == null || form.get("total_amount") == null) {
+            return Response.error(400, -2, "필수 파라미터가 없습니다.");
+        }
+
+        String tid = "T" + UUID.randomUUID().toString().replace("-", "").substring(0, 19);
+        String pgToken = UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        readyRequests.put(tid, new ReadyRequest(form.get("partner_order_id"), form.get("partner_user_id"),
+                form.getOrDefault("item_name", ""), pgToken));
+
+        String redirectUrl = approvalUrl + (approvalUrl.contains("?") ? "&" : "?")
+                + "pg_token=" + URLEncoder.encode(pgToken, StandardCharsets.UTF_8);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tid", tid);
+        body.put("next_redirect_app_url", redirectUrl);
+        body.put("next_redirect_mobile_url", redirectUrl);
+        body.put("next_redirect_pc_url", redirectUrl);
+        body.put("created_at", LocalDateTime.now().toString());
+        return new Response(200, body);
+    }
+
+    /**
+     * 결제 승인, 실제 카카오페이처럼 같은 tid 는 한번만 승인되고 주문번호나 pg_token 이 다르면 거절함
+     */
+    private Response approve(Map<String, String> form) {
+        String tid = form.get("tid");
+        ReadyRequest request = tid == null ? null : readyRequests.get(tid);
+        if (request == null) {
+            return Response.error(400, -702, "결제 준비되지 않았거나 이미 승인된 결제입니다.");
+        }
+        if (!request.partnerOrderId().equals(form.get("partner_order_id"))
+                || !request.pgToken().equals(form.get("pg_token"))) {
+            return Response.error(400, -780, "결제 정보가 일치하지 않습니다.");
+        }
+        if (!readyRequests.remove(tid, request)) {
+            return Response.error(400, -702, "이미 승인된 결제입니다.");
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("aid", "A" + UUID.randomUUID().toString().replace("-", "").substring(0, 19));
+        body.put("tid", tid);
+        body.put("partner_order_id", request.partnerOrderId());
+        body.put("partner_user_id", request.partnerUserId());
+        body.put("payment_method_type", "MONEY");
+        body.put("item_name", request.itemName());
+        body.put("approved_at", LocalDateTime.now().toString());
+        approvedTids.add(tid);
+        return new Response(200, body);
+    }
+
+    /**
+     * 결제 취소, 승인된 결제만 한번 취소할 수 있음
+     */
+    private Response cancel(Map<String, String> form) {
+        String tid = form.get("tid");
+        if (tid == null || form.get("cancel_amount") == null) {
+            return Response.error(400, -2, "필수 파라미터가 없습니다.");
+        }
+        if (!approvedTids.remove(tid)) {
+            return Response.error(400, -721, "승인되지 않았거나 이미 취소된 결제입니다.");
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tid", tid);
+        body.put("status", "CANCEL_PAYMENT");
+        body.put("canceled_at", LocalDateTime.now().toString());
+        return new Response(200, body);
+    }
+
+    private void handle(HttpExchange exchange, AtomicLong requestCount, Handler handler) throws IOException {
+        try (exchange) {
+            requestCount.incrementAndGet();
+            Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            delay();
+
+            Response response;
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                response = Response.error(405, -1, "POST 요청만 가능합니다.");
+            } else if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failureCount.incrementAndGet();
+                response = Response.error(500, -9798, "스텁 서버 임의 실패");
+            } else {
+                response = handler.handle(form);
+            }
+
+            byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(response.body());
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private void delay() {
+        long millis = latency.toMillis();
+        if (!jitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        if (body.isEmpty()) {
+            return form;
+        }
+        for (String pair : body.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            form.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                    keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+        }
+        return form;
+    }
+
+    /**
+     * "50ms", "2s", "PT1S" 형식의 시간 문자열을 Duration 으로 바꿈
+     * @param value 시간 문자열
+     * @return 시간
+     */
+    public static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s") && !value.startsWith("PT")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+
+    private interface Handler {
+        Response handle(Map<String, String> form);
+    }
+
+    private record ReadyRequest(String partnerOrderId, String partnerUserId, String itemName, String pgToken) {
+    }
+
+    private record Response(int status, Map<String, Object> body) {
+        static Response error(int status, int code, String message) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("code", code);
+            body.put("msg", message);
+            return new Response(status, body);
+        }
+    }
+}
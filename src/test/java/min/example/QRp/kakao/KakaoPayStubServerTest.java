@@ -0,0 +1,134 @@
+package min.example.QRp.kakao;
+
+import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
+import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KakaoPayStubServerTest {
+
+    private KakaoPayStubServer stub;
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void 결제준비후_돌려준_pg_token으로_한번만_승인된다() throws IOException {
+        // given
+        stub = KakaoPayStubServer.start(0, Duration.ZERO, Duration.ZERO, 0);
+        KakaoPayClient client = client(1);
+
+        // when
+        KakaoReadyResponseDto ready = client.ready(readyBody("order-1"));
+        String pgToken = UriComponentsBuilder.fromUriString(ready.getNextRedirectMobileUrl())
+                .build().getQueryParams().getFirst("pg_token");
+        KakaoApproveResponseDto approve = client.approve(ready.getTid(), approveBody(ready.getTid(), "order-1", pgToken));
+
+        // then
+        assertTrue(ready.getNextRedirectMobileUrl().startsWith("http://localhost:8080/consumer/payment/success?pg_token="));
+        assertEquals(ready.getTid(), approve.getTid());
+        assertEquals("상품", approve.getItemName());
+        // 클라이언트의 승인 결과 캐시를 거치지 않고 같은 결제를 다시 승인하면 거절됨
+        assertThrows(HttpClientErrorException.class,
+                () -> client(1).approve(ready.getTid(), approveBody(ready.getTid(), "order-1", pgToken)));
+    }
+
+    @Test
+    void pg_token이_다르면_승인하지_않는다() throws IOException {
+        // given
+        stub = KakaoPayStubServer.start(0, Duration.ZERO, Duration.ZERO, 0);
+        KakaoPayClient client = client(1);
+        KakaoReadyResponseDto ready = client.ready(readyBody("order-1"));
+
+        // when, then
+        assertThrows(HttpClientErrorException.class,
+                () -> client.approve(ready.getTid(), approveBody(ready.getTid(), "order-1", "wrong")));
+    }
+
+    @Test
+    void 승인된_결제만_한번_취소된다() throws IOException {
+        // given
+        stub = KakaoPayStubServer.start(0, Duration.ZERO, Duration.ZERO, 0);
+        KakaoPayClient client = client(1);
+        KakaoReadyResponseDto ready = client.ready(readyBody("order-1"));
+        String pgToken = UriComponentsBuilder.fromUriString(ready.getNextRedirectMobileUrl())
+                .build().getQueryParams().getFirst("pg_token");
+        assertThrows(HttpClientErrorException.class, () -> client.cancel(ready.getTid(), cancelBody(ready.getTid()))); // 승인 전
+
+        // when
+        client.approve(ready.getTid(), approveBody(ready.getTid(), "order-1", pgToken));
+        client.cancel(ready.getTid(), cancelBody(ready.getTid()));
+
+        // then
+        assertThrows(HttpClientErrorException.class, () -> client.cancel(ready.getTid(), cancelBody(ready.getTid())));
+        assertTrue(client.findApproved(ready.getTid()).isEmpty()); // 취소한 결제는 승인 결과도 잊음
+        assertEquals(3, stub.getCancelCount());
+    }
+
+    @Test
+    void 실패비율만큼_500으로_응답하고_지연시간을_지킨다() throws IOException {
+        // given
+        stub = KakaoPayStubServer.start(0, Duration.ofMillis(50), Duration.ZERO, 1.0);
+        KakaoPayClient client = client(2);
+
+        // when
+        long start = System.nanoTime();
+        assertThrows(HttpServerErrorException.class, () -> client.ready(readyBody("order-1")));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // then
+        assertEquals(2, stub.getReadyCount());
+        assertEquals(2, stub.getFailureCount());
+        assertTrue(elapsedMillis >= 100, "elapsed=" + elapsedMillis);
+    }
+
+    private KakaoPayClient client(int readyMaxAttempts) {
+        return new KakaoPayClient(RestClient.builder(), stub.getBaseUrl(), "KakaoAK test",
+                Duration.ofSeconds(1), Duration.ofSeconds(2), 10, readyMaxAttempts, Duration.ZERO);
+    }
+
+    private static MultiValueMap<String, String> readyBody(String partnerOrderId) {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("cid", "TC0ONETIME");
+        body.add("partner_order_id", partnerOrderId);
+        body.add("partner_user_id", "user");
+        body.add("item_name", "상품");
+        body.add("quantity", "1");
+        body.add("total_amount", "1000");
+        body.add("tax_free_amount", "0");
+        body.add("approval_url", "http://localhost:8080/consumer/payment/success");
+        return body;
+    }
+
+    private static MultiValueMap<String, String> cancelBody(String tid) {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("cid", "TC0ONETIME");
+        body.add("tid", tid);
+        body.add("cancel_amount", "1000");
+        body.add("cancel_tax_free_amount", "0");
+        return body;
+    }
+
+    private static MultiValueMap<String, String> approveBody(String tid, String partnerOrderId, String pgToken) {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("cid", "TC0ONETIME");
+        body.add("tid", tid);
+        body.add("partner_order_id", partnerOrderId);
+        body.add("partner_user_id", "user");
+        body.add("pg_token", pgToken);
+        return body;
+    }
+}
@@ -0,0 +1,44 @@
+package min.example.QRp.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import min.example.QRp.cart.InMemoryCartStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CartSessionMetricsTest {
+
+    private final InMemoryCartStore cartStore = new InMemoryCartStore();
+    private final CartSessionMetrics metrics = new CartSessionMetrics(cartStore);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void 장바구니가_바뀔때마다_저장소의_합계를_보여준다() {
+        // given
+        metrics.bindTo(registry);
+
+        // when 첫 장바구니는 상품 2종류 3개, 두번째 장바구니는 1종류 5개
+        cartStore.increment("first", 1, 10);
+        cartStore.increment("first", 2, 10);
+        cartStore.increment("first", 2, 10);
+        for (int i = 0; i < 5; i++) {
+            cartStore.increment("second", 3, 10);
+        }
+
+        // then
+        assertEquals(2, gauge("qrp.cart.sessions"));
+        assertEquals(3, gauge("qrp.cart.lines"));
+        assertEquals(8, gauge("qrp.cart.items"));
+
+        // when 결제 완료로 장바구니 삭제
+        cartStore.clear("first");
+
+        // then
+        assertEquals(1, gauge("qrp.cart.sessions"));
+        assertEquals(5, gauge("qrp.cart.items"));
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,98 @@
+package min.example.QRp.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import min.example.QRp.domain.Product;
+import min.example.QRp.service.AdminService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @Timed 를 붙인 서비스,리포지토리 호출과 예외 횟수가 메트릭으로 기록되고 prometheus 엔드포인트로 나가는지 확인
+ * 테스트에서는 기본적으로 메트릭 내보내기가 꺼져있으므로 @AutoConfigureObservability 로 켬
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@Transactional
+class MetricsTest {
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @DisplayName("서비스와 리포지토리 메소드 호출 시간이 메소드별 타이머로 기록된다.")
+    @Test
+    void serviceAndRepositoryTimers() {
+        // given
+        Product product = new Product("메트릭상품", 1000, 3);
+        em.persist(product);
+        long before = timerCount("qrp.service", "findProductById");
+
+        // when
+        adminService.findProductById(product.getProductId());
+
+        // then
+        assertThat(timerCount("qrp.service", "findProductById")).isEqualTo(before + 1);
+        assertThat(timerCount("qrp.repository", "findById")).isPositive();
+    }
+
+    @DisplayName("없는 제품을 조회하면 404 오류 횟수가 예외 종류별로 집계된다.")
+    @Test
+    void errorCounter() throws Exception {
+        // given
+        double before = errorCount("EntityNotFoundException", "404");
+
+        // when
+        mockMvc.perform(get("/admin/products/{productId}", 987654)).andExpect(status().isNotFound());
+
+        // then
+        assertThat(errorCount("EntityNotFoundException", "404")).isEqualTo(before + 1);
+    }
+
+    @DisplayName("prometheus 엔드포인트로 타이머, 재고, 장바구니 메트릭을 내보낸다.")
+    @Test
+    void prometheusEndpoint() throws Exception {
+        // given
+        em.persist(new Product("품절상품", 1000, 0));
+        adminService.findAllProducts();
+
+        // when
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // then
+        assertThat(body).contains("qrp_service_seconds_count{", "method=\"findAllProducts\"");
+        assertThat(body).contains("qrp_service_seconds_bucket{"); // p99 계산용 히스토그램
+        assertThat(body).contains("qrp_stock_products", "qrp_stock_out_of_stock", "qrp_cart_sessions", "qrp_qr_cache_bytes");
+    }
+
+    private long timerCount(String name, String method) {
+        var timer = meterRegistry.find(name).tag("method", method).tag("exception", "none").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double errorCount(String exception, String status) {
+        var counter = meterRegistry.find("qrp.errors").tag("exception", exception).tag("status", status).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,90 @@
+package min.example.QRp.payment;
+
+import min.example.QRp.payment.PaymentStateStore.Approval;
+import min.example.QRp.payment.PaymentStateStore.PaymentState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class JdbcPaymentStateStoreTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private JdbcPaymentStateStore paymentStateStore;
+
+    @BeforeEach
+    void setUp() {
+        paymentStateStore = new JdbcPaymentStateStore(jdbcTemplate);
+    }
+
+    @DisplayName("주문 ID 로 저장한 결제 상태를 결제 내용 스냅샷까지 순서대로 다시 찾고, 지우면 더 찾을 수 없다.")
+    @Test
+    void saveFindRemove() {
+        // given
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(30).truncatedTo(ChronoUnit.SECONDS);
+        PaymentState state = new PaymentState("order-1", "tid-1", "cart-1", snapshot(), expiresAt);
+        paymentStateStore.save(state);
+
+        // when
+        PaymentState found = paymentStateStore.find("order-1").orElseThrow();
+        paymentStateStore.remove("order-1");
+
+        // then
+        assertThat(found).isEqualTo(state);
+        assertThat(paymentStateStore.find("order-1")).isEmpty();
+    }
+
+    @DisplayName("승인 기록을 남기면 다시 찾을때 승인된 결제로 보인다.")
+    @Test
+    void markApproved() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        assertThat(paymentStateStore.find("order-1").orElseThrow().isApproved()).isFalse();
+
+        // when
+        paymentStateStore.markApproved("order-1", new Approval("A1", "CARD"));
+
+        // then
+        PaymentState found = paymentStateStore.find("order-1").orElseThrow();
+        assertThat(found.approval()).isEqualTo(new Approval("A1", "CARD"));
+        assertThat(found.snapshot()).isEqualTo(snapshot());
+    }
+
+    @DisplayName("만료된 결제 상태는 찾을 수 없고, 정리할때 만료된 것만 지운다.")
+    @Test
+    void expired() {
+        // given
+        LocalDateTime now = LocalDateTime.now();
+        paymentStateStore.save(new PaymentState("expired", "tid-1", "cart-1", snapshot(), now.minusSeconds(1)));
+        paymentStateStore.save(new PaymentState("alive", "tid-2", "cart-2", snapshot(), now.plusMinutes(30)));
+
+        // when
+        int removed = paymentStateStore.removeExpired(now);
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(paymentStateStore.find("expired")).isEmpty();
+        assertThat(paymentStateStore.find("alive")).isPresent();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from pending_payment_line where partner_order_id = 'expired'",
+                Integer.class)).isZero();
+    }
+
+    private static CheckoutSnapshot snapshot() {
+        return new CheckoutSnapshot(List.of(
+                new CheckoutSnapshot.Line(7, "상품B", 2500, 1),
+                new CheckoutSnapshot.Line(3, "상품A", 1000, 2)), 4500);
+    }
+}
@@ -0,0 +1,73 @@
+package min.example.QRp.qr;
+
+import min.example.QRp.dto.QrCodeCacheStatsDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrCodeCacheTest {
+
+    @Test
+    void 캐시적중시_렌더러를_다시호출하지않는다() throws Exception {
+        // given
+        QrCodeCache cache = new QrCodeCache(10_000);
+        AtomicInteger renderCount = new AtomicInteger();
+
+        // when
+        cache.get(1, 200, QrImageFormat.PNG, () -> { renderCount.incrementAndGet(); return new byte[100]; });
+        cache.get(1, 200, QrImageFormat.PNG, () -> { renderCount.incrementAndGet(); return new byte[100]; });
+
+        // then
+        assertEquals(1, renderCount.get());
+        QrCodeCacheStatsDto stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    void 최대용량을_넘으면_오래사용하지않은항목부터_제거된다() throws Exception {
+        // given 항목 하나당 약 1096 바이트, 최대 2개까지 보관 가능
+        QrCodeCache cache = new QrCodeCache(2500);
+        cache.get(1, 200, QrImageFormat.PNG, () -> new byte[1000]);
+        cache.get(2, 200, QrImageFormat.PNG, () -> new byte[1000]);
+        cache.get(1, 200, QrImageFormat.PNG, () -> new byte[1000]); // 1번을 최근 사용으로 갱신
+
+        // when
+        cache.get(3, 200, QrImageFormat.PNG, () -> new byte[1000]);
+
+        // then
+        AtomicInteger renderCount = new AtomicInteger();
+        cache.get(1, 200, QrImageFormat.PNG, () -> { renderCount.incrementAndGet(); return new byte[1000]; });
+        assertEquals(0, renderCount.get()); // 1번은 남아있음
+        assertEquals(1, cache.stats().getEvictions()); // 2번이 제거됨
+        assertTrue(cache.stats().getUsedBytes() <= 2500);
+    }
+
+    @Test
+    void 최대용량보다_큰이미지는_보관하지않는다() throws Exception {
+        QrCodeCache cache = new QrCodeCache(500);
+
+        cache.get(1, 200, QrImageFormat.PNG, () -> new byte[1000]);
+
+        assertEquals(0, cache.stats().getEntries());
+        assertEquals(0, cache.stats().getUsedBytes());
+    }
+
+    @Test
+    void 제품을_제거하면_모든크기와포맷이_제거된다() throws Exception {
+        // given
+        QrCodeCache cache = new QrCodeCache(100_000);
+        cache.get(1, 200, QrImageFormat.PNG, () -> new byte[10]);
+        cache.get(1, 400, QrImageFormat.GIF, () -> new byte[10]);
+        cache.get(2, 200, QrImageFormat.PNG, () -> new byte[10]);
+
+        // when
+        cache.evict(1);
+
+        // then
+        assertEquals(1, cache.stats().getEntries());
+    }
+}
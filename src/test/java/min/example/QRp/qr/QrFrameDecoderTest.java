@@ -0,0 +1,118 @@
+package min.example.QRp.qr;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import min.example.QRp.exception.ServerBusyException;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrFrameDecoderTest {
+
+    private final QrFrameDecoder decoder = new QrFrameDecoder(1, Duration.ofMillis(50), 1024, 40_000_000);
+
+    @Test
+    void 큰_사진은_줄여서_읽어도_QR_내용이_나온다() throws Exception {
+        // given 3000px 사진 가운데 QR 이 있음
+        BufferedImage frame = new BufferedImage(3000, 2400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+        g.drawImage(MatrixToImageWriter.toBufferedImage(
+                new QRCodeWriter().encode(QrPayload.of(42), BarcodeFormat.QR_CODE, 1200, 1200)), 900, 600, null);
+        g.dispose();
+
+        // when
+        Optional<String> payload = decoder.decode(new ByteArrayInputStream(toJpeg(frame)));
+
+        // then
+        assertEquals(Optional.of("42"), payload);
+    }
+
+    @Test
+    void QR이_없는_사진은_빈값이다() throws Exception {
+        BufferedImage blank = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals(Optional.empty(), decoder.decode(new ByteArrayInputStream(toPng(blank))));
+    }
+
+    @Test
+    void 이미지가_아니거나_너무_크면_거절한다() throws Exception {
+        // given
+        QrFrameDecoder small = new QrFrameDecoder(1, Duration.ofMillis(50), 1024, 100 * 100);
+        byte[] large = toPng(new BufferedImage(200, 200, BufferedImage.TYPE_BYTE_BINARY));
+
+        // when then
+        assertThrows(IllegalStateException.class,
+                () -> decoder.decode(new ByteArrayInputStream("not an image".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalStateException.class, () -> small.decode(new ByteArrayInputStream(large)));
+        // 거절한 뒤에도 리더가 풀로 돌아와 있음
+        assertEquals(Optional.empty(), decoder.decode(new ByteArrayInputStream(large)));
+    }
+
+    @Test
+    void 리더가_모두_사용중이면_기다리다_바쁨으로_거절한다() throws Exception {
+        // given 리더 1개를 빌린 채 사진을 다 받지 못한 요청
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        byte[] png = toPng(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        InputStream slow = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return position < png.length ? png[position++] & 0xFF : -1;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<String>> first = executor.submit(() -> decoder.decode(slow));
+            reading.await();
+
+            // when then
+            assertThrows(ServerBusyException.class, () -> decoder.decode(new ByteArrayInputStream(png)));
+            release.countDown();
+            assertEquals(Optional.empty(), first.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] toPng(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] toJpeg(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
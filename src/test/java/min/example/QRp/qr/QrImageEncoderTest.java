@@ -0,0 +1,85 @@
+package min.example.QRp.qr;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrImageEncoderTest {
+
+    @Test
+    void PNG로_인코딩하면_원래_픽셀과_같게_읽힌다() throws Exception {
+        // given 너비가 8의 배수가 아닌 경우도 확인
+        for (int size : new int[]{200, 203}) {
+            BitMatrix matrix = new QRCodeWriter().encode("12345", BarcodeFormat.QR_CODE, size, size);
+
+            // when
+            byte[] png = QrImageEncoder.toPng(matrix);
+
+            // then
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            assertEquals(matrix.getWidth(), image.getWidth());
+            assertEquals(matrix.getHeight(), image.getHeight());
+            for (int y = 0; y < matrix.getHeight(); y++) {
+                for (int x = 0; x < matrix.getWidth(); x++) {
+                    boolean black = (image.getRGB(x, y) & 0xFFFFFF) == 0;
+                    assertEquals(matrix.get(x, y), black, "x=" + x + ", y=" + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void 같은스레드에서_연속으로_인코딩해도_결과가_같다() throws Exception {
+        BitMatrix large = new QRCodeWriter().encode("1", BarcodeFormat.QR_CODE, 600, 600);
+        BitMatrix small = new QRCodeWriter().encode("2", BarcodeFormat.QR_CODE, 200, 200);
+
+        byte[] first = QrImageEncoder.toPng(small);
+        QrImageEncoder.toPng(large); // 재사용 버퍼가 커진 뒤에도
+        byte[] second = QrImageEncoder.toPng(small);
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void PBM은_헤더와_행단위_비트로_인코딩된다() throws Exception {
+        // given
+        BitMatrix matrix = new QRCodeWriter().encode("7", BarcodeFormat.QR_CODE, 100, 100);
+
+        // when
+        byte[] pbm = QrImageEncoder.toPbm(matrix);
+
+        // then
+        byte[] header = "P4\n100 100\n".getBytes(StandardCharsets.US_ASCII);
+        int bytesPerRow = 13;
+        assertEquals(header.length + bytesPerRow * 100, pbm.length);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                int bit = (pbm[header.length + y * bytesPerRow + x / 8] >> (7 - x % 8)) & 1;
+                assertEquals(matrix.get(x, y), bit == 1);
+            }
+        }
+    }
+
+    @Test
+    void SVG는_모듈단위_viewBox로_그려진다() throws Exception {
+        // given
+        BitMatrix modules = new QRCodeWriter().encode("7", BarcodeFormat.QR_CODE, 0, 0);
+
+        // when
+        String svg = new String(QrImageEncoder.toSvg(modules, 300), StandardCharsets.UTF_8);
+
+        // then
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("width=\"300\""));
+        assertTrue(svg.contains("viewBox=\"0 0 " + modules.getWidth() + " " + modules.getHeight() + "\""));
+        assertTrue(svg.endsWith("</svg>"));
+    }
+}
@@ -0,0 +1,102 @@
+package min.example.QRp.repository;
+
+import min.example.QRp.dto.ProductResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    @Test
+    void 캐시적중시_DB를_다시읽지않는다() {
+        // given
+        ProductCache cache = new ProductCache(100, Duration.ofMinutes(1));
+        AtomicInteger loadCount = new AtomicInteger();
+
+        // when
+        cache.get(1, id -> { loadCount.incrementAndGet(); return Optional.of(product(id, 1000)); });
+        Optional<ProductResponseDto> cached = cache.get(1, id -> { loadCount.incrementAndGet(); return Optional.of(product(id, 1000)); });
+
+        // then
+        assertEquals(1, loadCount.get());
+        assertEquals(1000, cached.orElseThrow().getPrice());
+    }
+
+    @Test
+    void 여러제품조회는_캐시에없는제품만_한번에읽는다() {
+        // given
+        ProductCache cache = new ProductCache(100, Duration.ofMinutes(1));
+        cache.get(1, id -> Optional.of(product(id, 1000)));
+
+        // when
+        List<List<Integer>> loaded = new ArrayList<>();
+        Map<Integer, ProductResponseDto> result = cache.getAll(List.of(1, 2, 3), ids -> {
+            loaded.add(List.copyOf(ids));
+            return List.of(product(2, 2000)); // 3번은 없는 제품
+        });
+
+        // then
+        assertEquals(List.of(List.of(2, 3)), loaded);
+        assertEquals(2, result.size());
+        assertFalse(result.containsKey(3));
+    }
+
+    @Test
+    void 제거하면_다음조회때_DB에서_다시읽는다() {
+        // given
+        ProductCache cache = new ProductCache(100, Duration.ofMinutes(1));
+        cache.get(1, id -> Optional.of(product(id, 1000)));
+
+        // when
+        cache.evict(1);
+        Optional<ProductResponseDto> reloaded = cache.get(1, id -> Optional.of(product(id, 1500)));
+
+        // then
+        assertEquals(1500, reloaded.orElseThrow().getPrice());
+    }
+
+    @Test
+    void 읽는도중에_무효화된_옛값은_캐시에넣지않는다() {
+        // given
+        ProductCache cache = new ProductCache(100, Duration.ofMinutes(1));
+
+        // when DB 에서 옛 값을 읽는 사이에 다른 트랜잭션이 제품을 바꾸고 무효화함
+        Optional<ProductResponseDto> stale = cache.get(1, id -> {
+            cache.evict(1);
+            return Optional.of(product(id, 1000));
+        });
+
+        // then 읽은 값은 돌려주지만 보관하지는 않음
+        assertEquals(1000, stale.orElseThrow().getPrice());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void 최대개수를_넘으면_오래사용하지않은제품부터_제거된다() {
+        // given
+        ProductCache cache = new ProductCache(2, Duration.ofMinutes(1));
+        cache.get(1, id -> Optional.of(product(id, 1000)));
+        cache.get(2, id -> Optional.of(product(id, 1000)));
+        cache.get(1, id -> Optional.empty()); // 1번을 최근 사용으로 갱신
+
+        // when
+        cache.get(3, id -> Optional.of(product(id, 1000)));
+
+        // then
+        AtomicInteger loadCount = new AtomicInteger();
+        cache.get(1, id -> { loadCount.incrementAndGet(); return Optional.of(product(id, 1000)); });
+        assertEquals(0, loadCount.get()); // 1번은 남아있음
+        assertEquals(2, cache.size());
+    }
+
+    private static ProductResponseDto product(int id, int price) {
+        return new ProductResponseDto(id, "상품" + id, price, 10);
+    }
+}
@@ -1,16 +1,19 @@
 package min.example.QRp.repository;
 
 import min.example.QRp.domain.Product;
+import min.example.QRp.dto.ProductResponseDto;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional // 테스트 완료 후 데이터를 롤백하여 다음 테스트에 영향을 주지 않도록 함
@@ -74,13 +77,93 @@ class ProductRepositoryTest {
         productRepository.create(product2);
 
         // when
-        List<Product> products = productRepository.findAll();
+        List<ProductResponseDto> products = productRepository.findAll();
 
         // then
         assertThat(products).hasSize(2);
         assertThat(products).extracting("name").containsExactlyInAnyOrder("product-A", "product-B");
     }
 
+    @DisplayName("이름 접두어로 검색하면 해당 이름으로 시작하는 제품만 정렬되어 페이지 크기만큼 조회된다.")
+    @Test
+    void findPage_prefix() {
+        // given
+        productRepository.create(new Product("coffee-latte", 4500, 1));
+        productRepository.create(new Product("coffee-americano", 4000, 1));
+        productRepository.create(new Product("coffee-mocha", 5000, 1));
+        productRepository.create(new Product("iced-coffee", 4200, 1));
+
+        // when
+        List<ProductResponseDto> firstPage = productRepository.findPage("coffee", ProductSearchType.PREFIX, ProductSort.NAME, 0, 2);
+        List<ProductResponseDto> secondPage = productRepository.findPage("coffee", ProductSearchType.PREFIX, ProductSort.NAME, 2, 2);
+        long count = productRepository.count("coffee", ProductSearchType.PREFIX);
+
+        // then
+        assertThat(firstPage).extracting("name").containsExactly("coffee-americano", "coffee-latte");
+        assertThat(secondPage).extracting("name").containsExactly("coffee-mocha");
+        assertThat(count).isEqualTo(3);
+    }
+
+    @DisplayName("부분 검색은 이름 중간에 포함된 제품도 조회하고, 검색어의 %, _ 는 글자 그대로 취급한다.")
+    @Test
+    void findPage_contains() {
+        // given
+        productRepository.create(new Product("coffee-latte", 4500, 1));
+        productRepository.create(new Product("iced-coffee", 4200, 1));
+        productRepository.create(new Product("100%_juice", 3000, 1));
+        productRepository.create(new Product("100x-juice", 3000, 1));
+
+        // when
+        List<ProductResponseDto> coffees = productRepository.findPage("coffee", ProductSearchType.CONTAINS, ProductSort.PRICE_DESC, 0, 10);
+        List<ProductResponseDto> juices = productRepository.findPage("%_", ProductSearchType.CONTAINS, ProductSort.ID, 0, 10);
+
+        // then
+        assertThat(coffees).extracting("name").containsExactly("coffee-latte", "iced-coffee");
+        assertThat(juices).extracting("name").containsExactly("100%_juice");
+    }
+
+    @DisplayName("재고가 충분할때만 차감되고, 부족하면 재고가 그대로 남는다.")
+    @Test
+    void decreaseStock() {
+        // given
+        Product product = productRepository.create(new Product("stock-product", 1000, 3));
+
+        // when
+        boolean first = productRepository.decreaseStock(product.getProductId(), 2);
+        boolean second = productRepository.decreaseStock(product.getProductId(), 2);
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(productRepository.findCurrentQuantity(product.getProductId())).contains(1);
+    }
+
+    @DisplayName("읽어둔 제품의 이름만 바꿔도 그사이 차감된 재고를 되돌리지 않는다.")
+    @Test
+    void update_keepsConcurrentStockDecrease() {
+        // given 제품을 읽어둔 뒤 결제가 재고를 UPDATE 로 차감 (엔티티의 quantity 는 그대로 10)
+        Product product = productRepository.create(new Product("lost-update-product", 1000, 10));
+        productRepository.decreaseStock(product.getProductId(), 3);
+
+        // when
+        product.update("renamed-product", null, null);
+
+        // then 변경 감지로 UPDATE 될때 quantity 는 쓰지 않음
+        assertThat(productRepository.findCurrentQuantity(product.getProductId())).contains(7);
+        assertThat(productRepository.findByName("renamed-product")).isPresent();
+    }
+
+    @DisplayName("같은 이름의 제품은 저장할 수 없다.")
+    @Test
+    void create_duplicateName() {
+        // given
+        productRepository.create(new Product("unique-name", 1000, 1));
+
+        // when & then
+        assertThatThrownBy(() -> productRepository.create(new Product("unique-name", 2000, 2)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     @DisplayName("제품 정보를 변경하면 DB에 반영되어야 한다.")
     @Test
     void update() {
@@ -3,6 +3,8 @@ package min.example.QRp.repository;
 import min.example.QRp.domain.Product;
 import min.example.QRp.domain.Purchase;
 import min.example.QRp.domain.PurchaseItem;
+import min.example.QRp.dto.PurchaseExportRow;
+import min.example.QRp.dto.PurchaseResponseDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,8 +13,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -76,6 +81,75 @@ class PurchaseRepositoryTest {
         assertThat(allPurchases).hasSize(2);
     }
 
+    @DisplayName("구매 항목까지 함께 조회해도 결제 기록이 중복되지 않는다.")
+    @Test
+    void findAllResponses() {
+        // given
+        PurchaseItem itemA = PurchaseItem.createPurchaseItem(productA, productA.getPrice(), 1);
+        PurchaseItem itemB = PurchaseItem.createPurchaseItem(productB, productB.getPrice(), 2);
+        purchaseRepository.create(Purchase.createPurchase(itemA, itemB));
+
+        PurchaseItem itemC = PurchaseItem.createPurchaseItem(productA, productA.getPrice(), 1);
+        purchaseRepository.create(Purchase.createPurchase(itemC));
+
+        // when
+        List<PurchaseResponseDto> allPurchases = purchaseRepository.findAllResponses();
+
+        // then
+        assertThat(allPurchases).hasSize(2);
+        assertThat(allPurchases).extracting(purchase -> purchase.getPurchaseItems().size())
+                .containsExactlyInAnyOrder(2, 1);
+        assertThat(allPurchases).extracting(PurchaseResponseDto::getTotalAmount)
+                .containsExactlyInAnyOrder(5000, 1000);
+    }
+
+    @DisplayName("커서로 다음 페이지를 이어서 조회하면 모든 결제 기록이 중복,누락 없이 최신순으로 조회된다.")
+    @Test
+    void findResponsePage() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            PurchaseItem item = PurchaseItem.createPurchaseItem(productA, productA.getPrice(), 1);
+            purchaseRepository.create(Purchase.createPurchase(item));
+        }
+
+        // when
+        List<PurchaseResponseDto> pages = new ArrayList<>();
+        List<PurchaseResponseDto> page = purchaseRepository.findResponsePage(null, null, 2);
+        while (!page.isEmpty()) {
+            assertThat(page.size()).isLessThanOrEqualTo(2);
+            pages.addAll(page);
+            PurchaseResponseDto last = page.get(page.size() - 1);
+            page = purchaseRepository.findResponsePage(last.getPurchaseDate(), last.getPurchaseId(), 2);
+        }
+
+        // then
+        assertThat(pages).hasSize(5);
+        assertThat(pages).extracting(PurchaseResponseDto::getPurchaseId).doesNotHaveDuplicates();
+        assertThat(pages).isSortedAccordingTo(Comparator.comparing(PurchaseResponseDto::getPurchaseDate)
+                .thenComparing(PurchaseResponseDto::getPurchaseId).reversed());
+        assertThat(pages).allSatisfy(purchase -> assertThat(purchase.getPurchaseItems()).hasSize(1));
+    }
+
+    @DisplayName("내보내기 스트림은 구매 항목마다 한 줄씩 제품 이름과 함께 반환한다.")
+    @Test
+    void streamExportRows() {
+        // given
+        PurchaseItem itemA = PurchaseItem.createPurchaseItem(productA, productA.getPrice(), 1);
+        PurchaseItem itemB = PurchaseItem.createPurchaseItem(productB, productB.getPrice(), 2);
+        purchaseRepository.create(Purchase.createPurchase(itemA, itemB));
+
+        // when
+        List<PurchaseExportRow> rows;
+        try (Stream<PurchaseExportRow> stream = purchaseRepository.streamExportRows()) {
+            rows = stream.toList();
+        }
+
+        // then
+        assertThat(rows).hasSize(2);
+        assertThat(rows).extracting(PurchaseExportRow::getProductName).containsExactly("상품A", "상품B");
+        assertThat(rows).extracting(PurchaseExportRow::getOrderQuantity).containsExactly(1, 2);
+    }
+
     @DisplayName("특정 기간 사이의 결제 기록을 정확히 조회한다.")
     @Test
     void findByDateBetween() {
@@ -0,0 +1,110 @@
+package min.example.QRp.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import min.example.QRp.domain.Product;
+import min.example.QRp.domain.Purchase;
+import min.example.QRp.domain.PurchaseItem;
+import min.example.QRp.dto.ProductPageDto;
+import min.example.QRp.dto.PurchasePageDto;
+import min.example.QRp.dto.PurchaseResponseDto;
+import min.example.QRp.repository.ProductSearchType;
+import min.example.QRp.repository.ProductSort;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 구매 내역 화면이 구매/항목 수에 상관없이 일정한 수의 쿼리로 그려지는지 확인
+ * Hibernate 통계로 실제 실행된 SQL 수를 세므로 N+1 이 다시 생기면 테스트가 실패함
+ * 조회 화면은 프로젝션으로 읽으므로 엔티티가 로드되지 않는지도 확인함
+ */
+@SpringBootTest
+@Transactional
+class AdminServiceQueryCountTest {
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    private Statistics statistics;
+    private int firstPurchaseId;
+
+    @BeforeEach
+    void setUp() {
+        // 구매 5건, 구매마다 제품 3개씩
+        for (int i = 0; i < 5; i++) {
+            PurchaseItem[] items = new PurchaseItem[3];
+            for (int j = 0; j < 3; j++) {
+                Product product = new Product("상품" + i + "-" + j, 1000, 10);
+                em.persist(product);
+                items[j] = PurchaseItem.createPurchaseItem(product, product.getPrice(), 1);
+            }
+            Purchase purchase = Purchase.createPurchase(items);
+            em.persist(purchase);
+            if (i == 0) {
+                firstPurchaseId = purchase.getPurchaseId();
+            }
+        }
+        em.flush();
+        em.clear(); // 영속성 컨텍스트를 비워서 실제로 DB에서 읽도록 함
+
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @DisplayName("모든 구매 내역을 제품 이름까지 조회해도 쿼리는 한번만 실행된다.")
+    @Test
+    void findAllPurchases_singleQuery() {
+        // when
+        List<PurchaseResponseDto> purchases = adminService.findAllPurchases();
+
+        // then
+        assertThat(purchases).hasSize(5);
+        assertThat(purchases).allSatisfy(purchase -> assertThat(purchase.getPurchaseItems()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @DisplayName("단일 구매 내역을 제품 이름까지 조회해도 쿼리는 한번만 실행된다.")
+    @Test
+    void findPurchaseById_singleQuery() {
+        // when
+        PurchaseResponseDto purchase = adminService.findPurchaseById(firstPurchaseId);
+
+        // then
+        assertThat(purchase.getPurchaseItems()).hasSize(3);
+        assertThat(purchase.getTotalAmount()).isEqualTo(3000);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @DisplayName("구매 내역과 제품 목록 화면은 엔티티를 영속성 컨텍스트에 올리지 않고 값으로 바로 조회한다.")
+    @Test
+    void readOnlyViews_noEntityLoaded() {
+        // when
+        PurchasePageDto purchasePage = adminService.findPurchasePage(null, null, 3);
+        List<PurchaseResponseDto> purchases = adminService.findAllPurchases();
+        ProductPageDto productPage = adminService.findProductPage("상품", ProductSearchType.PREFIX, ProductSort.NAME, 1, 10);
+
+        // then
+        assertThat(purchasePage.getPurchases()).hasSize(3);
+        assertThat(purchases).hasSize(5);
+        assertThat(productPage.getProducts()).hasSize(10);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+}
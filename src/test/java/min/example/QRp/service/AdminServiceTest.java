@@ -6,22 +6,39 @@ import min.example.QRp.domain.Purchase;
 import min.example.QRp.domain.PurchaseItem;
 import min.example.QRp.domain.PurchaseState;
 import min.example.QRp.dto.CreateProductDto;
+import min.example.QRp.dto.ProductPageDto;
 import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.dto.PurchaseExportRow;
 import min.example.QRp.dto.UpdateProductDto;
+import min.example.QRp.qr.QrCodeCache;
+import min.example.QRp.qr.QrImageFormat;
 import min.example.QRp.repository.ProductRepository;
+import min.example.QRp.repository.ProductSearchType;
+import min.example.QRp.repository.ProductSort;
 import min.example.QRp.repository.PurchaseRepository;
+import min.example.QRp.repository.SalesGranularity;
+import min.example.QRp.repository.SalesRollupRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +50,18 @@ class AdminServiceTest {
     @Mock
     private PurchaseRepository purchaseRepository;
 
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+
+    @Spy
+    private QrCodeCache qrCodeCache = new QrCodeCache(1024 * 1024);
+
     @InjectMocks
     private AdminService adminService;
 
@@ -119,9 +148,9 @@ class AdminServiceTest {
     @Test
     void findAllProducts_정상조회() {
         // given
-        Product product1 = Product.builder().name("상품1").price(1000).quantity(5).build();
-        Product product2 = Product.builder().name("상품2").price(2000).quantity(10).build();
-        List<Product> products = List.of(product1, product2);
+        List<ProductResponseDto> products = List.of(
+                new ProductResponseDto(1, "상품1", 1000, 5),
+                new ProductResponseDto(2, "상품2", 2000, 10));
 
         when(productRepository.findAll()).thenReturn(products);
 
@@ -179,6 +208,46 @@ class AdminServiceTest {
         verify(productRepository).findById(productId);
     }
 
+    @Test
+    void updateProduct_다른상품과같은이름_예외발생() {
+        // given
+        int productId = 1;
+        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findByName(updateProductDto.getName()))
+                .thenReturn(Optional.of(Product.builder().name("수정상품").price(500).quantity(1).build()));
+
+        // when & then
+        assertThrows(IllegalStateException.class,
+                () -> adminService.updateProduct(productId, updateProductDto));
+        assertEquals("테스트상품", testProduct.getName());
+    }
+
+    @Test
+    void findProductPage_페이지정보계산() {
+        // given
+        when(productRepository.count("테스트", ProductSearchType.PREFIX)).thenReturn(45L);
+        when(productRepository.findPage("테스트", ProductSearchType.PREFIX, ProductSort.NAME, 20, 20))
+                .thenReturn(List.of(new ProductResponseDto(testProduct)));
+
+        // when
+        ProductPageDto result = adminService.findProductPage("테스트", ProductSearchType.PREFIX, ProductSort.NAME, 2, 20);
+
+        // then
+        assertEquals(1, result.getProducts().size());
+        assertEquals(3, result.getTotalPages());
+        assertTrue(result.isHasPrevious());
+        assertTrue(result.isHasNext());
+    }
+
+    @Test
+    void findProductPage_잘못된페이지크기_예외발생() {
+        assertThrows(IllegalStateException.class,
+                () -> adminService.findProductPage(null, ProductSearchType.PREFIX, ProductSort.ID, 1, 0));
+        assertThrows(IllegalStateException.class,
+                () -> adminService.findProductPage(null, ProductSearchType.PREFIX, ProductSort.ID, 0, 20));
+        verifyNoInteractions(productRepository);
+    }
+
     @Test
     void updateProduct_존재하지않는상품_예외발생() {
         // given
@@ -201,6 +270,7 @@ class AdminServiceTest {
 
         // then
         verify(productRepository).delete(productId);
+        verify(qrCodeCache).evict(productId);
     }
 
     @Test
@@ -213,22 +283,23 @@ class AdminServiceTest {
                 .price(1000)
                 .quantity(5)
                 .build();
+        ReflectionTestUtils.setField(product, "productId", 1);
 
         PurchaseItem item = PurchaseItem.createPurchaseItem(product, 1000, 2);
         Purchase purchase = Purchase.createPurchase(item);
         purchase.changeState(PurchaseState.COMPLETED);
 
         when(purchaseRepository.findById(purchaseId)).thenReturn(Optional.of(purchase));
-
-        int initialQuantity = product.getQuantity();
+        when(purchaseRepository.markRefunded(List.of(purchaseId))).thenReturn(List.of(purchaseId));
 
         // when
         adminService.refundPurchase(purchaseId);
 
         // then
         assertEquals(PurchaseState.REFUNDED, purchase.getState());
-        assertEquals(initialQuantity + 2, product.getQuantity());
+        verify(stockEngine).increase(Map.of(1, 2)); // 재고 복구는 StockEngine 이 DB 에서 처리
         verify(purchaseRepository).findById(purchaseId);
+        verify(salesRollupService).recordRefund(eq(purchase), any(LocalDateTime.class));
     }
 
     @Test
@@ -238,6 +309,8 @@ class AdminServiceTest {
 
         Product product1 = Product.builder().name("상품1").price(1000).quantity(5).build();
         Product product2 = Product.builder().name("상품2").price(2000).quantity(10).build();
+        ReflectionTestUtils.setField(product1, "productId", 1);
+        ReflectionTestUtils.setField(product2, "productId", 2);
 
         PurchaseItem item1 = PurchaseItem.createPurchaseItem(product1, 1000, 2);
         PurchaseItem item2 = PurchaseItem.createPurchaseItem(product2, 2000, 3);
@@ -245,17 +318,14 @@ class AdminServiceTest {
         purchase.changeState(PurchaseState.COMPLETED);
 
         when(purchaseRepository.findById(purchaseId)).thenReturn(Optional.of(purchase));
-
-        int initialQuantity1 = product1.getQuantity();
-        int initialQuantity2 = product2.getQuantity();
+        when(purchaseRepository.markRefunded(List.of(purchaseId))).thenReturn(List.of(purchaseId));
 
         // when
         adminService.refundPurchase(purchaseId);
 
         // then
         assertEquals(PurchaseState.REFUNDED, purchase.getState());
-        assertEquals(initialQuantity1 + 2, product1.getQuantity());
-        assertEquals(initialQuantity2 + 3, product2.getQuantity());
+        verify(stockEngine).increase(Map.of(1, 2, 2, 3));
     }
 
     @Test
@@ -266,12 +336,14 @@ class AdminServiceTest {
         refundedPurchase.changeState(PurchaseState.REFUNDED);
 
         when(purchaseRepository.findById(purchaseId)).thenReturn(Optional.of(refundedPurchase));
+        when(purchaseRepository.markRefunded(List.of(purchaseId))).thenReturn(List.of()); // 이미 REFUNDED 라 바뀌지 않음
 
         // when & then
         IllegalStateException exception = assertThrows(IllegalStateException.class,
                 () -> adminService.refundPurchase(purchaseId));
 
         assertEquals("이미 환불 처리가 되었습니다.", exception.getMessage());
+        verifyNoInteractions(stockEngine, salesRollupService);
     }
 
     @Test
@@ -312,4 +384,85 @@ class AdminServiceTest {
         assertNotNull(qrCode);
         assertTrue(qrCode.length > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void generateQrCodeImage_같은요청은_캐시에서_반환() throws Exception {
+        // given
+        int productId = 7;
+
+        // when
+        byte[] first = adminService.generateQrCodeImage(productId);
+        byte[] second = adminService.generateQrCodeImage(productId);
+
+        // then
+        assertSame(first, second);
+        assertEquals(1, qrCodeCache.stats().getHits());
+        assertEquals(1, qrCodeCache.stats().getMisses());
+    }
+
+    @Test
+    void generateQrCodeImage_크기와포맷별로_따로캐시() throws Exception {
+        // when
+        byte[] png = adminService.generateQrCodeImage(1, 200, QrImageFormat.PNG);
+        byte[] largePng = adminService.generateQrCodeImage(1, 400, QrImageFormat.PNG);
+        byte[] gif = adminService.generateQrCodeImage(1, 200, QrImageFormat.GIF);
+
+        // then
+        assertNotSame(png, largePng);
+        assertNotSame(png, gif);
+        assertEquals(3, qrCodeCache.stats().getMisses());
+        assertEquals(3, qrCodeCache.stats().getEntries());
+    }
+
+    @Test
+    void generateQrCodeImage_허용범위밖크기_예외발생() {
+        assertThrows(IllegalStateException.class,
+                () -> adminService.generateQrCodeImage(1, 10, QrImageFormat.PNG));
+    }
+
+    @Test
+    void findSalesReport_조회범위초과_예외발생() {
+        // given
+        LocalDate from = LocalDate.of(2025, 1, 1);
+
+        // when, then
+        assertThrows(IllegalStateException.class,
+                () -> adminService.findSalesReport(from, from.plusDays(31), SalesGranularity.HOUR, null));
+        assertThrows(IllegalStateException.class,
+                () -> adminService.findSalesReport(from, from.minusDays(1), SalesGranularity.DAY, null));
+        verifyNoInteractions(salesRollupRepository);
+    }
+
+    @Test
+    void findSalesReport_종료일다음날까지_조회() {
+        // given
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 1, 31);
+
+        // when
+        adminService.findSalesReport(from, to, SalesGranularity.HOUR, 1);
+
+        // then
+        verify(salesRollupRepository).findReport(from, LocalDate.of(2025, 2, 1), SalesGranularity.HOUR, 1);
+    }
+
+    @Test
+    void exportPurchasesCsv_수식으로시작하는값_무력화() throws Exception {
+        // given
+        LocalDateTime at = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(purchaseRepository.streamExportRows()).thenReturn(Stream.of(
+                new PurchaseExportRow(1, at, PurchaseState.COMPLETED, 1, "=HYPERLINK(\"x\")", 1000, 1),
+                new PurchaseExportRow(2, at, PurchaseState.COMPLETED, 2, "-1+2", 1000, 1),
+                new PurchaseExportRow(3, at, PurchaseState.COMPLETED, 3, "줄\r바꿈", 1000, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        adminService.exportPurchasesCsv(out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[1].contains(",\"'=HYPERLINK(\"\"x\"\")\","), lines[1]);
+        assertTrue(lines[2].contains(",'-1+2,"), lines[2]);
+        assertTrue(lines[3].contains(",\"줄\r바꿈\","), lines[3]);
+    }
+}
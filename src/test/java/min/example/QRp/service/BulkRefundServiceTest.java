@@ -0,0 +1,229 @@
+package min.example.QRp.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import min.example.QRp.domain.Product;
+import min.example.QRp.dto.BulkRefundRequestDto;
+import min.example.QRp.dto.BulkRefundStatusDto;
+import min.example.QRp.dto.PurchaseRequestDto;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 일괄 환불 작업은 전용 스레드에서 자기 트랜잭션으로 커밋하므로
+ * @Transactional 롤백 대신 구매를 실제로 커밋하고 끝나고 직접 지움
+ */
+@SpringBootTest(properties = "refund.bulk.chunk-size=2")
+class BulkRefundServiceTest {
+
+    @Autowired
+    BulkRefundService bulkRefundService;
+
+    @Autowired
+    ConsumerService consumerService;
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> productIds = new ArrayList<>();
+    private final List<Integer> purchaseIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Integer purchaseId : purchaseIds) {
+            jdbcTemplate.update("delete from purchase_item where purchase_id = ?", purchaseId);
+            jdbcTemplate.update("delete from purchase where purchase_id = ?", purchaseId);
+        }
+        for (Integer productId : productIds) {
+            jdbcTemplate.update("delete from sales_rollup where product_id = ?", productId);
+            jdbcTemplate.update("delete from product where product_id = ?", productId);
+        }
+    }
+
+    @DisplayName("제품 조건으로 일괄 환불하면 그 제품이 들어있는 구매만 환불되고 재고와 판매 집계가 제품별로 복구된다.")
+    @Test
+    void bulkRefund_byProduct() throws Exception {
+        // given
+        int productA = createProduct("일괄환불상품A", 100);
+        int productB = createProduct("일괄환불상품B", 100);
+        purchase(Map.of(productA, 2, productB, 1));
+        purchase(Map.of(productA, 3));
+        purchase(Map.of(productA, 4));
+        purchase(Map.of(productB, 5));
+        int alreadyRefunded = purchase(Map.of(productA, 1));
+        adminService.refundPurchase(alreadyRefunded);
+
+        BulkRefundRequestDto request = new BulkRefundRequestDto();
+        request.setProductId(productA);
+        request.setFrom(LocalDate.now());
+        request.setTo(LocalDate.now());
+
+        // when
+        BulkRefundStatusDto status = await(bulkRefundService.start(request).getJobId());
+
+        // then
+        assertThat(status.getStatus()).isEqualTo(BulkRefundStatusDto.Status.COMPLETED);
+        assertThat(status.getTotal()).isEqualTo(3);
+        assertThat(status.getProcessed()).isEqualTo(3);
+        assertThat(status.getRefunded()).isEqualTo(3);
+        assertThat(status.getRestoredUnits()).isEqualTo(10);
+        assertThat(stock(productA)).isEqualTo(100);
+        assertThat(stock(productB)).isEqualTo(95);
+        assertThat(refundedUnits(productA)).isEqualTo(10);
+        assertThat(refundedUnits(productB)).isEqualTo(1);
+    }
+
+    @DisplayName("구매 ID 목록으로 일괄 환불하면 중복은 한번만, 없거나 이미 환불된 구매는 건너뛴다.")
+    @Test
+    void bulkRefund_byIds() throws Exception {
+        // given
+        int product = createProduct("일괄환불상품C", 100);
+        int first = purchase(Map.of(product, 2));
+        int second = purchase(Map.of(product, 3));
+        int refunded = purchase(Map.of(product, 4));
+        adminService.refundPurchase(refunded);
+
+        BulkRefundRequestDto request = new BulkRefundRequestDto();
+        request.setPurchaseIds(List.of(first, second, first, refunded, Integer.MAX_VALUE));
+
+        // when
+        BulkRefundStatusDto status = await(bulkRefundService.start(request).getJobId());
+
+        // then
+        assertThat(status.getStatus()).isEqualTo(BulkRefundStatusDto.Status.COMPLETED);
+        assertThat(status.getTotal()).isEqualTo(4);
+        assertThat(status.getRefunded()).isEqualTo(2);
+        assertThat(status.getSkipped()).isEqualTo(2);
+        assertThat(stock(product)).isEqualTo(100);
+    }
+
+    @DisplayName("같은 구매를 동시에 환불하면 먼저 환불한 쪽만 재고를 돌려주고 나중 요청은 실패한다.")
+    @Test
+    void refundPurchase_concurrent() throws Exception {
+        // given
+        int product = createProduct("동시환불상품", 100);
+        int purchaseId = purchase(Map.of(product, 5));
+        CountDownLatch refunded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // when 첫 환불이 커밋하기 전에 같은 구매를 다시 환불
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            adminService.refundPurchase(purchaseId);
+            refunded.countDown();
+            await(commit);
+        }));
+        refunded.await();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> adminService.refundPurchase(purchaseId));
+        Thread.sleep(300); // 두번째 환불이 구매 행 잠금을 기다리는 동안 커밋
+        commit.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+        assertThat(e).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(stock(product)).isEqualTo(100);
+        assertThat(refundedUnits(product)).isEqualTo(5);
+    }
+
+    @DisplayName("구매 ID 목록과 조건을 함께 주거나 둘 다 없으면 작업을 만들지 않는다.")
+    @Test
+    void bulkRefund_invalidRequest() {
+        // given
+        BulkRefundRequestDto empty = new BulkRefundRequestDto();
+        BulkRefundRequestDto both = new BulkRefundRequestDto();
+        both.setPurchaseIds(List.of(1));
+        both.setProductId(1);
+        BulkRefundRequestDto reversed = new BulkRefundRequestDto();
+        reversed.setFrom(LocalDate.now());
+        reversed.setTo(LocalDate.now().minusDays(1));
+
+        // when & then
+        assertThrows(IllegalStateException.class, () -> bulkRefundService.start(empty));
+        assertThrows(IllegalStateException.class, () -> bulkRefundService.start(both));
+        assertThrows(IllegalStateException.class, () -> bulkRefundService.start(reversed));
+        assertThrows(EntityNotFoundException.class, () -> bulkRefundService.findJob("없는작업"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BulkRefundStatusDto await(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        BulkRefundStatusDto status = bulkRefundService.findJob(jobId);
+        while (status.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = bulkRefundService.findJob(jobId);
+        }
+        return status;
+    }
+
+    private int createProduct(String name, int quantity) {
+        Product product = transactionTemplate.execute(status -> productRepository.create(new Product(name, 1000, quantity)));
+        productIds.add(product.getProductId());
+        return product.getProductId();
+    }
+
+    private int purchase(Map<Integer, Integer> cart) {
+        int purchaseId = consumerService.createPurchase(purchaseRequest(cart)).getPurchaseId();
+        purchaseIds.add(purchaseId);
+        return purchaseId;
+    }
+
+    private int stock(int productId) {
+        return jdbcTemplate.queryForObject("select quantity from product where product_id = ?", Integer.class, productId);
+    }
+
+    private long refundedUnits(int productId) {
+        return jdbcTemplate.queryForObject("select coalesce(sum(refunded_units), 0) from sales_rollup where product_id = ?",
+                Long.class, productId);
+    }
+
+    private static PurchaseRequestDto purchaseRequest(Map<Integer, Integer> cart) {
+        List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
+        cart.forEach((productId, quantity) -> {
+            PurchaseRequestDto.OrderItemDto orderItem = new PurchaseRequestDto.OrderItemDto();
+            orderItem.setProductId(productId);
+            orderItem.setQuantity(quantity);
+            orderList.add(orderItem);
+        });
+        PurchaseRequestDto purchaseRequestDto = new PurchaseRequestDto();
+        purchaseRequestDto.setOrderList(orderList);
+        return purchaseRequestDto;
+    }
+}
@@ -1,26 +1,54 @@
 package min.example.QRp.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import min.example.QRp.cart.InMemoryCartStore;
 import min.example.QRp.domain.Product;
 import min.example.QRp.domain.Purchase;
 import min.example.QRp.domain.PurchaseItem;
+import min.example.QRp.domain.ReservationStatus;
+import min.example.QRp.dto.CartLineUpdateDto;
 import min.example.QRp.dto.ProductResponseDto;
 import min.example.QRp.dto.PurchaseRequestDto;
+import min.example.QRp.dto.kakao.KakaoApproveResponseDto;
+import min.example.QRp.kakao.KakaoPayClient;
+import min.example.QRp.payment.CheckoutSnapshot;
+import min.example.QRp.payment.InMemoryPaymentStateStore;
+import min.example.QRp.payment.PaymentStateStore.Approval;
+import min.example.QRp.payment.PaymentStateStore.PaymentState;
+import min.example.QRp.repository.ProductCache;
 import min.example.QRp.repository.ProductRepository;
 import min.example.QRp.repository.PurchaseRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +60,30 @@ class ConsumerServiceTest {
     @Mock
     private PurchaseRepository purchaseRepository;
 
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private PurchaseGroupCommitter purchaseGroupCommitter;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private KakaoPayClient kakaoPayClient;
+
+    @Spy
+    private ProductCache productCache = new ProductCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private InMemoryCartStore cartStore = new InMemoryCartStore();
+
+    @Spy
+    private InMemoryPaymentStateStore paymentStateStore = new InMemoryPaymentStateStore();
+
     @InjectMocks
     private ConsumerService consumerService;
 
@@ -62,7 +114,7 @@ class ConsumerServiceTest {
     void findProductById_정상조회() {
         // given
         int productId = 1;
-        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct));
+        when(productRepository.findDtoById(productId)).thenReturn(Optional.of(new ProductResponseDto(testProduct)));
 
         // when
         ProductResponseDto result = consumerService.findProductById(productId);
@@ -72,21 +124,21 @@ class ConsumerServiceTest {
         assertEquals(testProduct.getName(), result.getName());
         assertEquals(testProduct.getPrice(), result.getPrice());
         assertEquals(testProduct.getQuantity(), result.getQuantity());
-        verify(productRepository).findById(productId);
+        verify(productRepository).findDtoById(productId);
     }
 
     @Test
     void findProductById_존재하지않는상품_예외발생() {
         // given
         int productId = 999;
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(productRepository.findDtoById(productId)).thenReturn(Optional.empty());
 
         // when & then
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
                 () -> consumerService.findProductById(productId));
 
         assertTrue(exception.getMessage().contains("해당 ID의 상품을 찾을 수 없습니다."));
-        verify(productRepository).findById(productId);
+        verify(productRepository).findDtoById(productId);
     }
 
 
@@ -98,8 +150,9 @@ class ConsumerServiceTest {
                 .price(1000)
                 .quantity(10)
                 .build();
+        ReflectionTestUtils.setField(product, "productId", 1);
 
-        when(productRepository.findById(1)).thenReturn(Optional.of(product));
+        when(productRepository.findAllByIds(List.of(1))).thenReturn(List.of(product));
         when(purchaseRepository.create(any(Purchase.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -108,9 +161,10 @@ class ConsumerServiceTest {
         // then
         assertNotNull(result);
         assertEquals(1, result.getPurchaseItems().size());
-        assertEquals(8, product.getQuantity()); // 10 - 2 = 8
-        verify(productRepository).findById(1);
+        verify(stockEngine).decrease(Map.of(1, 2)); // 재고 차감은 StockEngine 이 DB 에서 처리
+        verify(productRepository).findAllByIds(List.of(1));
         verify(purchaseRepository).create(any(Purchase.class));
+        verify(salesRollupService).recordSale(result); // 판매 집계도 같은 트랜잭션에서 갱신
     }
 
     @Test
@@ -118,6 +172,8 @@ class ConsumerServiceTest {
         // given
         Product product1 = Product.builder().name("상품1").price(1000).quantity(10).build();
         Product product2 = Product.builder().name("상품2").price(2000).quantity(15).build();
+        ReflectionTestUtils.setField(product1, "productId", 1);
+        ReflectionTestUtils.setField(product2, "productId", 2);
 
         PurchaseRequestDto multiOrderDto = new PurchaseRequestDto();
         List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
@@ -134,8 +190,7 @@ class ConsumerServiceTest {
         orderList.add(order2);
         multiOrderDto.setOrderList(orderList);
 
-        when(productRepository.findById(1)).thenReturn(Optional.of(product1));
-        when(productRepository.findById(2)).thenReturn(Optional.of(product2));
+        when(productRepository.findAllByIds(List.of(1, 2))).thenReturn(List.of(product1, product2));
         when(purchaseRepository.create(any(Purchase.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -144,17 +199,15 @@ class ConsumerServiceTest {
         // then
         assertNotNull(result);
         assertEquals(2, result.getPurchaseItems().size());
-        assertEquals(8, product1.getQuantity()); // 10 - 2 = 8
-        assertEquals(12, product2.getQuantity()); // 15 - 3 = 12
-        verify(productRepository).findById(1);
-        verify(productRepository).findById(2);
+        verify(stockEngine).decrease(Map.of(1, 2, 2, 3));
+        verify(productRepository).findAllByIds(List.of(1, 2)); // 제품 수와 상관없이 한번만 조회
         verify(purchaseRepository).create(any(Purchase.class));
     }
 
     @Test
     void createPurchase_존재하지않는상품_예외발생() {
         // given
-        when(productRepository.findById(1)).thenReturn(Optional.empty());
+        when(productRepository.findAllByIds(List.of(1))).thenReturn(List.of());
 
         // when & then
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
@@ -173,6 +226,7 @@ class ConsumerServiceTest {
                 .price(1000)
                 .quantity(1)
                 .build();
+        ReflectionTestUtils.setField(lowStockProduct, "productId", 1);
 
         PurchaseRequestDto.OrderItemDto orderItem = new PurchaseRequestDto.OrderItemDto();
         orderItem.setProductId(1);
@@ -181,7 +235,9 @@ class ConsumerServiceTest {
         PurchaseRequestDto requestDto = new PurchaseRequestDto();
         requestDto.setOrderList(List.of(orderItem));
 
-        when(productRepository.findById(1)).thenReturn(Optional.of(lowStockProduct));
+        when(productRepository.findAllByIds(List.of(1))).thenReturn(List.of(lowStockProduct));
+        doThrow(new IllegalStateException("재고부족상품의 재고가 부족합니다. (남은 수량: 1개)"))
+                .when(stockEngine).decrease(Map.of(1, 5));
 
         // when & then
         IllegalStateException exception = assertThrows(IllegalStateException.class,
@@ -195,6 +251,40 @@ class ConsumerServiceTest {
 
 
 
+    @Test
+    void getDetailedCart_장바구니순서대로_한번에조회() {
+        // given
+        Product product1 = Product.builder().name("상품1").price(1000).quantity(10).build();
+        Product product2 = Product.builder().name("상품2").price(2000).quantity(15).build();
+        ReflectionTestUtils.setField(product1, "productId", 1);
+        ReflectionTestUtils.setField(product2, "productId", 2);
+
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        cart.put(2, 1);
+        cart.put(1, 4);
+
+        when(productRepository.findAllDtosByIds(any())).thenReturn(List.of(new ProductResponseDto(product1), new ProductResponseDto(product2)));
+
+        // when
+        Map<ProductResponseDto, Integer> result = consumerService.getDetailedCart(cart);
+
+        // then
+        assertEquals(List.of("상품2", "상품1"), result.keySet().stream().map(ProductResponseDto::getName).toList());
+        assertEquals(List.of(1, 4), new ArrayList<>(result.values()));
+        assertEquals(2000 + 1000 * 4, consumerService.calculateTotalAmount(result));
+        verify(productRepository, times(1)).findAllDtosByIds(any());
+    }
+
+    @Test
+    void validateStock_삭제된상품이있으면_예외발생() {
+        // given
+        when(productRepository.findAllDtosByIds(any())).thenReturn(List.of());
+
+        // when & then
+        assertThrows(EntityNotFoundException.class,
+                () -> consumerService.validateStock(Map.of(7, 1)));
+    }
+
     @Test
     void createPurchase_빈주문목록() {
         // given
@@ -211,4 +301,262 @@ class ConsumerServiceTest {
         assertTrue(result.getPurchaseItems().isEmpty());
         verify(purchaseRepository).create(any(Purchase.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void addToCart_재고만큼만_담기고_바뀐줄과_총합계를_돌려준다() {
+        // given 재고 2개
+        when(productRepository.findDtoById(1)).thenReturn(Optional.of(new ProductResponseDto(1, "상품1", 1000, 2)));
+        consumerService.addToCart("cart-1", 1);
+
+        // when
+        CartLineUpdateDto line = consumerService.addToCart("cart-1", 1);
+
+        // then
+        assertEquals(2, line.getQuantity());
+        assertEquals(2000, line.getLineAmount());
+        assertEquals(2000, line.getTotalAmount());
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> consumerService.addToCart("cart-1", 1));
+        assertEquals("상품1의 재고가 부족합니다. (남은 수량: 2개)", exception.getMessage());
+        assertEquals(Map.of(1, 2), consumerService.getCart("cart-1"));
+        verify(productRepository, times(1)).findDtoById(1); // 이후로는 제품 캐시에서 읽음
+    }
+
+    @Test
+    void subtractFromCart_1개남은상품은_빠지고_남은상품으로_총합계를_계산한다() {
+        // given
+        when(productRepository.findDtoById(anyInt()))
+                .thenAnswer(invocation -> Optional.of(new ProductResponseDto(invocation.getArgument(0), "상품", 1000, 10)));
+        consumerService.addToCart("cart-1", 1);
+        consumerService.addToCart("cart-1", 2);
+        consumerService.addToCart("cart-1", 2);
+
+        // when
+        CartLineUpdateDto removed = consumerService.subtractFromCart("cart-1", 1);
+        CartLineUpdateDto subtracted = consumerService.subtractFromCart("cart-1", 2);
+
+        // then
+        assertEquals(0, removed.getQuantity());
+        assertEquals(2000, removed.getTotalAmount());
+        assertEquals(1, subtracted.getQuantity());
+        assertEquals(1000, subtracted.getTotalAmount());
+        assertEquals(1, subtracted.getLineCount());
+        assertEquals(Map.of(2, 1), consumerService.getCart("cart-1"));
+    }
+
+    @Test
+    void cancelPayment_주문ID와_장바구니ID가_모두맞아야_예약을_돌려준다() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+
+        // when
+        consumerService.cancelPayment("order-1", "cart-2");
+        consumerService.cancelPayment("order-1", null);
+
+        // then
+        verify(stockReservationService, never()).release(any());
+        assertTrue(paymentStateStore.find("order-1").isPresent());
+
+        consumerService.cancelPayment("order-1", "cart-1");
+        verify(stockReservationService).release("order-1");
+        assertTrue(paymentStateStore.find("order-1").isEmpty());
+    }
+
+    @Test
+    void kakaoPayApprove_결제정보가_없거나_만료되면_예외발생() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().minusSeconds(1)));
+
+        // when
+        IllegalStateException expired = assertThrows(IllegalStateException.class,
+                () -> consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1"));
+        IllegalStateException unknown = assertThrows(IllegalStateException.class,
+                () -> consumerService.kakaoPayApprove("order-2", "pg-token", "cart-1"));
+
+        // then
+        assertEquals("카카오페이 결제 정보가 없습니다.", expired.getMessage());
+        assertEquals("카카오페이 결제 정보가 없습니다.", unknown.getMessage());
+        verifyNoInteractions(stockReservationService);
+    }
+
+    @Test
+    void kakaoPayApprove_결제준비때_고정한가격으로_구매를만들고_제품을_다시읽지않는다() {
+        // given 결제 준비 뒤에 가격이 바뀜
+        ReflectionTestUtils.setField(testProduct, "productId", 1);
+        testProduct.update(null, 1500, null);
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        cartStore.increment("cart-1", 1, 10);
+        runGroupCommitInline();
+
+        when(stockReservationService.convert("order-1")).thenReturn(new HashMap<>(Map.of(1, 2)));
+        when(kakaoPayClient.approve(eq("tid-1"), any())).thenReturn(approveResponse("A1"));
+        when(productRepository.getReference(1)).thenReturn(testProduct);
+
+        // when
+        consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1");
+
+        // then
+        ArgumentCaptor<Purchase> purchase = ArgumentCaptor.forClass(Purchase.class);
+        verify(purchaseRepository).create(purchase.capture());
+        PurchaseItem item = purchase.getValue().getPurchaseItems().get(0);
+        assertEquals(1000, item.getOrderPrice()); // 카카오페이에 보낸 금액을 만든 가격
+        assertEquals(2, item.getOrderQuantity());
+        verify(stockReservationService).beginApproval("order-1", Map.of(1, 2)); // 승인 API 보다 먼저
+        verify(productRepository, never()).findAllByIds(any());
+        verify(productRepository, never()).findAllDtosByIds(any());
+        verify(kakaoPayClient, never()).cancel(any(), any());
+        assertEquals(new Approval("A1", "MONEY"), paymentStateStore.find("order-1").orElseThrow().approval());
+        assertTrue(consumerService.getCart("cart-1").isEmpty());
+    }
+
+    @Test
+    void kakaoPayApprove_승인기록이_있는결제는_다시승인하지않고_같은응답을준다() {
+        // given 다른 서버가 승인과 구매 기록까지 끝낸 결제 (이 서버의 KakaoPayClient 는 승인 결과를 모름)
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30),
+                new Approval("A1", "CARD")));
+
+        // when
+        KakaoApproveResponseDto duplicate = consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1");
+        consumerService.cancelPayment("order-1", "cart-1"); // 승인된 뒤에 결제 취소 화면으로 돌아와도
+
+        // then
+        assertEquals("A1", duplicate.getAid());
+        assertEquals("tid-1", duplicate.getTid());
+        assertEquals("CARD", duplicate.getPaymentMethodType());
+        assertEquals("테스트상품", duplicate.getItemName());
+        verifyNoInteractions(stockReservationService, kakaoPayClient);
+        assertTrue(paymentStateStore.find("order-1").isPresent());
+    }
+
+    @Test
+    void kakaoPayApprove_예약수량이_스냅샷과_다르면_승인하지않는다() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        doThrow(new IllegalStateException("결제 준비때와 예약된 수량이 다릅니다. 다시 결제해주세요."))
+                .when(stockReservationService).beginApproval("order-1", Map.of(1, 2));
+        when(stockReservationService.findStatus("order-1")).thenReturn(Optional.of(ReservationStatus.HELD));
+
+        // when & then
+        assertThrows(IllegalStateException.class,
+                () -> consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1"));
+        verify(kakaoPayClient, never()).approve(any(), any());
+        verify(purchaseRepository, never()).create(any());
+    }
+
+    @Test
+    void kakaoPayApprove_승인뒤_구매기록이_실패하면_카카오페이결제를_취소하고_재고예약을_해제한다() {
+        // given
+        ReflectionTestUtils.setField(testProduct, "productId", 1);
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        cartStore.increment("cart-1", 1, 10);
+        runGroupCommitInline();
+        when(kakaoPayClient.approve(eq("tid-1"), any())).thenReturn(approveResponse("A1"));
+        when(productRepository.getReference(1)).thenReturn(testProduct);
+        when(purchaseRepository.create(any())).thenThrow(new DataAccessResourceFailureException("DB 연결 끊김"));
+
+        // when
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1"));
+
+        // then 돈이 나간 결제를 취소한 뒤에 재고를 돌려줌
+        ArgumentCaptor<MultiValueMap<String, String>> cancelBody = ArgumentCaptor.captor();
+        InOrder inOrder = inOrder(kakaoPayClient, stockReservationService);
+        inOrder.verify(kakaoPayClient).cancel(eq("tid-1"), cancelBody.capture());
+        inOrder.verify(stockReservationService).releaseApproving("order-1");
+        assertEquals("2000", cancelBody.getValue().getFirst("cancel_amount"));
+        assertTrue(paymentStateStore.find("order-1").isEmpty());
+        assertEquals(Map.of(1, 1), consumerService.getCart("cart-1")); // 장바구니는 남겨서 다시 결제할 수 있음
+    }
+
+    @Test
+    void kakaoPayApprove_승인한결제를_취소하지도_못하면_재고예약을_승인중으로_남긴다() {
+        // given
+        ReflectionTestUtils.setField(testProduct, "productId", 1);
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        runGroupCommitInline();
+        when(kakaoPayClient.approve(eq("tid-1"), any())).thenReturn(new KakaoApproveResponseDto());
+        when(productRepository.getReference(1)).thenReturn(testProduct);
+        when(purchaseRepository.create(any())).thenThrow(new DataAccessResourceFailureException("DB 연결 끊김"));
+        doThrow(new ResourceAccessException("카카오페이 응답 없음")).when(kakaoPayClient).cancel(eq("tid-1"), any());
+
+        // when
+        DataAccessResourceFailureException e = assertThrows(DataAccessResourceFailureException.class,
+                () -> consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1"));
+
+        // then
+        assertInstanceOf(ResourceAccessException.class, e.getSuppressed()[0]);
+        verify(stockReservationService, never()).releaseApproving(any());
+        assertTrue(paymentStateStore.find("order-1").isPresent());
+    }
+
+    @Test
+    void kakaoPayApprove_승인API가_거절하면_취소할결제가_없으므로_재고예약을_해제한다() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        when(kakaoPayClient.approve(eq("tid-1"), any())).thenThrow(HttpClientErrorException.create(
+                HttpStatus.BAD_REQUEST, "결제 정보가 일치하지 않습니다.", HttpHeaders.EMPTY, new byte[0], null));
+        doThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "승인되지 않은 결제입니다.", HttpHeaders.EMPTY, new byte[0], null))
+                .when(kakaoPayClient).cancel(eq("tid-1"), any());
+
+        // when
+        assertThrows(HttpClientErrorException.class,
+                () -> consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1"));
+
+        // then
+        verify(stockReservationService).releaseApproving("order-1");
+        verify(stockReservationService, never()).convert(any());
+        verify(purchaseRepository, never()).create(any());
+    }
+
+    @Test
+    void kakaoPayApprove_예약을_승인중으로_바꾸지못하면_구매가_커밋된_경우에만_성공으로_응답한다() {
+        // given
+        paymentStateStore.save(new PaymentState("order-1", "tid-1", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        paymentStateStore.save(new PaymentState("order-2", "tid-2", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        paymentStateStore.save(new PaymentState("order-3", "tid-3", "cart-1", snapshot(), LocalDateTime.now().plusMinutes(30)));
+        // order-1 은 처음 읽은 뒤에 다른 서버의 요청이 승인 기록까지 커밋함
+        PaymentState beforeCommit = paymentStateStore.find("order-1").orElseThrow();
+        paymentStateStore.markApproved("order-1", new Approval("A1", "MONEY"));
+        doReturn(Optional.of(beforeCommit)).doCallRealMethod().when(paymentStateStore).find("order-1");
+        doThrow(new IllegalStateException("결제 가능 시간이 지나 재고 예약이 취소되었습니다. 다시 결제해주세요."))
+                .when(stockReservationService).beginApproval(any(), any());
+        when(stockReservationService.findStatus("order-1")).thenReturn(Optional.of(ReservationStatus.CONVERTED)); // 같은 주문의 다른 요청이 먼저 커밋함
+        when(stockReservationService.findStatus("order-2")).thenReturn(Optional.of(ReservationStatus.RELEASED));  // 만료되어 해제됨
+        when(stockReservationService.findStatus("order-3")).thenReturn(Optional.of(ReservationStatus.APPROVING)); // 다른 요청이 승인중
+
+        // when
+        KakaoApproveResponseDto duplicate = consumerService.kakaoPayApprove("order-1", "pg-token", "cart-1");
+        IllegalStateException expired = assertThrows(IllegalStateException.class,
+                () -> consumerService.kakaoPayApprove("order-2", "pg-token", "cart-1"));
+        IllegalStateException approving = assertThrows(IllegalStateException.class,
+                () -> consumerService.kakaoPayApprove("order-3", "pg-token", "cart-1"));
+
+        // then
+        assertEquals("A1", duplicate.getAid());
+        assertEquals("결제 가능 시간이 지나 재고 예약이 취소되었습니다. 다시 결제해주세요.", expired.getMessage());
+        assertEquals("결제를 승인하고 있습니다. 잠시 후 다시 시도해주세요.", approving.getMessage());
+        verify(kakaoPayClient, never()).approve(any(), any());
+        verify(kakaoPayClient, never()).cancel(any(), any());
+        verify(stockReservationService, never()).releaseApproving(any());
+        verify(purchaseRepository, never()).create(any());
+    }
+
+    private static KakaoApproveResponseDto approveResponse(String aid) {
+        KakaoApproveResponseDto response = new KakaoApproveResponseDto();
+        response.setAid(aid);
+        response.setTid("tid-1");
+        response.setPaymentMethodType("MONEY");
+        return response;
+    }
+
+    /**
+     * 그룹 커밋으로 넘긴 작업을 바로 실행함
+     */
+    private void runGroupCommitInline() {
+        when(purchaseGroupCommitter.execute(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    private static CheckoutSnapshot snapshot() {
+        return new CheckoutSnapshot(List.of(new CheckoutSnapshot.Line(1, "테스트상품", 1000, 2)), 2000);
+    }
+}
@@ -0,0 +1,96 @@
+package min.example.QRp.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import min.example.QRp.domain.Product;
+import min.example.QRp.dto.UpdateProductDto;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 제품이 바뀌는 모든 경로(수정, 삭제, 재고 차감/복구)에서 제품 캐시가 비워져 소비자 화면에 옛 값이 남지 않는지 확인
+ */
+@SpringBootTest
+@Transactional
+class ProductCacheInvalidationTest {
+
+    @Autowired
+    ConsumerService consumerService;
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    StockEngine stockEngine;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    EntityManager em;
+
+    private int productId;
+
+    @BeforeEach
+    void setUp() {
+        productId = productRepository.create(new Product("캐시상품", 1000, 10)).getProductId();
+        em.flush();
+        consumerService.findProductById(productId); // 캐시에 올려둠
+    }
+
+    @DisplayName("관리자가 제품을 수정하면 캐시된 제품 정보가 바뀐다.")
+    @Test
+    void updateProduct_evicts() {
+        // given
+        UpdateProductDto update = new UpdateProductDto();
+        update.setPrice(1500);
+
+        // when
+        adminService.updateProduct(productId, update);
+        em.flush(); // 변경 감지 UPDATE 가 나갈때 엔티티 리스너가 캐시에서 제거함
+
+        // then
+        assertThat(consumerService.findProductById(productId).getPrice()).isEqualTo(1500);
+    }
+
+    @DisplayName("결제와 환불로 재고가 바뀌면 장바구니 재고 검사가 바뀐 재고를 본다.")
+    @Test
+    void stockChange_evicts() {
+        // when
+        stockEngine.decrease(Map.of(productId, 8));
+        em.clear(); // 조건부 UPDATE 는 이미 읽은 엔티티를 바꾸지 않으므로 다음 요청처럼 DB 에서 다시 읽게 함
+
+        // then
+        assertThat(consumerService.getDetailedCart(Map.of(productId, 1)).keySet().iterator().next().getQuantity()).isEqualTo(2);
+        assertThatThrownBy(() -> consumerService.validateStock(Map.of(productId, 3))).isInstanceOf(IllegalStateException.class);
+
+        // when
+        stockEngine.increase(Map.of(productId, 5));
+        em.clear();
+
+        // then
+        assertThat(consumerService.findProductById(productId).getQuantity()).isEqualTo(7);
+    }
+
+    @DisplayName("제품을 삭제하면 캐시에서도 사라진다.")
+    @Test
+    void deleteProduct_evicts() {
+        // when
+        adminService.deleteProduct(productId);
+        em.flush();
+
+        // then
+        assertThatThrownBy(() -> consumerService.findProductById(productId))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+}
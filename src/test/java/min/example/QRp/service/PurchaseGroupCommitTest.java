@@ -0,0 +1,317 @@
+package min.example.QRp.service;
+
+import min.example.QRp.domain.Product;
+import min.example.QRp.dto.PurchaseRequestDto;
+import min.example.QRp.dto.kakao.KakaoReadyResponseDto;
+import min.example.QRp.kakao.KakaoPayStubServer;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * 그룹 커밋을 켜고 여러 스레드가 동시에 카카오페이 결제를 승인할때 모든 구매가 커밋된 뒤에만 돌아오는지,
+ * 한 승인이 실패해도 같은 묶음의 다른 승인은 저장되는지 확인
+ * 카카오페이 스텁 서버를 지연 없이 띄워두고 실제 결제 준비, 승인 흐름을 그대로 탐
+ * 결제마다 실제로 커밋되어야 하므로 @Transactional 롤백 대신 끝나고 직접 지움
+ */
+@SpringBootTest(properties = {"purchase.group-commit.enabled=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"})
+class PurchaseGroupCommitTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS_PER_THREAD = 25;
+
+    private static KakaoPayStubServer stub;
+
+    @Autowired
+    ConsumerService consumerService;
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    SalesRollupService salesRollupService;
+
+    private final List<Integer> productIds = new ArrayList<>();
+    private final Queue<String> partnerOrderIds = new ConcurrentLinkedQueue<>();
+
+    @DynamicPropertySource
+    static void kakaoStub(DynamicPropertyRegistry registry) throws IOException {
+        stub = KakaoPayStubServer.start(0, Duration.ZERO, Duration.ZERO, 0);
+        registry.add("kakao.api-url", stub::getBaseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String partnerOrderId : partnerOrderIds) {
+            jdbcTemplate.update("delete from stock_reservation_line where reservation_id in "
+                    + "(select reservation_id from stock_reservation where partner_order_id = ?)", partnerOrderId);
+            jdbcTemplate.update("delete from stock_reservation where partner_order_id = ?", partnerOrderId);
+        }
+        for (Integer productId : productIds) {
+            List<Integer> purchaseIds = jdbcTemplate.queryForList(
+                    "select distinct purchase_id from purchase_item where product_id = ?", Integer.class, productId);
+            for (Integer purchaseId : purchaseIds) {
+                jdbcTemplate.update("delete from purchase_item where purchase_id = ?", purchaseId);
+                jdbcTemplate.update("delete from purchase where purchase_id = ?", purchaseId);
+            }
+            jdbcTemplate.update("delete from sales_rollup where product_id = ?", productId);
+            jdbcTemplate.update("delete from product where product_id = ?", productId);
+        }
+    }
+
+    @DisplayName("여러 스레드가 동시에 결제를 승인해도 돌아온 승인은 모두 커밋되어 있다.")
+    @Test
+    void concurrentApprove_allCommitted() throws Exception {
+        // given 스레드마다 상품 하나씩, 결제 준비(재고 예약)는 미리 해두고 승인만 잼
+        List<List<Checkout>> threadCheckouts = new ArrayList<>();
+        List<Integer> threadProducts = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int productId = createProduct("그룹커밋상품" + t, CHECKOUTS_PER_THREAD * 2);
+            threadProducts.add(productId);
+            List<Checkout> checkouts = new ArrayList<>();
+            for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+                checkouts.add(ready(Map.of(productId, 2)));
+            }
+            threadCheckouts.add(checkouts);
+        }
+
+        // when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Checkout> checkouts : threadCheckouts) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (Checkout checkout : checkouts) {
+                    approve(checkout);
+                    // 돌아온 시점에 이미 커밋되어 있어야 함 (다른 커넥션에서 바로 보임)
+                    assertThat(reservationStatus(checkout.partnerOrderId())).isEqualTo("CONVERTED");
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // then
+        for (Integer productId : threadProducts) {
+            assertThat(productRepository.findCurrentQuantity(productId)).contains(0);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from purchase_item where product_id = ?",
+                    Integer.class, productId)).isEqualTo(CHECKOUTS_PER_THREAD);
+            assertThat(jdbcTemplate.queryForObject("select sum(units_sold) from sales_rollup where product_id = ?",
+                    Long.class, productId)).isEqualTo(CHECKOUTS_PER_THREAD * 2L);
+        }
+        System.out.printf("[group-commit] %d 스레드 x %d 승인, %.0f purchases/s%n",
+                THREADS, CHECKOUTS_PER_THREAD, THREADS * CHECKOUTS_PER_THREAD / seconds);
+    }
+
+    @DisplayName("같은 묶음에서 구매 기록이 실패한 승인만 취소되고 나머지는 저장된다.")
+    @Test
+    void failedApprove_doesNotAffectOthers() throws Exception {
+        // given 실패할 상품은 판매 집계에서 예외가 남 (트랜잭션 프록시 안쪽의 스파이에 스텁)
+        int failing = createProduct("집계실패상품", 10);
+        int available = createProduct("재고상품", 100);
+        SalesRollupService spy = AopTestUtils.getUltimateTargetObject(salesRollupService);
+        doThrow(new IllegalStateException("판매 집계 실패")).when(spy).recordSale(argThat(purchase ->
+                purchase.getPurchaseItems().stream().anyMatch(item -> item.getProduct().getProductId() == failing)));
+        List<Checkout> succeeding = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            succeeding.add(ready(Map.of(available, 1)));
+        }
+        Checkout failed = ready(Map.of(failing, 3));
+        long cancelsBefore = stub.getCancelCount();
+
+        // when 실패할 승인과 정상 승인을 동시에 보냄
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        List<Future<?>> succeeded = new ArrayList<>();
+        for (Checkout checkout : succeeding) {
+            succeeded.add(executor.submit(() -> approve(checkout)));
+        }
+        Future<?> failure = executor.submit(() -> approve(failed));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // then 실패한 승인은 카카오페이 결제를 취소하고 예약한 재고를 돌려줌
+        for (Future<?> future : succeeded) {
+            future.get();
+        }
+        Exception e = assertThrows(Exception.class, failure::get);
+        assertThat(e).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(stub.getCancelCount() - cancelsBefore).isEqualTo(1);
+        assertThat(reservationStatus(failed.partnerOrderId())).isEqualTo("RELEASED");
+        assertThat(productRepository.findCurrentQuantity(failing)).contains(10);
+        assertThat(productRepository.findCurrentQuantity(available)).contains(96);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from purchase_item where product_id = ?",
+                Integer.class, available)).isEqualTo(4);
+    }
+
+    @DisplayName("묶음 안의 승인들이 판매 집계를 서로 다른 순서로 바꿔도, 같은 제품들을 환불하는 요청과 교착상태 없이 처리된다.")
+    @Test
+    void concurrentApproveAndRefund_noDeadlock() throws Exception {
+        // given 두 제품을 같이 산 구매 (환불은 제품 A, B 를 잠근 다음 집계 A, B 순서로 바꿈)
+        int refunds = 40;
+        int approvesPerThread = 10;
+        int productA = createProduct("교착상품A", 10_000);
+        int productB = createProduct("교착상품B", 10_000);
+        List<Integer> refundable = new ArrayList<>();
+        for (int i = 0; i < refunds; i++) {
+            refundable.add(consumerService.createPurchase(purchaseRequest(Map.of(productA, 1, productB, 1))).getPurchaseId());
+        }
+        List<List<Checkout>> threadCheckouts = new ArrayList<>();
+        for (int t = 0; t < THREADS - 2; t++) {
+            List<Checkout> checkouts = new ArrayList<>();
+            for (int i = 0; i < approvesPerThread; i++) {
+                checkouts.add(ready(Map.of(productB, 1)));
+                checkouts.add(ready(Map.of(productA, 1)));
+            }
+            threadCheckouts.add(checkouts);
+        }
+
+        // when 승인은 B 만 산 다음 A 만 사서 한 묶음 안에서 집계가 B, A 순서로 섞이고, 동시에 A,B 구매를 환불함
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger unexpected = new AtomicInteger();
+        AtomicInteger refunded = new AtomicInteger();
+        for (List<Checkout> checkouts : threadCheckouts) {
+            executor.submit(() -> {
+                start.await();
+                for (Checkout checkout : checkouts) {
+                    try {
+                        approve(checkout);
+                    } catch (RuntimeException e) {
+                        unexpected.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        for (int t = 0; t < 2; t++) {
+            List<Integer> mine = refundable.subList(t * refunds / 2, (t + 1) * refunds / 2);
+            executor.submit(() -> {
+                start.await();
+                for (Integer purchaseId : mine) {
+                    try {
+                        adminService.refundPurchase(purchaseId);
+                        refunded.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        unexpected.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        // then 환불한 만큼 돌아오고 승인한 만큼 빠짐 (잠금 대기 시간초과로 실패한 요청이 없음)
+        int approves = (THREADS - 2) * approvesPerThread;
+        assertThat(unexpected).hasValue(0);
+        assertThat(refunded).hasValue(refunds);
+        assertThat(productRepository.findCurrentQuantity(productA)).contains(10_000 - approves);
+        assertThat(productRepository.findCurrentQuantity(productB)).contains(10_000 - approves);
+        assertThat(jdbcTemplate.queryForObject("select sum(units_sold) from sales_rollup where product_id = ?",
+                Long.class, productA)).isEqualTo((long) refunds + approves);
+    }
+
+
+    /**
+     * 결제 준비 (재고 예약)
+     */
+    private Checkout ready(Map<Integer, Integer> cart) {
+        String cartId = UUID.randomUUID().toString();
+        KakaoReadyResponseDto ready = consumerService.kakaoPayReady(cart, cartId);
+        Map<String, List<String>> query = UriComponentsBuilder.fromUriString(ready.getNextRedirectMobileUrl())
+                .build().getQueryParams();
+        Checkout checkout = new Checkout(query.get("partner_order_id").get(0), query.get("pg_token").get(0), cartId);
+        partnerOrderIds.add(checkout.partnerOrderId());
+        return checkout;
+    }
+
+    /**
+     * 결제 승인, 스텁 서버가 결제 페이지 없이 바로 돌려준 pg_token 으로 승인함
+     */
+    private void approve(Checkout checkout) {
+        consumerService.kakaoPayApprove(checkout.partnerOrderId(), checkout.pgToken(), checkout.cartId());
+    }
+
+    private String reservationStatus(String partnerOrderId) {
+        return jdbcTemplate.queryForObject("select status from stock_reservation where partner_order_id = ?",
+                String.class, partnerOrderId);
+    }
+
+    private int createProduct(String name, int quantity) {
+        Product product = transactionTemplate.execute(status ->
+                productRepository.create(new Product(name + "-" + System.nanoTime(), 1000, quantity)));
+        productIds.add(product.getProductId());
+        return product.getProductId();
+    }
+
+    private static PurchaseRequestDto purchaseRequest(Map<Integer, Integer> cart) {
+        List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
+        cart.forEach((productId, quantity) -> {
+            PurchaseRequestDto.OrderItemDto orderItem = new PurchaseRequestDto.OrderItemDto();
+            orderItem.setProductId(productId);
+            orderItem.setQuantity(quantity);
+            orderList.add(orderItem);
+        });
+        PurchaseRequestDto purchaseRequestDto = new PurchaseRequestDto();
+        purchaseRequestDto.setOrderList(orderList);
+        return purchaseRequestDto;
+    }
+
+    private record Checkout(String partnerOrderId, String pgToken, String cartId) {
+    }
+}
@@ -0,0 +1,134 @@
+package min.example.QRp.service;
+
+import min.example.QRp.domain.Product;
+import min.example.QRp.dto.ProductResponseDto;
+import min.example.QRp.qr.QrImageFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QrLabelServiceTest {
+
+    private AdminService adminService;
+    private QrLabelService qrLabelService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        adminService = mock(AdminService.class);
+        when(adminService.generateQrCodeImage(anyInt(), anyInt(), eq(QrImageFormat.PNG)))
+                .thenAnswer(invocation -> ("png-" + invocation.getArgument(0)).getBytes());
+        qrLabelService = new QrLabelService(adminService, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        qrLabelService.shutdown();
+    }
+
+    @Test
+    void ZIP에_제품순서대로_PNG가_담긴다() throws Exception {
+        // given
+        List<ProductResponseDto> products = products(50);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        qrLabelService.writeZip(products, 200, out);
+
+        // then
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertEquals("png-" + entry.getName().replace(".png", ""), new String(zip.readAllBytes()));
+            }
+        }
+        assertEquals(50, names.size());
+        assertEquals("1.png", names.get(0));
+        assertEquals("50.png", names.get(49));
+    }
+
+    @Test
+    void ZIP에_같은제품은_한번만_담긴다() throws Exception {
+        // given
+        List<ProductResponseDto> products = new ArrayList<>(products(2));
+        products.add(products.get(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        qrLabelService.writeZip(products, 200, out);
+
+        // then
+        int count = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            while (zip.getNextEntry() != null) {
+                count++;
+            }
+        }
+        assertEquals(2, count);
+    }
+
+    @Test
+    void 라벨용지_한페이지가_A4크기_PNG로_그려진다() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        qrLabelService.writeSheet(products(30), 2, out);
+
+        // then
+        BufferedImage sheet = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(QrLabelService.PAGE_WIDTH, sheet.getWidth());
+        assertEquals(QrLabelService.PAGE_HEIGHT, sheet.getHeight());
+    }
+
+    @Test
+    void 존재하지않는페이지_예외발생() {
+        assertThrows(IllegalStateException.class,
+                () -> qrLabelService.writeSheet(products(30), 3, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void 모든페이지가_ZIP으로_묶인다() throws Exception {
+        // given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        qrLabelService.writeSheetsZip(products(QrLabelService.LABELS_PER_PAGE * 2 + 1), out);
+
+        // then
+        int pages = 0;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            while (zip.getNextEntry() != null) {
+                pages++;
+            }
+        }
+        assertEquals(3, pages);
+    }
+
+    private static List<ProductResponseDto> products(int count) {
+        List<ProductResponseDto> products = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Product product = Product.builder().name("상품" + i).price(1000).quantity(10).build();
+            ReflectionTestUtils.setField(product, "productId", i);
+            products.add(new ProductResponseDto(product));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,136 @@
+package min.example.QRp.service;
+
+import jakarta.persistence.EntityManager;
+import min.example.QRp.domain.Product;
+import min.example.QRp.domain.Purchase;
+import min.example.QRp.dto.PurchaseRequestDto;
+import min.example.QRp.dto.SalesReportRow;
+import min.example.QRp.repository.ProductRepository;
+import min.example.QRp.repository.SalesGranularity;
+import min.example.QRp.repository.SalesRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SalesRollupServiceTest {
+
+    @Autowired
+    ConsumerService consumerService;
+
+    @Autowired
+    AdminService adminService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    EntityManager em;
+
+    private Product productA;
+    private Product productB;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        productA = productRepository.create(new Product("집계상품A", 1000, 100));
+        productB = productRepository.create(new Product("집계상품B", 2500, 100));
+        today = LocalDate.now();
+    }
+
+    @DisplayName("구매와 환불이 같은 트랜잭션에서 판매 집계에 더해진다.")
+    @Test
+    void recordSaleAndRefund() {
+        // given
+        consumerService.createPurchase(purchaseRequest(Map.of(productA.getProductId(), 2, productB.getProductId(), 1)));
+        Purchase refunded = consumerService.createPurchase(purchaseRequest(Map.of(productA.getProductId(), 3)));
+
+        // when
+        adminService.refundPurchase(refunded.getPurchaseId());
+        SalesReportRow row = dailyRow(productA.getProductId());
+
+        // then
+        assertThat(row.getProductName()).isEqualTo("집계상품A");
+        assertThat(row.getUnitsSold()).isEqualTo(5);
+        assertThat(row.getRevenue()).isEqualTo(5000);
+        assertThat(row.getRefundedUnits()).isEqualTo(3);
+        assertThat(row.getRefundedAmount()).isEqualTo(3000);
+        assertThat(row.getNetRevenue()).isEqualTo(2000);
+        assertThat(dailyRow(productB.getProductId()).getRevenue()).isEqualTo(2500);
+    }
+
+    @DisplayName("일별 리포트는 시간대별 집계를 합친 값이다.")
+    @Test
+    void dailyReportSumsHourlyBuckets() {
+        // given
+        int productId = productA.getProductId();
+        salesRollupRepository.add(today, 9, productId, 1, 1000, 0, 0);
+        salesRollupRepository.add(today, 15, productId, 2, 2000, 0, 0);
+        salesRollupRepository.add(today, 15, productId, 1, 1000, 1, 1000); // 같은 칸이면 누적됨
+
+        // when
+        List<SalesReportRow> hourly = adminService.findSalesReport(today, today, SalesGranularity.HOUR, productId);
+        SalesReportRow daily = dailyRow(productId);
+
+        // then
+        assertThat(hourly).extracting(SalesReportRow::getHour).containsExactly(9, 15);
+        assertThat(hourly).extracting(SalesReportRow::getUnitsSold).containsExactly(1L, 3L);
+        assertThat(daily.getHour()).isNull();
+        assertThat(daily.getUnitsSold()).isEqualTo(4);
+        assertThat(daily.getNetRevenue()).isEqualTo(3000);
+    }
+
+    @DisplayName("집계를 다시 만들면 원본 구매 내역과 같은 값이 된다.")
+    @Test
+    void rebuildMatchesPurchases() {
+        // given
+        consumerService.createPurchase(purchaseRequest(Map.of(productA.getProductId(), 2)));
+        Purchase refunded = consumerService.createPurchase(purchaseRequest(Map.of(productA.getProductId(), 1)));
+        adminService.refundPurchase(refunded.getPurchaseId());
+        SalesReportRow before = dailyRow(productA.getProductId());
+
+        // when
+        adminService.rebuildSalesRollup();
+        em.clear();
+        SalesReportRow after = dailyRow(productA.getProductId());
+
+        // then
+        assertThat(after.getUnitsSold()).isEqualTo(before.getUnitsSold());
+        assertThat(after.getRevenue()).isEqualTo(before.getRevenue());
+        assertThat(after.getRefundedUnits()).isEqualTo(before.getRefundedUnits());
+        assertThat(after.getRefundedAmount()).isEqualTo(before.getRefundedAmount());
+    }
+
+    private SalesReportRow dailyRow(int productId) {
+        List<SalesReportRow> rows = adminService.findSalesReport(today, today, SalesGranularity.DAY, productId);
+        assertThat(rows).hasSize(1);
+        return rows.get(0);
+    }
+
+    private static PurchaseRequestDto purchaseRequest(Map<Integer, Integer> cart) {
+        List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
+        cart.forEach((productId, quantity) -> {
+            PurchaseRequestDto.OrderItemDto orderItem = new PurchaseRequestDto.OrderItemDto();
+            orderItem.setProductId(productId);
+            orderItem.setQuantity(quantity);
+            orderList.add(orderItem);
+        });
+        PurchaseRequestDto purchaseRequestDto = new PurchaseRequestDto();
+        purchaseRequestDto.setOrderList(orderList);
+        return purchaseRequestDto;
+    }
+}
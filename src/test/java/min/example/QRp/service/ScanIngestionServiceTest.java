@@ -0,0 +1,164 @@
+package min.example.QRp.service;
+
+import min.example.QRp.cart.CartStore;
+import min.example.QRp.domain.Product;
+import min.example.QRp.dto.ScanBatchRequestDto.ScanDto;
+import min.example.QRp.dto.ScanBatchResultDto;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {"scan.debounce=300ms", "scan.dedupe-max-entries=4"})
+@Transactional
+class ScanIngestionServiceTest {
+
+    @Autowired
+    ScanIngestionService scanIngestionService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @MockitoSpyBean
+    CartStore cartStore;
+
+    private final String cartId = UUID.randomUUID().toString();
+    private final LocalDateTime t0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private Product productA;
+    private Product productB;
+
+    @BeforeEach
+    void setUp() {
+        productA = productRepository.create(new Product("스캔상품A", 1000, 10));
+        productB = productRepository.create(new Product("스캔상품B", 2500, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartStore.clear(cartId);
+    }
+
+    @DisplayName("같은 상품을 연달아 읽은 스캔은 한번으로 세고, 상품별로 합쳐서 한번에 담는다.")
+    @Test
+    void debounceAndAggregate() {
+        // given 스캐너가 A 를 100ms 간격으로 세번 읽고, 1초 뒤 다시 댐 / 주소로 된 QR 도 받음
+        int a = productA.getProductId();
+        List<ScanDto> scans = List.of(
+                scan(null, String.valueOf(a), t0),
+                scan(null, String.valueOf(a), t0.plusNanos(100_000_000)),
+                scan(null, "https://qrp.example/consumer/cart/add/" + a, t0.plusNanos(200_000_000)),
+                scan(null, String.valueOf(productB.getProductId()), t0.plusNanos(500_000_000)),
+                scan(null, String.valueOf(a), t0.plusSeconds(1)),
+                scan(null, "not-a-product", t0.plusSeconds(2)),
+                scan(null, "999999999", t0.plusSeconds(3)));
+
+        // when
+        ScanBatchResultDto result = scanIngestionService.ingest(cartId, scans);
+
+        // then
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        assertThat(result.getLines()).hasSize(2);
+        assertThat(result.getLines().get(0).getProductId()).isEqualTo(a);
+        assertThat(result.getLines().get(0).getScanned()).isEqualTo(2);
+        assertThat(result.getLines().get(0).getQuantity()).isEqualTo(2);
+        assertThat(result.getRejected()).extracting(ScanBatchResultDto.Rejected::getPayload)
+                .containsExactly("not-a-product", "999999999");
+        assertThat(result.getTotalAmount()).isEqualTo(2 * 1000 + 2500);
+        assertThat(result.getLineCount()).isEqualTo(2);
+    }
+
+    @DisplayName("재고를 넘는 스캔은 재고까지만 담고, 같은 스캔 ID 로 다시 보낸 묶음은 다시 담지 않는다.")
+    @Test
+    void stockLimitAndResend() {
+        // given 재고 2개인 B 를 세번 스캔
+        String b = String.valueOf(productB.getProductId());
+        String batch = UUID.randomUUID().toString();
+        List<ScanDto> scans = List.of(
+                scan(batch + "-1", b, t0),
+                scan(batch + "-2", b, t0.plusSeconds(1)),
+                scan(batch + "-3", b, t0.plusSeconds(2)));
+
+        // when
+        ScanBatchResultDto first = scanIngestionService.ingest(cartId, scans);
+        ScanBatchResultDto resent = scanIngestionService.ingest(cartId, scans);
+
+        // then
+        assertThat(first.getLines().get(0).getScanned()).isEqualTo(3);
+        assertThat(first.getLines().get(0).getAdded()).isEqualTo(2);
+        assertThat(resent.getDuplicates()).isEqualTo(3);
+        assertThat(resent.getLines()).isEmpty();
+        assertThat(cartStore.get(cartId)).containsEntry(productB.getProductId(), 2);
+    }
+
+    @DisplayName("중간에 실패한 묶음을 다시 보내면 이미 담은 상품은 중복으로 세고, 담지 못한 상품만 담는다.")
+    @Test
+    void resendAfterPartialFailure() {
+        // given A 는 담기고 B 를 담다가 장바구니 저장소 오류
+        String batch = UUID.randomUUID().toString();
+        List<ScanDto> scans = List.of(
+                scan(batch + "-1", String.valueOf(productA.getProductId()), t0),
+                scan(batch + "-2", String.valueOf(productB.getProductId()), t0.plusSeconds(1)));
+        doThrow(new DataAccessResourceFailureException("장바구니 저장소 연결 실패")).doCallRealMethod()
+                .when(cartStore).add(eq(cartId), eq(productB.getProductId()), anyInt(), anyInt());
+        assertThatThrownBy(() -> scanIngestionService.ingest(cartId, scans))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        // when
+        ScanBatchResultDto resent = scanIngestionService.ingest(cartId, scans);
+
+        // then
+        assertThat(resent.getDuplicates()).isEqualTo(1);
+        assertThat(resent.getLines()).extracting(ScanBatchResultDto.Line::getProductId)
+                .containsExactly(productB.getProductId());
+        assertThat(cartStore.get(cartId))
+                .containsEntry(productA.getProductId(), 1)
+                .containsEntry(productB.getProductId(), 1);
+    }
+
+    @DisplayName("기억하는 스캔 ID 가 최대 개수를 넘으면 가장 오래된 것부터 잊는다.")
+    @Test
+    void dedupeMaxEntries() {
+        // given 최대 4개인데 5개를 받음
+        String a = String.valueOf(productA.getProductId());
+        String batch = UUID.randomUUID().toString();
+        List<ScanDto> scans = List.of(
+                scan(batch + "-1", a, t0),
+                scan(batch + "-2", a, t0.plusSeconds(1)),
+                scan(batch + "-3", a, t0.plusSeconds(2)),
+                scan(batch + "-4", a, t0.plusSeconds(3)),
+                scan(batch + "-5", a, t0.plusSeconds(4)));
+        scanIngestionService.ingest(cartId, scans);
+
+        // when
+        ScanBatchResultDto resent = scanIngestionService.ingest(cartId, List.of(scans.get(0), scans.get(4)));
+
+        // then
+        assertThat(resent.getDuplicates()).isEqualTo(1);
+        assertThat(resent.getLines().get(0).getAdded()).isEqualTo(1);
+        assertThat(cartStore.get(cartId)).containsEntry(productA.getProductId(), 6);
+    }
+
+    private static ScanDto scan(String scanId, String payload, LocalDateTime scannedAt) {
+        ScanDto scan = new ScanDto();
+        scan.setScanId(scanId);
+        scan.setPayload(payload);
+        scan.setScannedAt(scannedAt);
+        return scan;
+    }
+}
@@ -0,0 +1,199 @@
+package min.example.QRp.service;
+
+import min.example.QRp.domain.Product;
+import min.example.QRp.domain.Purchase;
+import min.example.QRp.dto.PurchaseRequestDto;
+import min.example.QRp.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 여러 스레드가 동시에 결제해도 재고보다 많이 팔리지 않는지 확인하는 부하 테스트
+ * 결제마다 별도 트랜잭션이 커밋되어야 하므로 @Transactional 롤백 대신 끝나고 직접 지움
+ */
+@SpringBootTest
+class StockEngineConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+    private static final int WARM_UP_CHECKOUTS = 50;
+
+    @Autowired
+    ConsumerService consumerService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> productIds = new ArrayList<>();
+    private final Queue<Integer> purchaseIds = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void warmUp() {
+        // 처음 몇번의 결제는 JIT 컴파일 전이라 느리므로 측정 전에 한 스레드로 미리 돌려둠
+        int productId = createProduct("워밍업", WARM_UP_CHECKOUTS);
+        for (int i = 0; i < WARM_UP_CHECKOUTS; i++) {
+            purchaseIds.add(consumerService.createPurchase(purchaseRequest(Map.of(productId, 1))).getPurchaseId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Integer purchaseId : purchaseIds) {
+            jdbcTemplate.update("delete from purchase_item where purchase_id = ?", purchaseId);
+            jdbcTemplate.update("delete from purchase where purchase_id = ?", purchaseId);
+        }
+        for (Integer productId : productIds) {
+            jdbcTemplate.update("delete from sales_rollup where product_id = ?", productId);
+            jdbcTemplate.update("delete from product where product_id = ?", productId);
+        }
+    }
+
+    @DisplayName("인기 상품 하나를 여러 스레드가 동시에 결제해도 재고만큼만 판매된다.")
+    @Test
+    void concurrentCheckout_noOversell() throws Exception {
+        // given
+        int stock = 50;
+        int productId = createProduct("인기상품", stock);
+
+        // when
+        Result result = run(thread -> Map.of(productId, 1));
+
+        // then
+        assertThat(result.succeeded).isEqualTo(stock);
+        assertThat(result.unexpected).isZero();
+        assertThat(productRepository.findCurrentQuantity(productId)).contains(0);
+        assertThat(soldQuantity(productId)).isEqualTo(stock);
+        assertThat(jdbcTemplate.queryForObject("select sum(units_sold) from sales_rollup where product_id = ?",
+                Long.class, productId)).isEqualTo(stock); // 판매 집계도 같은 트랜잭션에서 커밋됨
+        System.out.printf("[stock] 단일 상품: 시도 %d, 성공 %d, %.0f attempts/s%n",
+                THREADS * ATTEMPTS_PER_THREAD, result.succeeded, result.attemptsPerSecond());
+    }
+
+    @DisplayName("두 상품을 서로 반대 순서로 담아 동시에 결제해도 교착상태 없이 재고만큼만 판매된다.")
+    @Test
+    void concurrentCheckout_oppositeOrder_noDeadlock() throws Exception {
+        // given
+        int stock = 30;
+        int productA = createProduct("상품A", stock);
+        int productB = createProduct("상품B", stock);
+
+        // when 짝수 스레드는 A,B 순서, 홀수 스레드는 B,A 순서로 장바구니에 담음
+        Result result = run(thread -> {
+            Map<Integer, Integer> cart = new LinkedHashMap<>();
+            if (thread % 2 == 0) {
+                cart.put(productA, 1);
+                cart.put(productB, 1);
+            } else {
+                cart.put(productB, 1);
+                cart.put(productA, 1);
+            }
+            return cart;
+        });
+
+        // then
+        assertThat(result.succeeded).isEqualTo(stock);
+        assertThat(result.unexpected).isZero();
+        assertThat(productRepository.findCurrentQuantity(productA)).contains(0);
+        assertThat(productRepository.findCurrentQuantity(productB)).contains(0);
+        System.out.printf("[stock] 두 상품 교차: 시도 %d, 성공 %d, %.0f attempts/s%n",
+                THREADS * ATTEMPTS_PER_THREAD, result.succeeded, result.attemptsPerSecond());
+    }
+
+    private int createProduct(String name, int quantity) {
+        Product product = transactionTemplate.execute(status ->
+                productRepository.create(new Product(name + "-" + System.nanoTime(), 1000, quantity)));
+        productIds.add(product.getProductId());
+        return product.getProductId();
+    }
+
+    private int soldQuantity(int productId) {
+        return jdbcTemplate.queryForObject(
+                "select coalesce(sum(order_quantity), 0) from purchase_item where product_id = ?", Integer.class, productId);
+    }
+
+    /**
+     * 모든 스레드가 동시에 출발해서 각자 ATTEMPTS_PER_THREAD 번씩 결제를 시도함
+     */
+    private Result run(CartFactory cartFactory) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger unexpected = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        Purchase purchase = consumerService.createPurchase(purchaseRequest(cartFactory.cart(thread)));
+                        purchaseIds.add(purchase.getPurchaseId());
+                        succeeded.incrementAndGet();
+                    } catch (IllegalStateException soldOut) {
+                        // 재고 부족은 정상적인 실패
+                    } catch (RuntimeException e) {
+                        unexpected.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        long elapsedNanos = System.nanoTime() - begin;
+
+        return new Result(THREADS * ATTEMPTS_PER_THREAD, succeeded.get(), unexpected.get(), elapsedNanos);
+    }
+
+    private interface CartFactory {
+        Map<Integer, Integer> cart(int thread);
+    }
+
+    private record Result(int attempts, int succeeded, int unexpected, long elapsedNanos) {
+        double attemptsPerSecond() { // 재고 부족으로 거절된 결제도 트랜잭션 한번을 쓰므로 같이 셈
+            return attempts * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+
+    private static PurchaseRequestDto purchaseRequest(Map<Integer, Integer> cart) {
+        List<PurchaseRequestDto.OrderItemDto> orderList = new ArrayList<>();
+        cart.forEach((productId, quantity) -> {
+            PurchaseRequestDto.OrderItemDto orderItem = new PurchaseRequestDto.OrderItemDto();
+            orderItem.setProductId(productId);
+            orderItem.setQuantity(quantity);
+            orderList.add(orderItem);
+        });
+        PurchaseRequestDto purchaseRequestDto = new PurchaseRequestDto();
+        purchaseRequestDto.setOrderList(orderList);
+        return purchaseRequestDto;
+    }
+}
@@ -0,0 +1,238 @@
+package min.example.QRp.service;
+
+import min.example.QRp.domain.Product;
+import min.example.QRp.domain.ReservationStatus;
+import min.example.QRp.domain.StockReservation;
+import min.example.QRp.repository.ProductRepository;
+import min.example.QRp.repository.StockReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 만료 스레드가 별도 트랜잭션에서 예약을 읽어야 하므로 테스트 데이터는 커밋하고 끝나고 직접 지움
+ * 만료를 빨리 확인하기 위해 예약 유지 시간을 1초, 만료 처리 재시도 대기 시간을 0.1초로 줄임
+ */
+@SpringBootTest(properties = {"stock.reservation.ttl=1s", "stock.reservation.retry-backoff=100ms"})
+class StockReservationServiceTest {
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    StockEngine stockEngine;
+
+    private int productId;
+
+    @BeforeEach
+    void setUp() {
+        productId = transactionTemplate.execute(status ->
+                productRepository.create(new Product("예약상품-" + System.nanoTime(), 1000, 10))).getProductId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from stock_reservation_line");
+        jdbcTemplate.update("delete from stock_reservation");
+        jdbcTemplate.update("delete from sales_rollup where product_id = ?", productId);
+        jdbcTemplate.update("delete from product where product_id = ?", productId);
+    }
+
+    @DisplayName("예약하면 재고가 차감되고, 결제를 취소하면 다시 돌아온다.")
+    @Test
+    void reserveAndRelease() {
+        // given
+        String orderId = UUID.randomUUID().toString();
+
+        // when
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.reserve(orderId, Map.of(productId, 3)));
+        int reserved = currentQuantity();
+        boolean released = stockReservationService.release(orderId);
+
+        // then
+        assertThat(reserved).isEqualTo(7);
+        assertThat(released).isTrue();
+        assertThat(currentQuantity()).isEqualTo(10);
+        assertThat(stockReservationService.release(orderId)).isFalse(); // 두번 돌려주지 않음
+        assertThat(currentQuantity()).isEqualTo(10);
+    }
+
+    @DisplayName("재고보다 많이 예약하면 예외가 발생하고 재고와 예약은 남지 않는다.")
+    @Test
+    void reserve_insufficientStock() {
+        // given
+        String orderId = UUID.randomUUID().toString();
+
+        // when & then
+        assertThatThrownBy(() -> stockReservationService.reserve(orderId, Map.of(productId, 11)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("재고가 부족합니다.");
+        assertThat(currentQuantity()).isEqualTo(10);
+        assertThat(stockReservationRepository.findByPartnerOrderId(orderId)).isEmpty();
+    }
+
+    @DisplayName("구매로 전환된 예약은 취소나 만료로 재고를 돌려주지 않는다.")
+    @Test
+    void convert() throws Exception {
+        // given
+        String orderId = UUID.randomUUID().toString();
+        stockReservationService.reserve(orderId, Map.of(productId, 2));
+        stockReservationService.beginApproval(orderId, Map.of(productId, 2));
+
+        // when
+        Map<Integer, Integer> lines = transactionTemplate.execute(status -> stockReservationService.convert(orderId));
+        Thread.sleep(1500); // 만료 시간이 지나도
+
+        // then
+        assertThat(lines).containsExactly(Map.entry(productId, 2));
+        assertThat(stockReservationService.release(orderId)).isFalse();
+        assertThat(stockReservationService.releaseApproving(orderId)).isFalse();
+        assertThat(currentQuantity()).isEqualTo(8);
+        assertThat(stockReservationService.findStatus(orderId)).contains(ReservationStatus.CONVERTED);
+    }
+
+    @DisplayName("승인중인 예약은 만료되어도 돌려주지 않고, 전환이 롤백되면 승인중으로 남는다.")
+    @Test
+    void beginApproval() throws Exception {
+        // given
+        String orderId = UUID.randomUUID().toString();
+        stockReservationService.reserve(orderId, Map.of(productId, 2));
+
+        // when 승인 API 를 부르는 동안 만료 시간이 지나고, 그 뒤 구매 기록이 실패함
+        stockReservationService.beginApproval(orderId, Map.of(productId, 2));
+        Thread.sleep(1500);
+        transactionTemplate.executeWithoutResult(status -> {
+            stockReservationService.convert(orderId);
+            status.setRollbackOnly();
+        });
+
+        // then
+        assertThat(stockReservationService.findStatus(orderId)).contains(ReservationStatus.APPROVING);
+        assertThat(currentQuantity()).isEqualTo(8);
+        assertThatThrownBy(() -> stockReservationService.beginApproval(orderId, Map.of(productId, 2)))
+                .isInstanceOf(IllegalStateException.class); // 같은 주문의 다른 승인 요청
+        assertThat(stockReservationService.release(orderId)).isFalse(); // 결제 취소 화면으로도 돌려주지 않음
+        assertThat(stockReservationService.releaseApproving(orderId)).isTrue(); // 카카오페이 결제를 취소한 뒤
+        assertThat(currentQuantity()).isEqualTo(10);
+    }
+
+    @DisplayName("예약 수량이 결제 준비때와 다르면 승인중으로 바꾸지 않는다.")
+    @Test
+    void beginApproval_linesMismatch() {
+        // given
+        String orderId = UUID.randomUUID().toString();
+        stockReservationService.reserve(orderId, Map.of(productId, 2));
+
+        // when & then
+        assertThatThrownBy(() -> stockReservationService.beginApproval(orderId, Map.of(productId, 3)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("결제 준비때와 예약된 수량이 다릅니다. 다시 결제해주세요.");
+        assertThat(stockReservationService.findStatus(orderId)).contains(ReservationStatus.HELD);
+    }
+
+    @DisplayName("만료 시간이 지나면 만료 스레드가 재고를 돌려주고, 그 뒤에는 구매로 전환할 수 없다.")
+    @Test
+    void expire() throws Exception {
+        // given
+        String orderId = UUID.randomUUID().toString();
+        stockReservationService.reserve(orderId, Map.of(productId, 4));
+        assertThat(currentQuantity()).isEqualTo(6);
+
+        // when
+        awaitQuantity(10);
+
+        // then
+        assertThat(currentQuantity()).isEqualTo(10);
+        assertThat(stockReservationRepository.findByPartnerOrderId(orderId).get().getStatus())
+                .isEqualTo(ReservationStatus.RELEASED);
+        assertThatThrownBy(() -> stockReservationService.beginApproval(orderId, Map.of(productId, 4)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("만료 처리가 실패하면 버리지 않고 잠시 뒤에 다시 시도해서 재고를 돌려준다.")
+    @Test
+    void expire_retriesAfterFailure() throws Exception {
+        // given 첫번째 만료 처리에서 재고를 돌려주다가 DB 오류가 남 (트랜잭션 프록시 안쪽의 스파이에 스텁)
+        String orderId = UUID.randomUUID().toString();
+        StockEngine spy = AopTestUtils.getUltimateTargetObject(stockEngine);
+        doThrow(new DataAccessResourceFailureException("DB 연결 끊김")).doCallRealMethod()
+                .when(spy).increase(Map.of(productId, 4));
+        stockReservationService.reserve(orderId, Map.of(productId, 4));
+
+        // when
+        awaitQuantity(10);
+
+        // then
+        assertThat(currentQuantity()).isEqualTo(10);
+        assertThat(stockReservationService.findStatus(orderId)).contains(ReservationStatus.RELEASED);
+        verify(spy, times(2)).increase(Map.of(productId, 4));
+    }
+
+    @DisplayName("다른 서버가 예약하고 죽어서 만료 큐에 없는 예약도, 만료되었으면 정리할때 한번만 재고를 돌려준다.")
+    @Test
+    void releaseExpiredHeld() {
+        // given 이 서버의 만료 큐를 거치지 않고 저장된 예약 (만료된 것, 아직 안된 것)
+        String expiredOrderId = UUID.randomUUID().toString();
+        String activeOrderId = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            stockEngine.decrease(Map.of(productId, 5));
+            stockReservationRepository.create(StockReservation.hold(expiredOrderId, Map.of(productId, 3), LocalDateTime.now().minusMinutes(1)));
+            stockReservationRepository.create(StockReservation.hold(activeOrderId, Map.of(productId, 2), LocalDateTime.now().plusMinutes(10)));
+        });
+
+        // when
+        int released = stockReservationService.releaseExpiredHeld(LocalDateTime.now());
+        int releasedAgain = stockReservationService.releaseExpiredHeld(LocalDateTime.now()); // 다른 서버가 이어서 돌아도
+
+        // then
+        assertThat(released).isEqualTo(1);
+        assertThat(releasedAgain).isZero();
+        assertThat(currentQuantity()).isEqualTo(8);
+        assertThat(stockReservationService.findStatus(expiredOrderId)).contains(ReservationStatus.RELEASED);
+        assertThat(stockReservationService.findStatus(activeOrderId)).contains(ReservationStatus.HELD);
+    }
+
+    /**
+     * 만료 스레드가 재고를 돌려줄때까지 최대 5초 기다림
+     */
+    private void awaitQuantity(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (currentQuantity() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private int currentQuantity() {
+        return productRepository.findCurrentQuantity(productId).orElseThrow();
+    }
+}